@@ -1,25 +1,74 @@
 package mtk.apix;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.Http2Settings;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.JksOptions;
+import io.vertx.core.net.PfxOptions;
 import io.vertx.ext.web.Route;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
+import mtk.apix.accesslog.AccessLog;
+import mtk.apix.admin.AdminServer;
 import mtk.apix.annotation.*;
+import mtk.apix.cache.CacheManager;
+import mtk.apix.capture.TrafficCapture;
+import mtk.apix.capture.TrafficFile;
+import mtk.apix.client.HttpClientManager;
 import mtk.apix.constant.DefaultVertxConfig;
 import mtk.apix.constant.PropertyKeys;
+import mtk.apix.eventbus.EventBusConsumerHandler;
 import mtk.apix.exception.DependencyException;
+import mtk.apix.metrics.BootReport;
+import mtk.apix.metrics.FlightRecorder;
+import mtk.apix.metrics.HttpServerMetrics;
+import mtk.apix.metrics.RouteMetrics;
+import mtk.apix.ratelimit.RateLimiter;
+import mtk.apix.ratelimit.RateLimiterRegistry;
+import mtk.apix.trace.FileSpanExporter;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.SpanExporter;
+import mtk.apix.trace.Trace;
+import mtk.apix.trace.Tracer;
+import mtk.apix.push.SseSession;
+import mtk.apix.push.TopicBroadcaster;
+import mtk.apix.push.WebSocketSession;
+import mtk.apix.util.BatchRequestHandler;
 import mtk.apix.util.ClassUtil;
 import mtk.apix.util.ConsoleLog;
+import mtk.apix.util.ContentCodec;
+import mtk.apix.util.Deadline;
+import mtk.apix.util.Endpoint;
 import mtk.apix.util.Environment;
+import mtk.apix.util.FieldProjection;
+import mtk.apix.util.MediaType;
+import mtk.apix.util.RequestCoalescer;
+import mtk.apix.util.ResponseWriter;
+import mtk.apix.util.StaticResourceHandler;
+import mtk.apix.util.VirtualThreads;
+import mtk.apix.util.WarmUpRunner;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -42,6 +91,29 @@ public class Apix {
     private Handler<Throwable> onFailureHandler;
     private Environment env;
     private Class<?> mainClass;
+    private boolean virtualThreads;
+    private final static String VIRTUAL_THREADS_EXECUTION = "virtual-threads";
+    private long requestTimeout;
+    private final HttpServerMetrics httpServerMetrics = new HttpServerMetrics();
+    private BootReport bootReport = new BootReport();
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private TrafficCapture trafficCapture;
+    private Tracer tracer;
+    private AccessLog accessLog;
+    private RateLimiterRegistry rateLimiterRegistry;
+    private RouteMetrics routeMetrics;
+    private AdminServer adminServer;
+    private HttpServerOptions httpServerOptions;
+    private HttpServer httpServer;
+    private volatile boolean ready;
+    private volatile boolean draining;
+    private Handler<RoutingContext> interceptorHandler;
+    private Handler<RoutingContext> controllerAdviceHandler;
+    private volatile Promise<Void> drained;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private Future<Void> shutdownFuture;
+    private final static long DEFAULT_SHUTDOWN_GRACE = 30000;
+    private int timeoutStatus = 503;
 
     private Apix() {
         port = DEFAULT_PORT;
@@ -92,6 +164,7 @@ public class Apix {
             }
 
             Apix apix = Apix.getInstance();
+            apix.bootReport = new BootReport();
             apix.onSuccessHandler = onSuccessHandler;
             apix.onFailureHandler = onFailureHandler;
             apix.mainClass = mainClass;
@@ -106,23 +179,69 @@ public class Apix {
             }
 
             apix.displayApixLogo();
+            BootReport.Phase phase = apix.bootReport.start("properties");
             apix.apixProperties.init(mainClass, apix.env);
+            phase.end();
+            phase = apix.bootReport.start("vertx");
             apix.initVertx();
             apix.showLog(apix.apixProperties.getApplicationProperties());
+            apix.initExecutionMode(apix.apixProperties.getApplicationProperties());
+            apix.registerShutdownHook(apix.apixProperties.getApplicationProperties());
             apix.apixContainer.addComponent(apix.vertx.getClass(), apix.vertx);
-            apix.apixContainer.init(mainClass, apix.apixProperties.getApplicationProperties(), apix.env);
+            apix.apixContainer.addComponent(CacheManager.class, new CacheManager(apix.vertx));
+            HttpClientManager httpClientManager = new HttpClientManager(apix.vertx, apix.apixProperties.getApplicationProperties());
+            apix.apixContainer.addComponent(HttpClientManager.class, httpClientManager);
+            apix.apixContainer.addComponent(io.vertx.core.http.HttpClient.class, httpClientManager.getClient());
+            apix.apixContainer.addComponent(TopicBroadcaster.class, new TopicBroadcaster());
+            apix.apixContainer.addComponent(HttpServerMetrics.class, apix.httpServerMetrics);
+            apix.createTrafficCapture(apix.apixProperties.getApplicationProperties());
+            apix.createRouteMetrics(apix.apixProperties.getApplicationProperties());
+            apix.createTracer(apix.apixProperties.getApplicationProperties());
+            apix.createAccessLog(apix.apixProperties.getApplicationProperties());
+            apix.createRateLimiterRegistry(apix.apixProperties.getApplicationProperties());
+            apix.startAdminServer(apix.apixProperties.getApplicationProperties());
+            phase.end();
+            apix.apixContainer.init(mainClass, apix.apixProperties.getApplicationProperties(), apix.env, apix.bootReport);
+            apix.registerSpanExporters();
+            phase = apix.bootReport.start("event bus consumers");
+            apix.createEventBusConsumers();
+            phase.end();
+            Future<Void> initialized = apix.initComponents();
 
             if (!apix.apixContainer.getRestControllers().isEmpty()) {
+                phase = apix.bootReport.start("routes");
                 Router router = Router.router(apix.vertx);
+                router.route().handler(apix.httpServerMetrics);
+                if (apix.tracer != null) {
+                    router.route().handler(apix.tracer);
+                }
+                if (apix.accessLog != null) {
+                    router.route().handler(apix.accessLog);
+                }
+                apix.createFlightRecorderHandler(router);
+                apix.createLifecycleHandlers(router);
                 router.route().handler(BodyHandler.create());
+                if (apix.trafficCapture != null) {
+                    router.route().handler(apix.trafficCapture);
+                }
                 apix.fixPort(apix.apixProperties.getApplicationProperties());
+                apix.initRequestTimeout(apix.apixProperties.getApplicationProperties());
+                apix.httpServerOptions = apix.createServerOptions();
                 apix.createInterceptor(router);
+                apix.createBatchEndpoint(router);
                 apix.createEndpoints(router);
+                apix.createRouteMetricsEndpoint(router);
+                apix.createPushEndpoints(router);
+                apix.createStaticResources(router);
                 apix.createDefaultEndpoint(router);
                 apix.createControllerAdvice(router);
-                apix.startServer(router, httpServer -> apix.apixContainer.invokeAllPostConstructComponentsMethod());
+                apix.bootReport.setRoutes((int) router.getRoutes().stream().filter(route -> route.getPath() != null || route.isRegexPath()).count());
+                phase.end();
+                // the server listens once all components are initialized and the application is warmed up
+                initialized.compose(v -> apix.warmUp(router)).onComplete(ar -> apix.startServer(router));
             } else {
                 ConsoleLog.warn("Server not started: no controller found!");
+                initialized.onComplete(ar -> apix.finishBootReport());
             }
         } catch (Exception e) {
             throw new DependencyException(e);
@@ -172,18 +291,76 @@ public class Apix {
         }
         httpServerOptions.setCompressionSupported(compressionSupported);
         httpServerOptions.setIdleTimeout(idleTimeout);
+        configureProtocols(httpServerOptions);
         return httpServerOptions;
     }
 
-    private void startServer(Router router, Handler<HttpServer> onStart) {
-        HttpServer httpServer = vertx.createHttpServer(createServerOptions());
+    /**
+     * Configure TLS and HTTP/2 from {@link VertxConfiguration}, or from properties if the main class isn't annotated.
+     * Without TLS, HTTP/2 is served in clear text (h2c) through the upgrade from HTTP/1.1 or with prior knowledge
+     *
+     * @param httpServerOptions
+     */
+    private void configureProtocols(HttpServerOptions httpServerOptions) {
+        boolean http2;
+        String keyStore;
+        String keyStorePassword;
+        Http2Settings settings = new Http2Settings();
+        if (mainClass.isAnnotationPresent(VertxConfiguration.class)) {
+            VertxConfiguration configuration = mainClass.getAnnotation(VertxConfiguration.class);
+            http2 = configuration.http2();
+            keyStore = configuration.keyStore();
+            keyStorePassword = configuration.keyStorePassword();
+            settings.setMaxConcurrentStreams(configuration.http2MaxConcurrentStreams())
+                    .setInitialWindowSize(configuration.http2InitialWindowSize())
+                    .setHeaderTableSize(configuration.http2HeaderTableSize());
+        } else {
+            Properties properties = apixProperties.getApplicationProperties();
+            http2 = ClassUtil.valueOf(properties.getProperty(PropertyKeys.VERTX_HTTP2), Boolean.class, DefaultVertxConfig.HTTP2);
+            keyStore = properties.getProperty(PropertyKeys.VERTX_KEY_STORE, "");
+            keyStorePassword = properties.getProperty(PropertyKeys.VERTX_KEY_STORE_PASSWORD, "");
+            settings.setMaxConcurrentStreams(ClassUtil.valueOf(properties.getProperty(PropertyKeys.VERTX_HTTP2_MAX_CONCURRENT_STREAMS), Long.class, DefaultVertxConfig.HTTP2_MAX_CONCURRENT_STREAMS))
+                    .setInitialWindowSize(ClassUtil.valueOf(properties.getProperty(PropertyKeys.VERTX_HTTP2_INITIAL_WINDOW_SIZE), Integer.class, DefaultVertxConfig.HTTP2_INITIAL_WINDOW_SIZE))
+                    .setHeaderTableSize(ClassUtil.valueOf(properties.getProperty(PropertyKeys.VERTX_HTTP2_HEADER_TABLE_SIZE), Long.class, DefaultVertxConfig.HTTP2_HEADER_TABLE_SIZE));
+        }
+
+        if (!keyStore.trim().isEmpty()) {
+            String path = keyStore.trim();
+            String lowerCasePath = path.toLowerCase();
+            httpServerOptions.setSsl(true);
+            if (lowerCasePath.endsWith(".p12") || lowerCasePath.endsWith(".pfx")) {
+                httpServerOptions.setKeyCertOptions(new PfxOptions().setPath(path).setPassword(keyStorePassword));
+            } else {
+                httpServerOptions.setKeyCertOptions(new JksOptions().setPath(path).setPassword(keyStorePassword));
+            }
+            httpServerOptions.setUseAlpn(http2);
+        }
+        httpServerOptions.setAlpnVersions(http2 ? Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1) : Collections.singletonList(HttpVersion.HTTP_1_1));
+        httpServerOptions.setHttp2ClearTextEnabled(http2 && !httpServerOptions.isSsl());
+        httpServerOptions.setInitialSettings(settings);
+        if (http2) {
+            ConsoleLog.trace("HTTP/2 enabled (" + (httpServerOptions.isSsl() ? "TLS ALPN" : "h2c") + ", maxConcurrentStreams: " + settings.getMaxConcurrentStreams() + ", initialWindowSize: " + settings.getInitialWindowSize() + ")");
+        }
+    }
+
+    private void startServer(Router router) {
+        BootReport.Phase phase = bootReport.start("listen");
+        httpServer = vertx.createHttpServer(httpServerOptions);
         httpServer
+                .connectionHandler(httpServerMetrics::connected)
                 .requestHandler(router)
                 .listen(port)
                 .onSuccess(server -> {
-                    ConsoleLog.forcedLog(ConsoleLog.Level.INFO, "HTTP server started on port " + server.actualPort() + " (" + env.name() + ") - visit http://localhost:" + server.actualPort() + "/");
-                    if (onStart != null)
-                        onStart.handle(server);
+                    ConsoleLog.forcedLog(ConsoleLog.Level.INFO, "HTTP server started on port " + server.actualPort() + " (" + env.name() + ") - visit " + (httpServerOptions.isSsl() ? "https" : "http") + "://localhost:" + server.actualPort() + "/");
+                    phase.end();
+                    finishBootReport();
+                    if (trafficCapture != null) {
+                        trafficCapture.start().onFailure(ConsoleLog::error);
+                    }
+                    if (accessLog != null) {
+                        accessLog.start().onFailure(ConsoleLog::error);
+                    }
+                    ready = true;
                     if (onSuccessHandler != null)
                         onSuccessHandler.handle(server);
                 })
@@ -196,6 +373,420 @@ public class Apix {
     }
 
 
+    /**
+     * Stop the application gracefully:
+     * - readiness turns false ({@link #isReady()} and the readiness endpoint), then after {@link PropertyKeys#SHUTDOWN_READINESS_DELAY} ms
+     * - new requests are refused with 503 and Connection: close, so keep-alive clients reconnect to another node
+     * - in-flight requests are awaited up to the grace period, then the http server is closed
+     * - methods annotated with {@link PreDestroy} are called, in the reverse order of component creation
+     * - vertx is closed
+     * Vertx 4 can't stop listening without closing open connections, so the port stays open (refusing requests) until in-flight requests are completed.
+     *
+     * @param grace max time to wait for in-flight requests
+     * @return future completed when the application is stopped
+     */
+    public static Future<Void> shutdown(Duration grace) {
+        return getInstance().stop(grace.toMillis());
+    }
+
+    /**
+     * @return true once the server is started, false as soon as the shutdown begins
+     */
+    public static boolean isReady() {
+        return getInstance().ready;
+    }
+
+    private synchronized Future<Void> stop(long graceMillis) {
+        if (shutdownFuture != null) {
+            return shutdownFuture;
+        }
+        if (vertx == null) {
+            shutdownFuture = Future.succeededFuture();
+            return shutdownFuture;
+        }
+        ready = false;
+        ConsoleLog.forcedLog(ConsoleLog.Level.INFO, "Shutting down, grace period: " + graceMillis + " ms");
+        long readinessDelay = ClassUtil.valueOf(apixProperties.getApplicationProperties().getProperty(PropertyKeys.SHUTDOWN_READINESS_DELAY), Long.class, 0L);
+        Promise<Void> stopped = Promise.promise();
+        delay(readinessDelay)
+                .compose(v -> drain(graceMillis))
+                .compose(v -> httpServer != null ? httpServer.close() : Future.succeededFuture())
+                .compose(v -> trafficCapture != null ? trafficCapture.close() : Future.succeededFuture())
+                .compose(v -> tracer != null ? tracer.close() : Future.succeededFuture())
+                .compose(v -> accessLog != null ? accessLog.close() : Future.succeededFuture())
+                .compose(v -> apixContainer.invokeAllPreDestroyComponentsMethod())
+                .onComplete(ar -> {
+                    if (ar.failed()) {
+                        ConsoleLog.error(ar.cause());
+                    }
+                    vertx.close().compose(v -> adminServer != null ? adminServer.close() : Future.succeededFuture()).onComplete(closed -> {
+                        ConsoleLog.forcedLog(ConsoleLog.Level.INFO, "Application stopped");
+                        stopped.handle(closed);
+                    });
+                });
+        shutdownFuture = stopped.future();
+        return shutdownFuture;
+    }
+
+    private Future<Void> delay(long millis) {
+        if (millis <= 0) {
+            return Future.succeededFuture();
+        }
+        Promise<Void> promise = Promise.promise();
+        vertx.setTimer(millis, id -> promise.complete());
+        return promise.future();
+    }
+
+    /**
+     * Refuse new requests and wait for in-flight requests, at most the given time
+     */
+    private Future<Void> drain(long graceMillis) {
+        Promise<Void> promise = Promise.promise();
+        drained = promise;
+        draining = true;
+        if (inFlightRequests.get() == 0) {
+            promise.tryComplete();
+        } else {
+            long timerId = vertx.setTimer(Math.max(1, graceMillis), id -> {
+                if (promise.tryComplete()) {
+                    ConsoleLog.warn("Grace period elapsed, " + inFlightRequests.get() + " request(s) still in flight");
+                }
+            });
+            promise.future().onComplete(ar -> vertx.cancelTimer(timerId));
+        }
+        return promise.future();
+    }
+
+    /**
+     * Count in-flight requests and refuse new ones while draining.
+     * Create the readiness endpoint if {@link PropertyKeys#READINESS_PATH} is set: 200 when ready, 503 otherwise
+     *
+     * @param router
+     */
+    private void createLifecycleHandlers(Router router) {
+        router.route().handler(routingContext -> {
+            if (draining) {
+                routingContext.response().setStatusCode(503).putHeader(HttpHeaders.CONNECTION, HttpHeaders.CLOSE).end();
+                return;
+            }
+            inFlightRequests.incrementAndGet();
+            routingContext.addEndHandler(ar -> {
+                Promise<Void> promise = drained;
+                if (inFlightRequests.decrementAndGet() == 0 && promise != null) {
+                    promise.tryComplete();
+                }
+            });
+            routingContext.next();
+        });
+        String readinessPath = apixProperties.getApplicationProperties().getProperty(PropertyKeys.READINESS_PATH);
+        if (readinessPath != null && !readinessPath.trim().isEmpty()) {
+            router.get(readinessPath.trim()).handler(routingContext -> routingContext.response()
+                    .setStatusCode(ready ? 200 : 503)
+                    .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON)
+                    .end(new JsonObject().put("status", ready ? "UP" : "DOWN").encode()));
+            ConsoleLog.trace("Readiness endpoint: " + readinessPath.trim());
+        }
+    }
+
+    /**
+     * Stop the application gracefully when the JVM stops (SIGTERM), unless {@link PropertyKeys#SHUTDOWN_HOOK} is false.
+     * The grace period is {@link PropertyKeys#SHUTDOWN_GRACE} ms
+     *
+     * @param properties
+     */
+    private void registerShutdownHook(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.SHUTDOWN_HOOK), Boolean.class, true)) {
+            return;
+        }
+        long grace = ClassUtil.valueOf(properties.getProperty(PropertyKeys.SHUTDOWN_GRACE), Long.class, DEFAULT_SHUTDOWN_GRACE);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            CountDownLatch stopped = new CountDownLatch(1);
+            stop(grace).onComplete(ar -> stopped.countDown());
+            try {
+                stopped.await(grace + ClassUtil.valueOf(properties.getProperty(PropertyKeys.SHUTDOWN_READINESS_DELAY), Long.class, 0L) + 10000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "apix-shutdown"));
+    }
+
+    /**
+     * Call the {@link PostConstruct} methods of all components, see {@link ApixContainer#invokeAllPostConstructComponentsMethod}.
+     * Methods run on worker threads (virtual threads in virtual threads execution mode) so they can block without blocking the event loop
+     * The creation and initialization time of each component is kept in the {@link BootReport}
+     *
+     * @return future completed when all components are initialized
+     */
+    private Future<Void> initComponents() {
+        BootReport.Phase phase = bootReport.start("post construct");
+        Function<Callable<Object>, Future<Object>> executor = virtualThreads ? this::runOnVirtualThread : callable -> vertx.executeBlocking(callable, false);
+        return apixContainer.invokeAllPostConstructComponentsMethod(executor).onComplete(ar -> {
+            phase.end();
+            ConsoleLog.trace("PostConstruct: (" + apixContainer.getPostConstructTimes().size() + ") component(s) initialized");
+        });
+    }
+
+    /**
+     * Warm up the application when apix.warmup.enabled is true, see {@link WarmUpRunner}: every endpoint is called except those excluded with {@link WarmUp},
+     * or the requests of the capture file apix.warmup.capture are sent
+     *
+     * @param router application router
+     * @return future completed when the warm-up is completed, never fails
+     */
+    private Future<Void> warmUp(Router router) {
+        Properties properties = apixProperties.getApplicationProperties();
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.WARMUP_ENABLED), Boolean.class, false)) {
+            return Future.succeededFuture();
+        }
+        BootReport.Phase phase = bootReport.start("warm-up");
+        String captureFile = properties.getProperty(PropertyKeys.WARMUP_CAPTURE);
+        Future<List<WarmUpRunner.Request>> requests;
+        if (captureFile != null && !captureFile.trim().isEmpty()) {
+            requests = vertx.fileSystem().readFile(captureFile.trim()).map(content -> TrafficFile.read(content).stream()
+                    .map(record -> WarmUpRunner.Request.of(record, endpoints))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+        } else {
+            requests = Future.succeededFuture(endpoints.stream().map(WarmUpRunner.Request::of).filter(Objects::nonNull).collect(Collectors.toList()));
+        }
+        return requests
+                .compose(warmUpRequests -> new WarmUpRunner(vertx, warmUpRequests,
+                        ClassUtil.valueOf(properties.getProperty(PropertyKeys.WARMUP_ITERATIONS), Integer.class, WarmUpRunner.DEFAULT_ITERATIONS),
+                        ClassUtil.valueOf(properties.getProperty(PropertyKeys.WARMUP_DURATION), Long.class, WarmUpRunner.DEFAULT_DURATION),
+                        ClassUtil.valueOf(properties.getProperty(PropertyKeys.WARMUP_CONCURRENCY), Integer.class, WarmUpRunner.DEFAULT_CONCURRENCY))
+                        .run(router))
+                .otherwise(throwable -> {
+                    ConsoleLog.warn("Warm-up failed: " + throwable.getMessage());
+                    return null;
+                })
+                .onComplete(ar -> {
+                    httpServerMetrics.resetStreams();
+                    if (rateLimiterRegistry != null) {
+                        rateLimiterRegistry.reset();
+                    }
+                    if (routeMetrics != null) {
+                        routeMetrics.reset();
+                    }
+                    phase.end();
+                });
+    }
+
+    /**
+     * Start the {@link AdminServer} when apix.admin.port is set, before the components so liveness answers during the startup
+     *
+     * @param properties application properties
+     */
+    private void startAdminServer(Properties properties) {
+        int adminPort = ClassUtil.valueOf(properties.getProperty(PropertyKeys.ADMIN_PORT), Integer.class, 0);
+        if (adminPort <= 0) {
+            return;
+        }
+        adminServer = new AdminServer(adminPort, properties.getProperty(PropertyKeys.ADMIN_HOST, AdminServer.DEFAULT_HOST).trim(), apixContainer.getComponents(), apixContainer::getLazyComponents);
+        adminServer.start().onFailure(throwable -> ConsoleLog.error(new Throwable("Can't start admin server on port " + adminPort, throwable)));
+    }
+
+    /**
+     * Emit a {@link FlightRecorder} request event (method, route, status, duration) per request, while a recording listens to it
+     *
+     * @param router
+     */
+    private void createFlightRecorderHandler(Router router) {
+        if (!FlightRecorder.isSupported()) {
+            return;
+        }
+        router.route().handler(routingContext -> {
+            Object event = FlightRecorder.beginRequest();
+            if (event != null) {
+                routingContext.addEndHandler(ar -> {
+                    Route route = routingContext.currentRoute();
+                    FlightRecorder.commitRequest(event, routingContext.request().method().name(),
+                            route != null && route.getPath() != null ? route.getPath() : routingContext.normalizedPath(),
+                            routingContext.response().getStatusCode());
+                });
+            }
+            routingContext.next();
+        });
+    }
+
+    /**
+     * Create the {@link Tracer} component when apix.tracing.enabled is true, with the file exporter if apix.tracing.file is set.
+     * The traceparent of the current trace is added to the messages sent on the event bus
+     *
+     * @param properties application properties
+     */
+    private void createTracer(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.TRACING_ENABLED), Boolean.class, false)) {
+            return;
+        }
+        tracer = new Tracer(ClassUtil.valueOf(properties.getProperty(PropertyKeys.TRACING_SAMPLE_RATE), Double.class, Tracer.DEFAULT_SAMPLE_RATE),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.TRACING_BUFFER_SIZE), Integer.class, Tracer.DEFAULT_BUFFER_SIZE));
+        String file = properties.getProperty(PropertyKeys.TRACING_FILE);
+        if (file != null && !file.trim().isEmpty()) {
+            tracer.addExporter(new FileSpanExporter(vertx, file.trim()));
+        }
+        vertx.eventBus().addOutboundInterceptor(deliveryContext -> {
+            Trace trace = Trace.current();
+            if (trace != Trace.NONE && !deliveryContext.message().headers().contains(Trace.TRACEPARENT)) {
+                deliveryContext.message().headers().add(Trace.TRACEPARENT, trace.traceparent(trace.getRoot()));
+            }
+            deliveryContext.next();
+        });
+        apixContainer.addComponent(Tracer.class, tracer);
+    }
+
+    /**
+     * Create the {@link AccessLog} component when apix.accesslog.enabled is true, it logs once the server listens
+     *
+     * @param properties application properties
+     */
+    private void createAccessLog(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.ACCESS_LOG_ENABLED), Boolean.class, false)) {
+            return;
+        }
+        accessLog = new AccessLog(vertx,
+                properties.getProperty(PropertyKeys.ACCESS_LOG_FILE, AccessLog.DEFAULT_FILE).trim(),
+                properties.getProperty(PropertyKeys.ACCESS_LOG_FORMAT, AccessLog.DEFAULT_FORMAT),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.ACCESS_LOG_SAMPLE_RATE), Double.class, AccessLog.DEFAULT_SAMPLE_RATE),
+                properties.getProperty(PropertyKeys.ACCESS_LOG_FIELDS, AccessLog.DEFAULT_FIELDS),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.ACCESS_LOG_MAX_FILE_SIZE), Long.class, AccessLog.DEFAULT_MAX_FILE_SIZE),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.ACCESS_LOG_MAX_FILES), Integer.class, AccessLog.DEFAULT_MAX_FILES),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.ACCESS_LOG_QUEUE_SIZE), Integer.class, AccessLog.DEFAULT_QUEUE_SIZE));
+        apixContainer.addComponent(AccessLog.class, accessLog);
+    }
+
+    /**
+     * Create the {@link RateLimiterRegistry} component of the {@link RateLimit} annotations, unless apix.ratelimit.enabled is false
+     *
+     * @param properties application properties
+     */
+    private void createRateLimiterRegistry(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.RATE_LIMIT_ENABLED), Boolean.class, true)) {
+            return;
+        }
+        rateLimiterRegistry = new RateLimiterRegistry(vertx, properties,
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.RATE_LIMIT_MAX_KEYS), Integer.class, RateLimiterRegistry.DEFAULT_MAX_KEYS));
+        apixContainer.addComponent(RateLimiterRegistry.class, rateLimiterRegistry);
+    }
+
+    /**
+     * Register the components implementing {@link SpanExporter} in the {@link Tracer}
+     */
+    private void registerSpanExporters() {
+        if (tracer == null) {
+            return;
+        }
+        apixContainer.getComponents().values().stream()
+                .filter(component -> component instanceof SpanExporter)
+                .forEach(component -> tracer.addExporter((SpanExporter) component));
+    }
+
+    /**
+     * Create the {@link RouteMetrics} component when apix.metrics.routes.enabled is true
+     *
+     * @param properties application properties
+     */
+    private void createRouteMetrics(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.ROUTE_METRICS_ENABLED), Boolean.class, false)) {
+            return;
+        }
+        routeMetrics = new RouteMetrics(ClassUtil.valueOf(properties.getProperty(PropertyKeys.ROUTE_METRICS_SAMPLE_RATE), Double.class, RouteMetrics.DEFAULT_SAMPLE_RATE));
+        apixContainer.addComponent(RouteMetrics.class, routeMetrics);
+    }
+
+    /**
+     * Expose the {@link RouteMetrics} as JSON on apix.metrics.routes.path, if both are set
+     *
+     * @param router
+     */
+    private void createRouteMetricsEndpoint(Router router) {
+        String path = apixProperties.getApplicationProperties().getProperty(PropertyKeys.ROUTE_METRICS_PATH);
+        if (routeMetrics == null || path == null || path.trim().isEmpty()) {
+            return;
+        }
+        router.get(path.trim()).handler(routingContext -> routingContext.json(routeMetrics.toJson()));
+        ConsoleLog.trace("Route metrics endpoint: " + path.trim());
+    }
+
+    /**
+     * Create the {@link TrafficCapture} component when apix.capture.enabled is true, it records once the server listens
+     *
+     * @param properties application properties
+     */
+    private void createTrafficCapture(Properties properties) {
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.CAPTURE_ENABLED), Boolean.class, false)) {
+            return;
+        }
+        trafficCapture = new TrafficCapture(vertx,
+                properties.getProperty(PropertyKeys.CAPTURE_FILE, TrafficCapture.DEFAULT_FILE).trim(),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.CAPTURE_SAMPLE_RATE), Double.class, TrafficCapture.DEFAULT_SAMPLE_RATE),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.CAPTURE_MAX_SIZE), Long.class, TrafficCapture.DEFAULT_MAX_SIZE),
+                ClassUtil.valueOf(properties.getProperty(PropertyKeys.CAPTURE_MAX_BODY_SIZE), Integer.class, TrafficCapture.DEFAULT_MAX_BODY_SIZE),
+                Arrays.asList(properties.getProperty(PropertyKeys.CAPTURE_HEADERS, TrafficCapture.DEFAULT_HEADERS).split(",")));
+        apixContainer.addComponent(TrafficCapture.class, trafficCapture);
+    }
+
+    /**
+     * @return routes created for the controller mapping methods
+     */
+    public static List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(getInstance().endpoints);
+    }
+
+    private void finishBootReport() {
+        bootReport.setComponents(apixContainer.getCreationTimes(), apixContainer.getPostConstructTimes());
+        bootReport.finish();
+        ConsoleLog.info(bootReport.toString());
+    }
+
+    /**
+     * @return timing of the startup: phases, components, scanned and loaded classes, routes. Not finished until the server listens
+     */
+    public static JsonObject getBootReport() {
+        return getInstance().bootReport.toJson();
+    }
+
+    /**
+     * Run the callable on a new virtual thread, one thread per call: {@link PostConstruct} methods of a component run one after the other,
+     * those of independent components may run at the same time, like on worker threads
+     *
+     * @param callable task to run
+     * @return future of the result, completed (or failed, errors included) on the calling context
+     */
+    private Future<Object> runOnVirtualThread(Callable<Object> callable) {
+        Context context = vertx.getOrCreateContext();
+        Promise<Object> promise = Promise.promise();
+        VirtualThreads.start(() -> {
+            try {
+                Object result = callable.call();
+                context.runOnContext(v -> promise.complete(result));
+            } catch (Throwable throwable) {
+                context.runOnContext(v -> promise.fail(throwable));
+            }
+        });
+        return promise.future();
+    }
+
+    /**
+     * Register an event bus consumer for every component method annotated with {@link EventBusConsumer}
+     */
+    private void createEventBusConsumers() {
+        Collection<Object> components = apixContainer.getComponents().values();
+        int consumers = 0;
+        for (Object component : components) {
+            for (Method method : ClassUtil.getOwnAndInheritedAnnotatedMethods(component.getClass(), EventBusConsumer.class)) {
+                EventBusConsumer eventBusConsumer = method.getAnnotation(EventBusConsumer.class);
+                vertx.eventBus()
+                        .consumer(eventBusConsumer.address(), new EventBusConsumerHandler(vertx, component, method, apixContainer.getInjectableComponents(), tracer))
+                        .setMaxBufferedMessages(eventBusConsumer.maxBuffered());
+                consumers++;
+                ConsoleLog.trace("Event bus consumer: " + eventBusConsumer.address() + " -> " + component.getClass().getName() + "." + method.getName());
+            }
+        }
+        if (consumers > 0) {
+            ConsoleLog.trace("Event bus consumers: (" + consumers + ") found");
+        }
+    }
+
     /**
      * Create interceptor (front controller) if a class annotate with {@link Interceptor} and inherit {@link mtk.apix.util.ApixInterceptor} is present
      *
@@ -205,15 +796,43 @@ public class Apix {
         Map.Entry<Class<?>, Object> interceptor = apixContainer.getInterceptor();
         ConsoleLog.trace("Interceptor: " + (interceptor != null ? interceptor.getKey().getName() : "none"));
         if (interceptor != null) {
-            router.route().handler(routingContext -> {
+            interceptorHandler = routingContext -> {
+                Span span = Trace.of(routingContext).span("interceptor");
                 try {
                     Method interceptMethod = interceptor.getKey().getMethod("intercept", RoutingContext.class);
                     interceptMethod.invoke(interceptor.getValue(), routingContext);
                 } catch (Exception e) {
                     throw new RuntimeException(e);
+                } finally {
+                    span.end();
                 }
-            });
+            };
+            router.route().handler(interceptorHandler);
+        }
+    }
+
+    /**
+     * Create the batch endpoint if enabled in properties ({@link PropertyKeys#BATCH_ENABLED}).
+     * It executes many sub-requests in one http request, see {@link BatchRequestHandler}
+     *
+     * @param router
+     */
+    private void createBatchEndpoint(Router router) {
+        Properties properties = apixProperties.getApplicationProperties();
+        if (!ClassUtil.valueOf(properties.getProperty(PropertyKeys.BATCH_ENABLED), Boolean.class, false)) {
+            return;
         }
+        String path = properties.getProperty(PropertyKeys.BATCH_PATH, BatchRequestHandler.DEFAULT_PATH);
+        int parallelism = ClassUtil.valueOf(properties.getProperty(PropertyKeys.BATCH_PARALLELISM), Integer.class, BatchRequestHandler.DEFAULT_PARALLELISM);
+        int maxRequests = ClassUtil.valueOf(properties.getProperty(PropertyKeys.BATCH_MAX_REQUESTS), Integer.class, BatchRequestHandler.DEFAULT_MAX_REQUESTS);
+        // the controller advice is created after the endpoints
+        Handler<RoutingContext> errorHandler = routingContext -> {
+            if (controllerAdviceHandler != null) {
+                controllerAdviceHandler.handle(routingContext);
+            }
+        };
+        router.post(path).handler(new BatchRequestHandler(path, parallelism, maxRequests, endpoints, interceptorHandler, errorHandler));
+        ConsoleLog.trace("Batch endpoint: " + path + " (parallelism: " + parallelism + ")");
     }
 
     /**
@@ -224,7 +843,7 @@ public class Apix {
      */
     private void createEndpoints(Router router) {
         List<Object> controllers = apixContainer.getRestControllers();
-        List<Object> components = Collections.singletonList(apixContainer.getComponents().values());
+        List<Object> components = Collections.singletonList(apixContainer.getInjectableComponents());
         int validCreatedEndpoint = 0;
         for (Object controller : controllers) {
             Method[] apiMethods = controller.getClass().getDeclaredMethods();
@@ -232,44 +851,47 @@ public class Apix {
             for (Method method : apiMethods) {
                 if (ClassUtil.isMethodAnnotatedWithAny(method, ApixContainer.httpMethodAnnotation)) {
                     Parameter[] parameters = method.getParameters();
+                    if (method.isAnnotationPresent(Coalesce.class) && (!method.isAnnotationPresent(GetMapping.class) || method.getReturnType() == void.class)) {
+                        throw new RuntimeException("Can't create endpoint for method '" + method.getName() + "', cause: @Coalesce needs a @GetMapping method returning the response value.");
+                    }
+                    if (method.isAnnotationPresent(SparseFields.class) && method.getReturnType() == void.class) {
+                        throw new RuntimeException("Can't create endpoint for method '" + method.getName() + "', cause: @SparseFields needs a method returning the response value.");
+                    }
                     if (parameters.length > 0 && ClassUtil.contains(parameters, RoutingContext.class)) {
                         if (method.isAnnotationPresent(PostMapping.class)) {
                             validCreatedEndpoint++;
                             Arrays.asList(method.getAnnotation(PostMapping.class).value()).forEach(endPoint -> {
-                                router.post(endpointPrefix + endPoint)
-                                        .consumes(method.getAnnotation(PostMapping.class).consume())
-                                        .produces(method.getAnnotation(PostMapping.class).produce())
-                                        .handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, components));
+                                Endpoint endpoint = new Endpoint(HttpMethod.POST, endpointPrefix + endPoint, controller, method, method.getAnnotation(PostMapping.class).consume(), method.getAnnotation(PostMapping.class).produce());
+                                endpoints.add(endpoint);
+                                handle(rateLimit(mediaTypes(router.post(endpoint.getPath()), endpoint), endpoint),
+                                        endpoint, createHandler(endpoint, method.getAnnotation(PostMapping.class).timeout(), components));
                             });
                         }
                         if (method.isAnnotationPresent(DeleteMapping.class)) {
                             validCreatedEndpoint++;
                             Arrays.asList(method.getAnnotation(DeleteMapping.class).value()).forEach(endPoint -> {
-                                router.delete(endpointPrefix + endPoint)
-                                        .consumes(method.getAnnotation(DeleteMapping.class).consume())
-                                        .produces(method.getAnnotation(DeleteMapping.class).produce())
-                                        .handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, components));
+                                Endpoint endpoint = new Endpoint(HttpMethod.DELETE, endpointPrefix + endPoint, controller, method, method.getAnnotation(DeleteMapping.class).consume(), method.getAnnotation(DeleteMapping.class).produce());
+                                endpoints.add(endpoint);
+                                handle(rateLimit(mediaTypes(router.delete(endpoint.getPath()), endpoint), endpoint),
+                                        endpoint, createHandler(endpoint, method.getAnnotation(DeleteMapping.class).timeout(), components));
                             });
                         }
                         if (method.isAnnotationPresent(PutMapping.class)) {
                             validCreatedEndpoint++;
                             Arrays.asList(method.getAnnotation(PutMapping.class).value()).forEach(endPoint -> {
-                                router.put(endpointPrefix + endPoint)
-                                        .consumes(method.getAnnotation(PutMapping.class).consume())
-                                        .produces(method.getAnnotation(PutMapping.class).produce())
-                                        .handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, components));
+                                Endpoint endpoint = new Endpoint(HttpMethod.PUT, endpointPrefix + endPoint, controller, method, method.getAnnotation(PutMapping.class).consume(), method.getAnnotation(PutMapping.class).produce());
+                                endpoints.add(endpoint);
+                                handle(rateLimit(mediaTypes(router.put(endpoint.getPath()), endpoint), endpoint),
+                                        endpoint, createHandler(endpoint, method.getAnnotation(PutMapping.class).timeout(), components));
                             });
                         }
                         if (method.isAnnotationPresent(GetMapping.class)) {
                             validCreatedEndpoint++;
                             Arrays.asList(method.getAnnotation(GetMapping.class).value()).forEach(endPoint -> {
-                                Route route = router.get(endpointPrefix + endPoint);
-                                String consume = method.getAnnotation(GetMapping.class).consume();
-                                if (!consume.isEmpty()) {
-                                    route.consumes(consume);
-                                }
-                                route.produces(method.getAnnotation(GetMapping.class).produce());
-                                route.handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, components));
+                                Endpoint endpoint = new Endpoint(HttpMethod.GET, endpointPrefix + endPoint, controller, method, method.getAnnotation(GetMapping.class).consume(), method.getAnnotation(GetMapping.class).produce());
+                                endpoints.add(endpoint);
+                                handle(rateLimit(mediaTypes(router.get(endpoint.getPath()), endpoint), endpoint),
+                                        endpoint, createHandler(endpoint, method.getAnnotation(GetMapping.class).timeout(), components));
                             });
                         }
                     } else {
@@ -285,6 +907,200 @@ public class Apix {
         ConsoleLog.trace("Controllers: (" + controllers.size() + ") found, httpMethod: (" + validCreatedEndpoint + ") found");
     }
 
+    /**
+     * Set the consumed and produced types of the route, the comma separated types of the mapping annotation are matched against Content-Type and Accept
+     * A GET route consumes any type unless its consumed types are given
+     *
+     * @param route    route of the endpoint
+     * @param endpoint route of the controller method
+     * @return the route
+     * @throws IllegalArgumentException if the codec of a binary type isn't in the classpath
+     */
+    private Route mediaTypes(Route route, Endpoint endpoint) {
+        ContentCodec.checkAvailable(endpoint.getConsume());
+        ContentCodec.checkAvailable(endpoint.getProduce());
+        if (endpoint.getHttpMethod() != HttpMethod.GET || !endpoint.getConsume().isEmpty()) {
+            for (String consume : endpoint.getConsume().split(",")) {
+                route.consumes(consume.trim());
+            }
+        }
+        for (String produce : endpoint.getProduce().split(",")) {
+            route.produces(produce.trim());
+        }
+        return route;
+    }
+
+    /**
+     * Add the {@link RateLimiter} of the endpoint to its route, if it has one
+     *
+     * @param route    route of the endpoint
+     * @param endpoint route of the controller method
+     * @return the route
+     */
+    private Route rateLimit(Route route, Endpoint endpoint) {
+        RateLimiter rateLimiter = rateLimiterRegistry != null ? rateLimiterRegistry.get(endpoint) : null;
+        return rateLimiter != null ? handle(route, endpoint, rateLimiter) : route;
+    }
+
+    /**
+     * Add a handler to the route, and to the endpoint for the batch sub-requests dispatched in process
+     *
+     * @param route    route of the endpoint
+     * @param endpoint route of the controller method
+     * @param handler  route handler
+     * @return the route
+     */
+    private Route handle(Route route, Endpoint endpoint, Handler<RoutingContext> handler) {
+        endpoint.addHandler(handler);
+        return route.handler(handler);
+    }
+
+    /**
+     * Create the handler invoking the given controller method.
+     * The value returned by the method, if any, is written in the response by {@link ResponseWriter}, encoded by the {@link ContentCodec} negotiated with the Accept header
+     * Method annotated with {@link Coalesce} share its execution between identical concurrent requests
+     * Method annotated with {@link SparseFields} write only the fields of the query param, see {@link FieldProjection}
+     * In virtual threads execution mode, the method runs on a virtual thread and the response is written on the request context
+     * With a timeout, a {@link Deadline} is started for each request and the returned Future is bound to it:
+     * the response is ended with the timeout status when the deadline passes, even if the method is still running
+     * When {@link RouteMetrics} are enabled, the CPU time and allocations of a sample of the invocations are measured
+     *
+     * @param endpoint   route of the controller method
+     * @param timeout    timeout of the mapping annotation, -1 for the global timeout
+     * @param components dependencies usable as method parameters
+     * @return route handler
+     */
+    private Handler<RoutingContext> createHandler(Endpoint endpoint, long timeout, List<Object> components) {
+        Object controller = endpoint.getController();
+        Method method = endpoint.getMethod();
+        String produce = endpoint.getProduce();
+        Function<RoutingContext, Object> call = routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, components);
+        Function<RoutingContext, Object> invocation = routeMetrics != null ? routeMetrics.measure(endpoint, call) : call;
+        Function<RoutingContext, Object> invoker = virtualThreads ? onVirtualThread(invocation) : invocation;
+        Function<RoutingContext, Object> bounded = routingContext -> {
+            Object result = invoker.apply(routingContext);
+            return result instanceof Future ? Deadline.of(routingContext).bind((Future<Object>) result) : result;
+        };
+        String fieldsParam = method.isAnnotationPresent(SparseFields.class) ? method.getAnnotation(SparseFields.class).param() : null;
+        Function<RoutingContext, FieldProjection> projection = routingContext -> fieldsParam != null ? FieldProjection.of(routingContext.request().getParam(fieldsParam)) : null;
+        Handler<RoutingContext> handler;
+        if (method.isAnnotationPresent(Coalesce.class)) {
+            RequestCoalescer coalescer = new RequestCoalescer(method.getAnnotation(Coalesce.class).key());
+            handler = routingContext -> coalescer.handle(routingContext, () -> bounded.apply(routingContext), ContentCodec.negotiate(routingContext, produce), projection.apply(routingContext));
+        } else {
+            handler = routingContext -> ResponseWriter.write(routingContext, bounded.apply(routingContext), ContentCodec.negotiate(routingContext, produce), projection.apply(routingContext));
+        }
+        long timeoutMillis = timeout < 0 ? requestTimeout : timeout;
+        if (timeoutMillis <= 0) {
+            return handler;
+        }
+        return routingContext -> {
+            Deadline.start(vertx, routingContext, timeoutMillis, timeoutStatus);
+            handler.handle(routingContext);
+        };
+    }
+
+    /**
+     * Run the given invocation on a virtual thread, its result (or failure) is given back on the context of the request
+     *
+     * @param invocation controller method invocation
+     * @return invocation giving a Future of the result
+     */
+    private Function<RoutingContext, Object> onVirtualThread(Function<RoutingContext, Object> invocation) {
+        return routingContext -> {
+            Context context = vertx.getOrCreateContext();
+            Promise<Object> promise = Promise.promise();
+            Trace trace = Trace.of(routingContext);
+            VirtualThreads.start(() -> {
+                // virtual threads have no vertx context, Trace.current() uses the thread
+                Trace.attach(trace);
+                try {
+                    Object result = invocation.apply(routingContext);
+                    context.runOnContext(v -> promise.complete(result));
+                } catch (Throwable throwable) {
+                    // unwrapped, ResponseWriter wraps it again like a synchronous failure
+                    Throwable cause = throwable instanceof RuntimeException && throwable.getCause() instanceof InvocationTargetException ? throwable.getCause().getCause() : throwable;
+                    context.runOnContext(v -> promise.fail(cause));
+                } finally {
+                    Trace.attach(null);
+                }
+            });
+            return promise.future().compose(result -> result instanceof Future ? (Future<Object>) result : Future.succeededFuture(result));
+        };
+    }
+
+    /**
+     * Create WebSocket and Server-Sent Events endpoints according to methods annotated with {@link WebSocketMapping} and {@link SseMapping}
+     * The method is invoked once the connection is open, the session is available as parameter
+     *
+     * @param router
+     */
+    private void createPushEndpoints(Router router) {
+        TopicBroadcaster broadcaster = (TopicBroadcaster) apixContainer.getComponent(TopicBroadcaster.class);
+        Collection<Object> components = apixContainer.getInjectableComponents();
+        int pushEndpoints = 0;
+        for (Object controller : apixContainer.getRestControllers()) {
+            String endpointPrefix = controller.getClass().getAnnotation(RestController.class).prefix();
+            for (Method method : controller.getClass().getDeclaredMethods()) {
+                if (method.isAnnotationPresent(WebSocketMapping.class)) {
+                    pushEndpoints++;
+                    WebSocketMapping mapping = method.getAnnotation(WebSocketMapping.class);
+                    Arrays.asList(mapping.value()).forEach(endPoint -> router.get(endpointPrefix + endPoint).handler(routingContext ->
+                            routingContext.request().toWebSocket()
+                                    .onSuccess(webSocket -> {
+                                        WebSocketSession session = new WebSocketSession(webSocket, broadcaster, mapping.slowConsumer(), mapping.maxQueuedBytes());
+                                        ClassUtil.invokeHttpMethod(controller, method, routingContext, Arrays.asList(session, components));
+                                    })
+                                    .onFailure(throwable -> {
+                                        if (!routingContext.response().ended())
+                                            routingContext.response().setStatusCode(400).end(throwable.getMessage());
+                                    })));
+                }
+                if (method.isAnnotationPresent(SseMapping.class)) {
+                    pushEndpoints++;
+                    SseMapping mapping = method.getAnnotation(SseMapping.class);
+                    Arrays.asList(mapping.value()).forEach(endPoint -> router.get(endpointPrefix + endPoint).handler(routingContext -> {
+                        SseSession session = new SseSession(routingContext.response(), broadcaster, mapping.slowConsumer(), mapping.maxQueuedBytes());
+                        ClassUtil.invokeHttpMethod(controller, method, routingContext, Arrays.asList(session, components));
+                    }));
+                }
+            }
+        }
+        if (pushEndpoints > 0) {
+            ConsoleLog.trace("Push endpoints (WebSocket, SSE): (" + pushEndpoints + ") found");
+        }
+    }
+
+    /**
+     * Serve the files of a directory if the main class is annotated with {@link StaticResources} or if {@link PropertyKeys#STATIC_DIR} is set, see {@link StaticResourceHandler}
+     *
+     * @param router
+     */
+    private void createStaticResources(Router router) {
+        String path;
+        String dir;
+        long maxAge;
+        long cacheMaxFileSize;
+        Properties properties = apixProperties.getApplicationProperties();
+        if (mainClass.isAnnotationPresent(StaticResources.class)) {
+            StaticResources staticResources = mainClass.getAnnotation(StaticResources.class);
+            path = staticResources.path();
+            dir = staticResources.dir();
+            maxAge = staticResources.maxAge();
+            cacheMaxFileSize = staticResources.cacheMaxFileSize();
+        } else if (properties.containsKey(PropertyKeys.STATIC_DIR)) {
+            path = properties.getProperty(PropertyKeys.STATIC_PATH, StaticResourceHandler.DEFAULT_PATH);
+            dir = properties.getProperty(PropertyKeys.STATIC_DIR);
+            maxAge = ClassUtil.valueOf(properties.getProperty(PropertyKeys.STATIC_MAX_AGE), Long.class, StaticResourceHandler.DEFAULT_MAX_AGE);
+            cacheMaxFileSize = ClassUtil.valueOf(properties.getProperty(PropertyKeys.STATIC_CACHE_MAX_FILE_SIZE), Long.class, StaticResourceHandler.DEFAULT_CACHE_MAX_FILE_SIZE);
+        } else {
+            return;
+        }
+        StaticResourceHandler handler = new StaticResourceHandler(vertx, (CacheManager) apixContainer.getComponent(CacheManager.class), path, dir, maxAge, cacheMaxFileSize);
+        router.route((path.endsWith("/") ? path : path + "/") + "*").handler(handler);
+        ConsoleLog.trace("Static resources: " + path + " -> " + dir);
+    }
+
     /**
      * Default endpoint is method annotated with {@link DefaultMapping} wrapped in a Class annotated with {@link RestController}
      * At least, method must have one argument and must have class inherit from {@link RoutingContext}
@@ -299,7 +1115,7 @@ public class Apix {
                     Parameter[] parameters = method.getParameters();
                     if (parameters.length > 0 && ClassUtil.contains(parameters, RoutingContext.class)) {
                         router.route().produces(method.getAnnotation(DefaultMapping.class).produce())
-                                .handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, Collections.singletonList(apixContainer.getComponents().values())));
+                                .handler(routingContext -> ClassUtil.invokeHttpMethod(controller, method, routingContext, Collections.singletonList(apixContainer.getInjectableComponents())));
                         ConsoleLog.trace("Default endpoint: " + controller.getClass().getName() + "." + method.getName());
                         return;
                     }
@@ -320,10 +1136,11 @@ public class Apix {
         List<Object> controllersAdvice = apixContainer.getControllersAdvice();
         ConsoleLog.trace("ControllersAdvices : (" + controllersAdvice.size() + ") found");
         if (!controllersAdvice.isEmpty()) {
-            router.errorHandler(500, routingContext -> {
+            controllerAdviceHandler = routingContext -> {
                 try {
                     Throwable cause = routingContext.failure().getCause().getCause();
-                    List<Object> finalDependencies = new ArrayList<>(apixContainer.getComponents().values());
+                    List<Object> finalDependencies = new ArrayList<>();
+                    finalDependencies.add(apixContainer.getInjectableComponents());
                     finalDependencies.add(cause);
                     finalDependencies.add(routingContext);
                     for (Object controller : controllersAdvice) {
@@ -351,7 +1168,8 @@ public class Apix {
                     if (!routingContext.response().ended())
                         routingContext.response().end(routingContext.failure().getMessage());
                 }
-            });
+            };
+            router.errorHandler(500, controllerAdviceHandler);
         }
     }
 
@@ -377,6 +1195,33 @@ public class Apix {
         }
     }
 
+    /**
+     * Read the global request timeout ({@link PropertyKeys#REQUEST_TIMEOUT}, 0 for none) and the status of timed out responses ({@link PropertyKeys#REQUEST_TIMEOUT_STATUS}, 503 or 504)
+     *
+     * @param properties
+     */
+    private void initRequestTimeout(Properties properties) {
+        requestTimeout = Math.max(0, ClassUtil.valueOf(properties.getProperty(PropertyKeys.REQUEST_TIMEOUT), Long.class, 0L));
+        timeoutStatus = ClassUtil.valueOf(properties.getProperty(PropertyKeys.REQUEST_TIMEOUT_STATUS), Integer.class, 503) == 504 ? 504 : 503;
+    }
+
+    /**
+     * Select the execution mode of controllers ({@link PropertyKeys#EXECUTION_MODE}).
+     * Virtual threads mode falls back to event loop mode if the JVM doesn't support virtual threads (before Java 21)
+     *
+     * @param properties
+     */
+    private void initExecutionMode(Properties properties) {
+        if (properties != null && VIRTUAL_THREADS_EXECUTION.equals(properties.getProperty(PropertyKeys.EXECUTION_MODE))) {
+            virtualThreads = VirtualThreads.isSupported();
+            if (virtualThreads) {
+                ConsoleLog.trace("Execution mode: virtual threads");
+            } else {
+                ConsoleLog.warn("Virtual threads need Java 21 or later, controllers will run on the event loop");
+            }
+        }
+    }
+
     private void showLog(Properties properties) {
         if (properties != null && properties.containsKey(PropertyKeys.SHOW_LOG)) {
             try {
@@ -410,7 +1255,7 @@ public class Apix {
     }
 
     public static <T> T getBean(Class<T> beanClass) {
-        return (T) getInstance().apixContainer.getComponent(beanClass);
+        return (T) getInstance().apixContainer.getInjectableComponent(beanClass);
     }
 
     public static Properties getProperties() {
@@ -1,7 +1,17 @@
 package mtk.apix;
 
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import mtk.apix.annotation.*;
+import mtk.apix.cache.CacheManager;
+import mtk.apix.client.HttpClientManager;
+import mtk.apix.client.HttpClientProxy;
+import mtk.apix.constant.PropertyKeys;
 import mtk.apix.exception.DependencyException;
+import mtk.apix.metrics.BootReport;
+import mtk.apix.proxy.ComponentProxy;
+import mtk.apix.proxy.LazyProxy;
 import mtk.apix.util.ApixInterceptor;
 import mtk.apix.util.ClassUtil;
 import mtk.apix.util.ConsoleLog;
@@ -11,21 +21,38 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class which manages and contains all class components.
  * - Component creation
  * - Dependency injection
  * - {@link Value} injection
+ * - {@link Lazy} components, created on first use
  *
  * @author mahatoky rasolonirina
  */
 @SuppressWarnings("unchecked")
 class ApixContainer {
 
-    private final Map<Class<?>, Object> components = new HashMap<>();
+    private final Map<Class<?>, Object> components = new LinkedHashMap<>();
+    private final Map<Class<?>, Object> proxies = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LazyComponent> lazyComponents = new LinkedHashMap<>();
+    private final List<Object> createdLazyComponents = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, Long> creationTimes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Long> postConstructTimes = new ConcurrentHashMap<>();
+    private final InjectableComponents injectableComponents = new InjectableComponents();
     private Properties applicationProperties = new Properties();
+    private boolean lazyInit;
     public static Class<? extends Annotation>[] componentsAnnotations;
     public static Class<? extends Annotation>[] controllerAnnotations;
     public static Class<? extends Annotation>[] httpMethodAnnotation;
@@ -46,11 +73,38 @@ class ApixContainer {
      *
      * @param mainClass   to locate appropriate properties according to his ClassLoader
      * @param environment to select what application properties use
+     * @param bootReport  to time the phases of the initialization
      */
-    public void init(Class<?> mainClass, Properties properties, Environment environment) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+    public void init(Class<?> mainClass, Properties properties, Environment environment, BootReport bootReport) throws InstantiationException, IllegalAccessException, InvocationTargetException {
         this.applicationProperties = properties;
+        this.lazyInit = ClassUtil.valueOf(properties != null ? properties.getProperty(PropertyKeys.LAZY_INIT) : null, Boolean.class, false);
+        BootReport.Phase phase = bootReport.start("http clients");
+        createHttpClients(mainClass, getBasePackage(mainClass));
+        phase.end();
+        phase = bootReport.start("components");
         initAllComponents(mainClass, getBasePackage(mainClass));
+        phase.end();
+        phase = bootReport.start("values");
         fillComponentsFieldsMarkedWithValue();
+        phase.end();
+        bootReport.setScannedClasses(ClassUtil.getScannedClassCount());
+    }
+
+    /**
+     * Create the implementation of every interface annotated with {@link HttpClient} and store it in {@link #components}, so components can inject it
+     *
+     * @param mainClass
+     * @param basePackage
+     */
+    private void createHttpClients(Class<?> mainClass, String basePackage) {
+        Set<Class<?>> clientInterfaces = ClassUtil.getAnnotatedClass(mainClass, basePackage, HttpClient.class);
+        if (clientInterfaces.isEmpty())
+            return;
+        HttpClientManager clientManager = (HttpClientManager) getComponent(HttpClientManager.class);
+        for (Class<?> clientInterface : clientInterfaces) {
+            components.put(clientInterface, HttpClientProxy.create(clientInterface, clientManager, applicationProperties));
+        }
+        ConsoleLog.trace("Http clients: (" + clientInterfaces.size() + ") found");
     }
 
     /**
@@ -58,6 +112,8 @@ class ApixContainer {
      * Inject all autowired fields
      * Inject all fields marked with {@link Value}
      * Save every created instance in {@link #components}
+     * Components are created by waves: the components whose dependencies are all created form a wave and are created in parallel
+     * Lazy components are only registered, see {@link #isLazy(Class)}
      *
      * @param basePackage
      * @throws InstantiationException
@@ -68,44 +124,68 @@ class ApixContainer {
         if (componentsClasses.isEmpty())
             return;
         Set<Class<?>> tempComponentsClasses = new HashSet<>(componentsClasses);
-        boolean isCyclicDependency;
+        for (Class<?> componentClass : componentsClasses) {
+            if (isLazy(componentClass)) {
+                lazyComponents.put(componentClass, new LazyComponent(componentClass));
+                tempComponentsClasses.remove(componentClass);
+            }
+        }
+        int waves = 0;
 
         while (!tempComponentsClasses.isEmpty()) {
-            isCyclicDependency = true;
-
-            for (Iterator<Class<?>> iterator = tempComponentsClasses.iterator(); iterator.hasNext(); ) {
-                Class<?> componentClass = iterator.next();
-                if (isComponentReadyForInstantiation(componentClass)) {
-                    Object objectInstance = componentClass.newInstance();
-                    instantiateAllAutowiredFields(objectInstance);
-                    runAllConfigurationBeanCreation(objectInstance);
-                    components.put(componentClass, objectInstance);
-                    iterator.remove();
-                    isCyclicDependency = false;
-                }
+            List<Class<?>> wave = tempComponentsClasses.stream().filter(this::isComponentReadyForInstantiation).collect(Collectors.toList());
+            if (wave.isEmpty()) {
+                throw new DependencyException("Bean or component not found or cyclic dependency. Please annotate your class as component or annotate your method with @Bean to consider the result as a component");
             }
 
-            if (isCyclicDependency) {
-                throw new DependencyException("Bean or component not found or cyclic dependency. Please annotate your class as component or annotate your method with @Bean to consider the result as a component");
+            // instances only read the container while the wave is created, they are stored once the whole wave is created
+            List<CreatedComponent> createdComponents = (wave.size() > 1 ? wave.parallelStream() : wave.stream())
+                    .map(this::createComponent)
+                    .collect(Collectors.toList());
+            for (CreatedComponent created : createdComponents) {
+                created.beans.forEach(components::putIfAbsent);
+                components.put(created.componentClass, created.instance);
+                createProxy(created.componentClass, created.instance);
+                tempComponentsClasses.remove(created.componentClass);
             }
+            waves++;
+        }
+        ConsoleLog.trace("Components: (" + (componentsClasses.size() - lazyComponents.size()) + ") created in " + waves + " wave(s), (" + lazyComponents.size() + ") lazy");
+    }
+
+    private CreatedComponent createComponent(Class<?> componentClass) {
+        long start = System.nanoTime();
+        try {
+            Object objectInstance = componentClass.newInstance();
+            instantiateAllAutowiredFields(objectInstance);
+            Map<Class<?>, Object> beans = runAllConfigurationBeanCreation(objectInstance);
+            creationTimes.put(componentClass, System.nanoTime() - start);
+            return new CreatedComponent(componentClass, objectInstance, beans);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new DependencyException(e);
         }
     }
 
     /**
      * A component is ready if:
      * - no autowired fields
-     * - or all autowired fields are available in {@link #components}
+     * - or all autowired fields are available in {@link #components}, resolved on first use, or lazy components which can be created
      *
      * @param componentClass
      * @return
      */
     private boolean isComponentReadyForInstantiation(Class<?> componentClass) {
-        List<Field> autowiredFields = ClassUtil.getOwnAndInheritedAnnotatedFields(componentClass, Autowired.class);
-        if (autowiredFields.isEmpty()) {
-            return true;
-        }
-        for (Field field : autowiredFields) {
-            if (getComponent(field.getType()) == null) {
+        return areDependenciesAvailable(componentClass, new HashSet<>());
+    }
+
+    private boolean areDependenciesAvailable(Class<?> componentClass, Set<Class<?>> visited) {
+        visited.add(componentClass);
+        for (Field field : ClassUtil.getOwnAndInheritedAnnotatedFields(componentClass, Autowired.class)) {
+            if (getComponent(field.getType()) != null || isResolvedOnFirstUse(field)) {
+                continue;
+            }
+            LazyComponent lazyComponent = findLazyComponent(field.getType());
+            if (lazyComponent == null || visited.contains(lazyComponent.componentClass) || !areDependenciesAvailable(lazyComponent.componentClass, visited)) {
                 System.out.println(componentClass + " not ready because " + field.getType() + " not ready");
                 return false;
             }
@@ -113,6 +193,125 @@ class ApixContainer {
         return true;
     }
 
+    /**
+     * Controllers, interceptors, configurations and event bus consumers are always created at startup.
+     * Other components are lazy when annotated with {@link Lazy}, or in apix.lazy-init mode unless annotated with @Lazy(false)
+     *
+     * @param componentClass
+     * @return
+     */
+    private boolean isLazy(Class<?> componentClass) {
+        if (ClassUtil.isClassAnnotatedWithAny(componentClass, RestController.class, RestControllerAdvice.class, Interceptor.class, Configuration.class)
+                || !ClassUtil.getOwnAndInheritedAnnotatedMethods(componentClass, EventBusConsumer.class).isEmpty()) {
+            return false;
+        }
+        return componentClass.isAnnotationPresent(Lazy.class) ? componentClass.getAnnotation(Lazy.class).value() : lazyInit;
+    }
+
+    /**
+     * An autowired field is resolved on first use if its type is Supplier, or if it is an interface and the field is annotated with {@link Lazy}
+     * (or the dependency is a lazy component)
+     *
+     * @param field
+     * @return
+     */
+    private boolean isResolvedOnFirstUse(Field field) {
+        if (field.getType() == Supplier.class) {
+            return true;
+        }
+        boolean lazy = field.isAnnotationPresent(Lazy.class)
+                ? field.getAnnotation(Lazy.class).value()
+                : getComponent(field.getType()) == null && findLazyComponent(field.getType()) != null;
+        return lazy && field.getType().isInterface();
+    }
+
+    /**
+     * @param field autowired field resolved on first use
+     * @return memoized Supplier or {@link LazyProxy} giving the dependency
+     */
+    private Object createLazyReference(Field field) {
+        if (field.getType() == Supplier.class) {
+            Type type = field.getGenericType();
+            Type argument = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : null;
+            if (argument instanceof ParameterizedType) {
+                argument = ((ParameterizedType) argument).getRawType();
+            }
+            if (!(argument instanceof Class)) {
+                throw new DependencyException("Can't inject field '" + field.getDeclaringClass().getCanonicalName() + "." + field.getName() + "', Supplier type argument must be a component class");
+            }
+            Class<?> componentClass = (Class<?>) argument;
+            return LazyProxy.memoize(() -> getRequiredComponent(componentClass));
+        }
+        return LazyProxy.create(field.getType(), () -> getRequiredComponent(field.getType()));
+    }
+
+    private Object getRequiredComponent(Class<?> componentClass) {
+        Object component = getInjectableComponent(componentClass);
+        if (component == null) {
+            throw new DependencyException("No instance of '" + componentClass.getCanonicalName() + "' found in container!");
+        }
+        return component;
+    }
+
+    /**
+     * First look for the lazy component of the given class, if none is found then we look for a child lazy component
+     *
+     * @param componentClass
+     * @return
+     */
+    private LazyComponent findLazyComponent(Class<?> componentClass) {
+        LazyComponent lazyComponent = lazyComponents.get(componentClass);
+        if (lazyComponent != null) {
+            return lazyComponent;
+        }
+        for (Map.Entry<Class<?>, LazyComponent> entry : lazyComponents.entrySet()) {
+            if (componentClass.isAssignableFrom(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create a lazy component on its first use: injection, {@link Value} fields, proxy, then {@link PostConstruct} methods.
+     * The methods run on the thread of the first use, which can be an event loop, while the container lock is held:
+     * they must not block, and a returned Future is not awaited (its failure is logged).
+     * A failing method fails the creation, the next use tries again
+     *
+     * @param componentClass
+     * @return
+     * @throws DependencyException if a {@link PostConstruct} method fails
+     */
+    private Object createLazyComponent(Class<?> componentClass) {
+        Object component = createComponent(componentClass).instance;
+        fillComponentFieldsMarkedWithValue(component);
+        long start = System.nanoTime();
+        List<Method> postConstructMethods = ClassUtil.getOwnAndInheritedAnnotatedMethods(componentClass, PostConstruct.class);
+        if (!postConstructMethods.isEmpty() && Context.isOnEventLoopThread()) {
+            ConsoleLog.warn("@PostConstruct of lazy component " + componentClass.getName() + " runs on the event loop, it must not block");
+        }
+        for (Method method : postConstructMethods) {
+            Object result;
+            try {
+                method.setAccessible(true);
+                result = ClassUtil.invokeMethod(component, method, Collections.singletonList(getInjectableComponents()));
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() instanceof InvocationTargetException ? e.getCause().getCause() : e;
+                throw new DependencyException("@PostConstruct " + componentClass.getName() + "." + method.getName() + " of lazy component failed: " + cause, cause);
+            }
+            if (result instanceof Future) {
+                ((Future<?>) result).onFailure(throwable -> ConsoleLog.error(new DependencyException("@PostConstruct " + componentClass.getName() + "." + method.getName() + " of lazy component failed: " + throwable, throwable)));
+            }
+        }
+        createProxy(componentClass, component);
+        if (!postConstructMethods.isEmpty()) {
+            postConstructTimes.put(componentClass, System.nanoTime() - start);
+        }
+        createdLazyComponents.add(component);
+        ConsoleLog.trace("Lazy component " + componentClass.getName() + " created on first use");
+        return component;
+    }
+
     /**
      * Only component class benefit from dependency injection. And only properties annotated with @Autowired are managed.
      * * Find all properties annotated with @Autowired, find instance in {@link #components} then inject instance to properties
@@ -123,7 +322,7 @@ class ApixContainer {
     private void instantiateAllAutowiredFields(Object component) {
         List<Field> objectFields = ClassUtil.getOwnAndInheritedAnnotatedFields(component.getClass(), Autowired.class);
         for (Field field : objectFields) {
-            Object autowiredComponentField = getComponent(field.getType());
+            Object autowiredComponentField = isResolvedOnFirstUse(field) ? createLazyReference(field) : getInjectableComponent(field.getType());
             if (autowiredComponentField != null) {
                 try {
                     field.setAccessible(true);
@@ -138,29 +337,118 @@ class ApixContainer {
     }
 
     /**
-     * Call all {@link #components}'methods annotated with {@link PostConstruct}
+     * Call all {@link #components}'methods annotated with {@link PostConstruct}.
+     * Methods of a component run once the methods of its dependencies are completed, independent components are initialized concurrently.
+     * A method can return a Future, the component is initialized when it completes. Failures are logged and don't stop the others
+     *
+     * @param executor runs a method invocation out of the event loop and gives its result
+     * @return future completed when all components are initialized
      */
-    public void invokeAllPostConstructComponentsMethod() {
-        for (Object component : components.values()) {
-            this.invokePostConstructMethods(component);
+    public Future<Void> invokeAllPostConstructComponentsMethod(Function<Callable<Object>, Future<Object>> executor) {
+        Map<Object, Future<Void>> initialized = new IdentityHashMap<>();
+        List<Future<Void>> all = new ArrayList<>();
+        for (Object component : new ArrayList<>(components.values())) {
+            all.add(invokePostConstructMethods(component, executor, initialized));
         }
+        return Future.join(all).mapEmpty();
     }
 
     /**
-     * Call given component methods annotated with {@link PostConstruct}
+     * Call given component methods annotated with {@link PostConstruct} after those of its dependencies
      *
      * @param component
+     * @param executor
+     * @param initialized future of the initialization of each component already started
      */
-    private void invokePostConstructMethods(Object component) {
+    private Future<Void> invokePostConstructMethods(Object component, Function<Callable<Object>, Future<Object>> executor, Map<Object, Future<Void>> initialized) {
+        Future<Void> existing = initialized.get(component);
+        if (existing != null) {
+            return existing;
+        }
+        List<Future<Void>> dependencies = new ArrayList<>();
+        for (Field field : ClassUtil.getOwnAndInheritedAnnotatedFields(component.getClass(), Autowired.class)) {
+            if (isResolvedOnFirstUse(field)) {
+                continue;
+            }
+            Object dependency = getComponent(field.getType());
+            if (dependency != null && dependency != component) {
+                dependencies.add(invokePostConstructMethods(dependency, executor, initialized));
+            }
+        }
         List<Method> postConstructMethods = ClassUtil.getOwnAndInheritedAnnotatedMethods(component.getClass(), PostConstruct.class);
-        for (Method method : postConstructMethods) {
-            try {
-                method.setAccessible(true);
-                ClassUtil.invokeMethod(component, method, Collections.singletonList(components.values()));
-            } catch (Exception e) {
-                ConsoleLog.error(e);
+        Future<Void> future = Future.join(dependencies).otherwiseEmpty().mapEmpty();
+        if (!postConstructMethods.isEmpty()) {
+            long[] start = new long[1];
+            future = future.compose(v -> {
+                start[0] = System.nanoTime();
+                Future<Void> methods = Future.succeededFuture();
+                for (Method method : postConstructMethods) {
+                    methods = methods.compose(previous -> invokePostConstructMethod(component, method, executor));
+                }
+                return methods;
+            }).onComplete(ar -> postConstructTimes.put(component.getClass(), System.nanoTime() - start[0]));
+        }
+        initialized.put(component, future);
+        return future;
+    }
+
+    private Future<Void> invokePostConstructMethod(Object component, Method method, Function<Callable<Object>, Future<Object>> executor) {
+        method.setAccessible(true);
+        return executor.apply(() -> ClassUtil.invokeMethod(component, method, Collections.singletonList(getInjectableComponents())))
+                .compose(result -> result instanceof Future ? ((Future<?>) result).mapEmpty() : Future.<Void>succeededFuture())
+                .otherwise(throwable -> {
+                    ConsoleLog.error(throwable);
+                    return null;
+                });
+    }
+
+    /**
+     * @return creation time of each component in nanoseconds (constructor, injection and beans)
+     */
+    public Map<Class<?>, Long> getCreationTimes() {
+        return Collections.unmodifiableMap(creationTimes);
+    }
+
+    /**
+     * @return time of the {@link PostConstruct} methods of each component in nanoseconds, Future included
+     */
+    public Map<Class<?>, Long> getPostConstructTimes() {
+        return Collections.unmodifiableMap(postConstructTimes);
+    }
+
+    /**
+     * Call all {@link #components}'methods (and created lazy components' methods) annotated with {@link PreDestroy}, in the reverse order of creation.
+     * A method returning a Future is awaited before the next component is destroyed, failures are logged and don't stop the others
+     *
+     * @return future completed when all components are destroyed
+     */
+    public Future<Void> invokeAllPreDestroyComponentsMethod() {
+        List<Object> instances = new ArrayList<>(components.values());
+        instances.addAll(createdLazyComponents);
+        Collections.reverse(instances);
+        Future<Void> destroyed = Future.succeededFuture();
+        for (Object component : instances) {
+            for (Method method : ClassUtil.getOwnAndInheritedAnnotatedMethods(component.getClass(), PreDestroy.class)) {
+                destroyed = destroyed.compose(v -> invokePreDestroyMethod(component, method));
+            }
+        }
+        return destroyed;
+    }
+
+    private Future<Void> invokePreDestroyMethod(Object component, Method method) {
+        try {
+            method.setAccessible(true);
+            Object result = ClassUtil.invokeMethod(component, method, Collections.singletonList(components.values()));
+            if (result instanceof Future) {
+                return ((Future<?>) result).otherwise(throwable -> {
+                    ConsoleLog.error(throwable);
+                    return null;
+                }).mapEmpty();
             }
+        } catch (Exception e) {
+            ConsoleLog.error(e);
         }
+        return Future.succeededFuture();
     }
 
     /**
@@ -221,18 +509,24 @@ class ApixContainer {
         return null;
     }
 
-    private void runAllConfigurationBeanCreation(Object configuration) {
+    /**
+     * @param configuration component
+     * @return beans created by the methods annotated with {@link Bean} if the component is a {@link Configuration}
+     */
+    private Map<Class<?>, Object> runAllConfigurationBeanCreation(Object configuration) {
+        Map<Class<?>, Object> beans = new LinkedHashMap<>();
         if (configuration.getClass().isAnnotationPresent(Configuration.class)) {
             List<Method> methods = ClassUtil.getOwnAndInheritedAnnotatedMethods(configuration.getClass(), Bean.class);
             for (Method method : methods) {
                 if (method.getReturnType() != void.class) {
                     Object bean = ClassUtil.invokeMethod(configuration, method, Collections.singletonList(components.values()));
                     if (bean != null && !components.containsKey(bean.getClass())) {
-                        components.put(bean.getClass(), bean);
+                        beans.putIfAbsent(bean.getClass(), bean);
                     }
                 }
             }
         }
+        return beans;
     }
 
     /**
@@ -255,6 +549,39 @@ class ApixContainer {
         }
     }
 
+    /**
+     * Create the proxy of the component if some of its methods are intercepted (ex: {@link Batched}, {@link Cacheable}) and store it in {@link #proxies}
+     *
+     * @param componentClass
+     * @param component
+     */
+    private void createProxy(Class<?> componentClass, Object component) {
+        Object proxy = ComponentProxy.create(component, (Vertx) getComponent(Vertx.class), (CacheManager) getComponent(CacheManager.class));
+        if (proxy != null) {
+            proxies.put(componentClass, proxy);
+        }
+    }
+
+    /**
+     * Same as {@link #getComponent(Class)} but give the proxy of the component when the given class allows it.
+     * A lazy component is created if needed
+     *
+     * @param componentClass
+     * @return
+     */
+    public Object getInjectableComponent(Class<?> componentClass) {
+        Object component = getComponent(componentClass);
+        if (component == null) {
+            LazyComponent lazyComponent = findLazyComponent(componentClass);
+            if (lazyComponent == null) {
+                return null;
+            }
+            component = lazyComponent.get();
+        }
+        Object proxy = proxies.get(component.getClass());
+        return proxy != null && componentClass.isInstance(proxy) ? proxy : component;
+    }
+
     public Properties getApplicationProperties() {
         return applicationProperties;
     }
@@ -268,6 +595,29 @@ class ApixContainer {
         return Collections.unmodifiableMap(components);
     }
 
+    /**
+     * Components usable as method parameters, resolved with {@link #getInjectableComponent(Class)} by {@link ClassUtil#findInstance}:
+     * a parameter typed by an interface gets the proxy like an autowired field, a parameter typed by the class gets the component,
+     * and a lazy component is created on first use.
+     * The collection is a view of the proxies, the components and the created lazy components
+     *
+     * @return proxies then components
+     */
+    public Collection<Object> getInjectableComponents() {
+        return injectableComponents;
+    }
+
+    /**
+     * Get all lazy components
+     *
+     * @return lazy component classes, with true if the component is created
+     */
+    public Map<Class<?>, Boolean> getLazyComponents() {
+        Map<Class<?>, Boolean> lazy = new LinkedHashMap<>();
+        lazyComponents.forEach((aClass, lazyComponent) -> lazy.put(aClass, lazyComponent.instance != null));
+        return lazy;
+    }
+
     public String getBasePackage(Class<?> mainClass) {
         if (mainClass.isAnnotationPresent(ComponentScan.class) && !mainClass.getAnnotation(ComponentScan.class).value().isEmpty()) {
             return mainClass.getAnnotation(ComponentScan.class).value();
@@ -279,4 +629,60 @@ class ApixContainer {
     public void addComponent(Class<?> aClass, Object component) {
         components.put(aClass, component);
     }
+
+    /**
+     * Lazy component, created once on first use.
+     * Creations share the lock of the container since a lazy component can create others
+     */
+    private class LazyComponent {
+        private final Class<?> componentClass;
+        private volatile Object instance;
+
+        private LazyComponent(Class<?> componentClass) {
+            this.componentClass = componentClass;
+        }
+
+        private Object get() {
+            Object created = instance;
+            if (created == null) {
+                synchronized (lazyComponents) {
+                    created = instance;
+                    if (created == null) {
+                        created = createLazyComponent(componentClass);
+                        instance = created;
+                    }
+                }
+            }
+            return created;
+        }
+    }
+
+    private class InjectableComponents extends AbstractCollection<Object> implements ClassUtil.InstanceResolver {
+        @Override
+        public Object resolve(Class<?> aClass) {
+            return getInjectableComponent(aClass);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return Stream.concat(proxies.values().stream(), Stream.concat(components.values().stream(), createdLazyComponents.stream())).iterator();
+        }
+
+        @Override
+        public int size() {
+            return proxies.size() + components.size() + createdLazyComponents.size();
+        }
+    }
+
+    private static class CreatedComponent {
+        private final Class<?> componentClass;
+        private final Object instance;
+        private final Map<Class<?>, Object> beans;
+
+        private CreatedComponent(Class<?> componentClass, Object instance, Map<Class<?>, Object> beans) {
+            this.componentClass = componentClass;
+            this.instance = instance;
+            this.beans = beans;
+        }
+    }
 }
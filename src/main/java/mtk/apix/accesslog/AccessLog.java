@@ -0,0 +1,145 @@
+package mtk.apix.accesslog;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.trace.Trace;
+import mtk.apix.util.ConsoleLog;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Access log of the requests, available as component when enabled (apix.accesslog.enabled).
+ * One entry per sampled request with the configured fields, in JSON lines or in the binary {@link AccessLogFile} format.
+ * The request thread only copies the fields at the end of the response, encoding and writing are done by the {@link AccessLogWriter} thread.
+ * To register as one of the first route handlers, after the tracer.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class AccessLog implements Handler<RoutingContext> {
+
+    public static final String DEFAULT_FILE = "apix-access.log";
+    public static final String DEFAULT_FORMAT = "json";
+    public static final double DEFAULT_SAMPLE_RATE = 1;
+    public static final String DEFAULT_FIELDS = "timestamp,method,route,status,duration,bytes,traceId";
+    public static final long DEFAULT_MAX_FILE_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 10;
+    public static final int DEFAULT_QUEUE_SIZE = 65536;
+
+    private final Vertx vertx;
+    private final String file;
+    private final String format;
+    private final double sampleRate;
+    private final Set<AccessLogEntry.Field> fields;
+    private final AccessLogWriter writer;
+    private volatile boolean active;
+
+    /**
+     * @param vertx       vertx instance
+     * @param file        access log file
+     * @param format      json or binary
+     * @param sampleRate  part of the requests to log, between 0 and 1
+     * @param fields      comma-separated fields, see {@link AccessLogEntry.Field}
+     * @param maxFileSize size of a file before rotation
+     * @param maxFiles    number of rotated files kept
+     * @param queueSize   max entries waiting to be written, entries are dropped beyond
+     * @throws IllegalArgumentException if the format or a field is unknown
+     */
+    public AccessLog(Vertx vertx, String file, String format, double sampleRate, String fields, long maxFileSize, int maxFiles, int queueSize) {
+        this.vertx = vertx;
+        this.file = file;
+        this.format = format.trim().toLowerCase();
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.fields = AccessLogEntry.Field.parse(fields);
+        Set<AccessLogEntry.Field> recorded = this.fields;
+        if ("json".equals(this.format)) {
+            writer = new AccessLogWriter(file, maxFileSize, maxFiles, Buffer.buffer(), entry -> AccessLogFile.encodeJson(entry, recorded), queueSize);
+        } else if ("binary".equals(this.format)) {
+            writer = new AccessLogWriter(file, maxFileSize, maxFiles, AccessLogFile.header(recorded), entry -> AccessLogFile.encodeBinary(entry, recorded), queueSize);
+        } else {
+            throw new IllegalArgumentException("Unknown access log format: " + format + " (json or binary)");
+        }
+    }
+
+    /**
+     * Open the file and start logging
+     *
+     * @return future completed when the access log is started
+     */
+    public Future<Void> start() {
+        return vertx.executeBlocking(() -> {
+            writer.start();
+            active = true;
+            ConsoleLog.trace("Access log: " + (sampleRate * 100) + "% of the requests in " + file + " (" + format + ")");
+            return null;
+        });
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        if (active && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            routingContext.addEndHandler(ar -> writer.offer(entry(routingContext, timestamp, (System.nanoTime() - start) / 1000)));
+        }
+        routingContext.next();
+    }
+
+    private AccessLogEntry entry(RoutingContext routingContext, long timestamp, long durationMicros) {
+        String route = null;
+        if (fields.contains(AccessLogEntry.Field.ROUTE)) {
+            Route currentRoute = routingContext.currentRoute();
+            route = currentRoute != null && currentRoute.getPath() != null ? currentRoute.getPath() : routingContext.normalizedPath();
+        }
+        Trace trace = Trace.of(routingContext);
+        return new AccessLogEntry(timestamp,
+                routingContext.request().method().name(),
+                route,
+                fields.contains(AccessLogEntry.Field.PATH) ? routingContext.request().path() : null,
+                routingContext.response().getStatusCode(),
+                durationMicros,
+                routingContext.response().bytesWritten(),
+                trace != Trace.NONE ? trace.getTraceId() : null,
+                fields.contains(AccessLogEntry.Field.REMOTE) && routingContext.request().remoteAddress() != null ? routingContext.request().remoteAddress().hostAddress() : null);
+    }
+
+    /**
+     * Stop logging, write the queued entries and close the file
+     *
+     * @return future completed when the file is closed
+     */
+    public Future<Void> close() {
+        active = false;
+        return vertx.executeBlocking(() -> {
+            writer.close();
+            return null;
+        });
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("active", active)
+                .put("file", file)
+                .put("format", format)
+                .put("sampleRate", sampleRate)
+                .put("written", writer.getWritten())
+                .put("dropped", writer.getDropped())
+                .put("queued", writer.getQueued())
+                .put("rotations", writer.getRotations());
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
@@ -0,0 +1,33 @@
+package mtk.apix.accesslog;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+
+/**
+ * Print the entries of binary access log files as JSON lines.
+ * Command line: java -cp [classpath] mtk.apix.accesslog.AccessLogDecoder [file]...
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class AccessLogDecoder {
+
+    private AccessLogDecoder() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: AccessLogDecoder [binary access log file]...");
+            return;
+        }
+        for (String file : args) {
+            Buffer content = Buffer.buffer(Files.readAllBytes(Paths.get(file)));
+            Set<AccessLogEntry.Field> fields = AccessLogFile.fields(content);
+            for (AccessLogEntry entry : AccessLogFile.read(content)) {
+                System.out.println(entry.toJson(fields).encode());
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package mtk.apix.accesslog;
+
+import io.vertx.core.json.JsonObject;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Request written by the {@link AccessLog}. Fields not recorded are null (strings) or 0.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class AccessLogEntry {
+
+    /**
+     * Fields of an entry, in the order of the binary format
+     */
+    public enum Field {
+        TIMESTAMP("timestamp"),
+        METHOD("method"),
+        ROUTE("route"),
+        PATH("path"),
+        STATUS("status"),
+        DURATION("duration"),
+        BYTES("bytes"),
+        TRACE_ID("traceId"),
+        REMOTE("remote");
+
+        private final String key;
+
+        Field(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @param keys comma-separated field keys, ex: timestamp,route,status
+         * @return the fields
+         * @throws IllegalArgumentException if a key is unknown
+         */
+        public static Set<Field> parse(String keys) {
+            Set<Field> fields = EnumSet.noneOf(Field.class);
+            for (String key : keys.split(",")) {
+                if (key.trim().isEmpty()) {
+                    continue;
+                }
+                Field found = null;
+                for (Field field : values()) {
+                    if (field.key.equalsIgnoreCase(key.trim())) {
+                        found = field;
+                    }
+                }
+                if (found == null) {
+                    throw new IllegalArgumentException("Unknown access log field: " + key.trim().toLowerCase(Locale.ROOT));
+                }
+                fields.add(found);
+            }
+            return fields;
+        }
+    }
+
+    private final long timestamp;
+    private final String method;
+    private final String route;
+    private final String path;
+    private final int status;
+    private final long durationMicros;
+    private final long bytes;
+    private final String traceId;
+    private final String remote;
+
+    /**
+     * @param timestamp      start of the request, milliseconds since the epoch
+     * @param method         http method
+     * @param route          route template, ex: /users/:id
+     * @param path           path of the request
+     * @param status         response status
+     * @param durationMicros duration of the request in microseconds
+     * @param bytes          bytes of the response
+     * @param traceId        trace id of the request, null if not traced
+     * @param remote         address of the client
+     */
+    public AccessLogEntry(long timestamp, String method, String route, String path, int status, long durationMicros, long bytes, String traceId, String remote) {
+        this.timestamp = timestamp;
+        this.method = method;
+        this.route = route;
+        this.path = path;
+        this.status = status;
+        this.durationMicros = durationMicros;
+        this.bytes = bytes;
+        this.traceId = traceId;
+        this.remote = remote;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getRemote() {
+        return remote;
+    }
+
+    /**
+     * @param fields fields to put
+     * @return the entry as JSON, duration in milliseconds
+     */
+    public JsonObject toJson(Set<Field> fields) {
+        JsonObject json = new JsonObject();
+        for (Field field : fields) {
+            switch (field) {
+                case TIMESTAMP:
+                    json.put(field.key, Instant.ofEpochMilli(timestamp).toString());
+                    break;
+                case METHOD:
+                    json.put(field.key, method);
+                    break;
+                case ROUTE:
+                    json.put(field.key, route);
+                    break;
+                case PATH:
+                    json.put(field.key, path);
+                    break;
+                case STATUS:
+                    json.put(field.key, status);
+                    break;
+                case DURATION:
+                    json.put(field.key, durationMicros / 1000.0);
+                    break;
+                case BYTES:
+                    json.put(field.key, bytes);
+                    break;
+                case TRACE_ID:
+                    json.put(field.key, traceId);
+                    break;
+                case REMOTE:
+                    json.put(field.key, remote);
+                    break;
+            }
+        }
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJson(EnumSet.allOf(Field.class)).encode();
+    }
+}
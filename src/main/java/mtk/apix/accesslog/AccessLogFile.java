@@ -0,0 +1,217 @@
+package mtk.apix.accesslog;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Formats of the access log files.
+ * - json: one JSON object per line
+ * - binary: header with magic "APXL", version (1 byte) and the bit mask of the recorded fields (int),
+ * then records: length of the record (int) and the recorded fields in the order of {@link AccessLogEntry.Field}.
+ * timestamp (long, ms), status (short), duration (long, us), bytes (long), trace id (byte length and raw bytes),
+ * other fields as strings: length (short) and UTF-8 bytes
+ * Files are preallocated: a record length of 0 (or a truncated record) marks the end of the file when reading.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class AccessLogFile {
+
+    private static final byte[] MAGIC = {'A', 'P', 'X', 'L'};
+    private static final byte VERSION = 1;
+
+    private AccessLogFile() {
+    }
+
+    /**
+     * @param fields recorded fields
+     * @return header of a binary access log file
+     */
+    public static Buffer header(Set<AccessLogEntry.Field> fields) {
+        int mask = 0;
+        for (AccessLogEntry.Field field : fields) {
+            mask |= 1 << field.ordinal();
+        }
+        return Buffer.buffer(MAGIC.length + 5).appendBytes(MAGIC).appendByte(VERSION).appendInt(mask);
+    }
+
+    /**
+     * @param entry  entry to write
+     * @param fields recorded fields
+     * @return the JSON line of the entry
+     */
+    public static Buffer encodeJson(AccessLogEntry entry, Set<AccessLogEntry.Field> fields) {
+        return entry.toJson(fields).toBuffer().appendByte((byte) '\n');
+    }
+
+    /**
+     * @param entry  entry to write
+     * @param fields recorded fields
+     * @return the length-prefixed binary record of the entry
+     */
+    public static Buffer encodeBinary(AccessLogEntry entry, Set<AccessLogEntry.Field> fields) {
+        Buffer content = Buffer.buffer(128);
+        for (AccessLogEntry.Field field : fields) {
+            switch (field) {
+                case TIMESTAMP:
+                    content.appendLong(entry.getTimestamp());
+                    break;
+                case METHOD:
+                    appendString(content, entry.getMethod());
+                    break;
+                case ROUTE:
+                    appendString(content, entry.getRoute());
+                    break;
+                case PATH:
+                    appendString(content, entry.getPath());
+                    break;
+                case STATUS:
+                    content.appendShort((short) entry.getStatus());
+                    break;
+                case DURATION:
+                    content.appendLong(entry.getDurationMicros());
+                    break;
+                case BYTES:
+                    content.appendLong(entry.getBytes());
+                    break;
+                case TRACE_ID:
+                    byte[] traceId = hexToBytes(entry.getTraceId());
+                    content.appendByte((byte) traceId.length).appendBytes(traceId);
+                    break;
+                case REMOTE:
+                    appendString(content, entry.getRemote());
+                    break;
+            }
+        }
+        return Buffer.buffer(content.length() + 4).appendInt(content.length()).appendBuffer(content);
+    }
+
+    /**
+     * @param file content of a binary access log file
+     * @return the recorded fields
+     * @throws IllegalArgumentException if the content isn't a binary access log file
+     */
+    public static Set<AccessLogEntry.Field> fields(Buffer file) {
+        if (file.length() < MAGIC.length + 5 || !file.getBuffer(0, MAGIC.length).equals(Buffer.buffer(MAGIC))) {
+            throw new IllegalArgumentException("Not a binary access log file");
+        }
+        if (file.getByte(MAGIC.length) != VERSION) {
+            throw new IllegalArgumentException("Unsupported access log file version: " + file.getByte(MAGIC.length));
+        }
+        int mask = file.getInt(MAGIC.length + 1);
+        Set<AccessLogEntry.Field> fields = EnumSet.noneOf(AccessLogEntry.Field.class);
+        for (AccessLogEntry.Field field : AccessLogEntry.Field.values()) {
+            if ((mask & 1 << field.ordinal()) != 0) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @param file content of a binary access log file
+     * @return the entries
+     * @throws IllegalArgumentException if the content isn't a binary access log file
+     */
+    public static List<AccessLogEntry> read(Buffer file) {
+        Set<AccessLogEntry.Field> fields = fields(file);
+        List<AccessLogEntry> entries = new ArrayList<>();
+        int position = MAGIC.length + 5;
+        while (position + 4 <= file.length()) {
+            int length = file.getInt(position);
+            if (length <= 0 || position + 4 + length > file.length()) {
+                break;
+            }
+            entries.add(decode(file.getBuffer(position + 4, position + 4 + length), fields));
+            position += 4 + length;
+        }
+        return entries;
+    }
+
+    private static AccessLogEntry decode(Buffer content, Set<AccessLogEntry.Field> fields) {
+        int[] position = {0};
+        long timestamp = 0;
+        String method = null;
+        String route = null;
+        String path = null;
+        int status = 0;
+        long durationMicros = 0;
+        long bytes = 0;
+        String traceId = null;
+        String remote = null;
+        for (AccessLogEntry.Field field : fields) {
+            switch (field) {
+                case TIMESTAMP:
+                    timestamp = content.getLong(position[0]);
+                    position[0] += 8;
+                    break;
+                case METHOD:
+                    method = readString(content, position);
+                    break;
+                case ROUTE:
+                    route = readString(content, position);
+                    break;
+                case PATH:
+                    path = readString(content, position);
+                    break;
+                case STATUS:
+                    status = content.getUnsignedShort(position[0]);
+                    position[0] += 2;
+                    break;
+                case DURATION:
+                    durationMicros = content.getLong(position[0]);
+                    position[0] += 8;
+                    break;
+                case BYTES:
+                    bytes = content.getLong(position[0]);
+                    position[0] += 8;
+                    break;
+                case TRACE_ID:
+                    int length = content.getByte(position[0]);
+                    traceId = length > 0 ? bytesToHex(content.getBytes(position[0] + 1, position[0] + 1 + length)) : null;
+                    position[0] += 1 + length;
+                    break;
+                case REMOTE:
+                    remote = readString(content, position);
+                    break;
+            }
+        }
+        return new AccessLogEntry(timestamp, method, route, path, status, durationMicros, bytes, traceId, remote);
+    }
+
+    private static void appendString(Buffer buffer, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(bytes.length, 0xFFFF);
+        buffer.appendShort((short) length).appendBytes(bytes, 0, length);
+    }
+
+    private static String readString(Buffer buffer, int[] position) {
+        int length = buffer.getUnsignedShort(position[0]);
+        String value = buffer.getString(position[0] + 2, position[0] + 2 + length, StandardCharsets.UTF_8.name());
+        position[0] += 2 + length;
+        return value;
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        if (hex == null || hex.length() % 2 != 0) {
+            return new byte[0];
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String bytesToHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
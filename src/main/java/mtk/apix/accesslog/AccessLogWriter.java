@@ -0,0 +1,209 @@
+package mtk.apix.accesslog;
+
+import io.vertx.core.buffer.Buffer;
+import mtk.apix.util.ConsoleLog;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Background thread writing the access log entries in a memory-mapped file.
+ * The file is mapped with its max size, and rotated when an entry doesn't fit: file is renamed file.1, file.1 file.2 ... up to max files.
+ * Rotated and closed files are truncated to their content. The mapped pages are forced to disk every second.
+ * Request threads only add the entry to a bounded queue, entries are dropped when it's full.
+ * The thread waits for entries at most until the next force, so an idle writer wakes up once per second.
+ * A file left by a crash keeps its preallocated size, readers stop at the first empty record.
+ *
+ * @author mahatoky rasolonirina
+ */
+class AccessLogWriter {
+
+    private static final long FORCE_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final AccessLogEntry CLOSE = new AccessLogEntry(0, "", "", "", 0, 0, 0, null, null);
+
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final Buffer header;
+    private final Function<AccessLogEntry, Buffer> encoder;
+    private final BlockingQueue<AccessLogEntry> queue;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final Thread thread;
+    private volatile boolean closed;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private boolean dirty;
+    private long lastForce;
+
+    /**
+     * @param file        access log file
+     * @param maxFileSize size of a file before rotation
+     * @param maxFiles    number of rotated files kept
+     * @param header      header of each file, empty for none
+     * @param encoder     encoder of the entries
+     * @param queueSize   max entries waiting to be written
+     */
+    AccessLogWriter(String file, long maxFileSize, int maxFiles, Buffer header, Function<AccessLogEntry, Buffer> encoder, int queueSize) {
+        this.file = Paths.get(file);
+        this.maxFileSize = Math.min(Integer.MAX_VALUE, Math.max(header.length() + 1024, maxFileSize));
+        this.maxFiles = Math.max(0, maxFiles);
+        this.header = header;
+        this.encoder = encoder;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.thread = new Thread(this::run, "apix-access-log");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Open the file (the previous one is rotated) and start the thread
+     *
+     * @throws IOException if the file can't be opened
+     */
+    void start() throws IOException {
+        rotate();
+        thread.start();
+    }
+
+    /**
+     * @param entry entry to write, dropped if the queue is full
+     */
+    void offer(AccessLogEntry entry) {
+        if (closed || !queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!(closed && queue.isEmpty())) {
+                long untilForce = dirty ? lastForce + FORCE_PERIOD_NANOS - System.nanoTime() : FORCE_PERIOD_NANOS;
+                AccessLogEntry entry = untilForce > 0 ? queue.poll(untilForce, TimeUnit.NANOSECONDS) : queue.poll();
+                if (entry == CLOSE) {
+                    break;
+                }
+                if (entry != null) {
+                    write(entry);
+                }
+                if (dirty && System.nanoTime() - lastForce >= FORCE_PERIOD_NANOS) {
+                    mapped.force();
+                    dirty = false;
+                    lastForce = System.nanoTime();
+                }
+            }
+            // entries queued while closing
+            for (AccessLogEntry entry = queue.poll(); entry != null; entry = queue.poll()) {
+                if (entry != CLOSE) {
+                    write(entry);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            finish();
+        } catch (IOException e) {
+            ConsoleLog.error(e);
+        }
+    }
+
+    private void write(AccessLogEntry entry) {
+        try {
+            Buffer record = encoder.apply(entry);
+            if (record.length() > mapped.remaining()) {
+                if (record.length() > maxFileSize - header.length()) {
+                    dropped.increment();
+                    return;
+                }
+                rotate();
+            }
+            mapped.put(record.getBytes());
+            dirty = true;
+            written.increment();
+        } catch (IOException | RuntimeException e) {
+            dropped.increment();
+            ConsoleLog.error(e);
+        }
+    }
+
+    /**
+     * Truncate and close the current file, shift the rotated files, then map a new file
+     */
+    private void rotate() throws IOException {
+        finish();
+        if (Files.exists(file)) {
+            if (maxFiles == 0) {
+                Files.delete(file);
+            } else {
+                Files.deleteIfExists(rotated(maxFiles));
+                for (int i = maxFiles - 1; i >= 1; i--) {
+                    if (Files.exists(rotated(i))) {
+                        Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+                rotations.increment();
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, maxFileSize);
+        mapped.put(header.getBytes());
+        lastForce = System.nanoTime();
+    }
+
+    private void finish() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        mapped.force();
+        channel.truncate(mapped.position());
+        channel.close();
+        channel = null;
+        mapped = null;
+        dirty = false;
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Write the queued entries, then truncate and close the file. Blocking
+     */
+    void close() throws InterruptedException {
+        closed = true;
+        if (thread.isAlive()) {
+            // wakes the thread up, if the queue is full the thread stops once it is empty
+            queue.offer(CLOSE);
+            thread.join();
+        }
+    }
+
+    long getWritten() {
+        return written.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+
+    long getRotations() {
+        return rotations.sum();
+    }
+
+    int getQueued() {
+        return queue.size();
+    }
+}
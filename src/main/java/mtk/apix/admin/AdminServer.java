@@ -0,0 +1,337 @@
+package mtk.apix.admin;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.Apix;
+import mtk.apix.accesslog.AccessLog;
+import mtk.apix.cache.CacheManager;
+import mtk.apix.capture.TrafficCapture;
+import mtk.apix.metrics.FlightRecorder;
+import mtk.apix.metrics.HttpServerMetrics;
+import mtk.apix.metrics.RouteMetrics;
+import mtk.apix.ratelimit.RateLimiterRegistry;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.Tracer;
+import mtk.apix.util.ClassUtil;
+import mtk.apix.util.ConsoleLog;
+import mtk.apix.util.Endpoint;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Admin http server, started when apix.admin.port is set.
+ * It runs on its own vertx instance with a single event loop, so operational endpoints answer even when the application event loops are overloaded.
+ * - GET /health/live: 200 while the process runs
+ * - GET /health/ready: 200 UP once the application server listens, 503 DOWN before and during the shutdown
+ * - GET /routes: endpoints of the controllers, with their {@link RouteMetrics} when enabled
+ * - GET /components: components of the container, lazy components included
+ * - GET /properties: application properties, secrets masked
+ * - GET /metrics: http server, caches, capture, access log, tracing, rate limit, route and JVM metrics
+ * - GET /boot: boot report
+ * - GET /threads: thread dump (text)
+ * - GET /traces?limit=50: last traces with the time spent per stage, GET /traces/:traceId: spans of a trace, when tracing is enabled
+ * - GET /jfr?profile=cpu&duration=30: flight recording of duration seconds (cpu, allocation, lock, default or profile), sent as .jfr file
+ *
+ * @author mahatoky rasolonirina
+ */
+public class AdminServer {
+
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    private static final String MASK = "******";
+    private static final String DEFAULT_PROFILE = "cpu";
+    private static final int DEFAULT_TRACES_LIMIT = 50;
+    private static final long DEFAULT_RECORDING_DURATION = 30;
+    private static final long MAX_RECORDING_DURATION = 600;
+    private static final Pattern SECRET_KEY = Pattern.compile("(?i).*(password|passwd|secret|token|credential|private|api[-_.]?key).*");
+
+    private final int port;
+    private final String host;
+    private final Map<Class<?>, Object> components;
+    private final Supplier<Map<Class<?>, Boolean>> lazyComponents;
+    private final AtomicBoolean recording = new AtomicBoolean();
+    private Vertx vertx;
+    private HttpServer server;
+
+    /**
+     * @param port           port of the admin server
+     * @param host           host to bind
+     * @param components     components of the container
+     * @param lazyComponents lazy components of the container, with true if created
+     */
+    public AdminServer(int port, String host, Map<Class<?>, Object> components, Supplier<Map<Class<?>, Boolean>> lazyComponents) {
+        this.port = port;
+        this.host = host;
+        this.components = components;
+        this.lazyComponents = lazyComponents;
+    }
+
+    /**
+     * @return future completed when the admin server listens
+     */
+    public Future<HttpServer> start() {
+        vertx = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1).setWorkerPoolSize(1).setInternalBlockingPoolSize(1));
+        Router router = Router.router(vertx);
+        router.get("/health/live").handler(routingContext -> routingContext.json(new JsonObject().put("status", "UP")));
+        router.get("/health/ready").handler(routingContext -> {
+            boolean ready = Apix.isReady();
+            routingContext.response().setStatusCode(ready ? 200 : 503);
+            routingContext.json(new JsonObject().put("status", ready ? "UP" : "DOWN"));
+        });
+        router.get("/routes").handler(routingContext -> routingContext.json(routes()));
+        router.get("/components").handler(routingContext -> routingContext.json(components()));
+        router.get("/properties").handler(routingContext -> routingContext.json(properties()));
+        router.get("/metrics").handler(routingContext -> routingContext.json(metrics()));
+        router.get("/boot").handler(routingContext -> routingContext.json(Apix.getBootReport()));
+        router.get("/threads").handler(this::threadDump);
+        router.get("/traces").handler(routingContext -> traces(routingContext, tracer -> tracer.getBuffer()
+                .toJson(ClassUtil.valueOf(routingContext.queryParams().get("limit"), Integer.class, DEFAULT_TRACES_LIMIT))));
+        router.get("/traces/:traceId").handler(routingContext -> traces(routingContext, tracer -> new JsonArray(tracer.getBuffer()
+                .getSpans(routingContext.pathParam("traceId")).stream().map(Span::toJson).collect(Collectors.toList()))));
+        router.get("/jfr").handler(this::flightRecording);
+        server = vertx.createHttpServer();
+        return server.requestHandler(router).listen(port, host)
+                .onSuccess(listening -> ConsoleLog.trace("Admin server started on " + host + ":" + listening.actualPort()));
+    }
+
+    /**
+     * @return future completed when the admin server and its vertx instance are closed
+     */
+    public Future<Void> close() {
+        return vertx != null ? vertx.close() : Future.succeededFuture();
+    }
+
+    private JsonArray routes() {
+        RouteMetrics routeMetrics = component(RouteMetrics.class);
+        JsonObject routeStats = new JsonObject();
+        if (routeMetrics != null) {
+            routeMetrics.toJson().getJsonArray("routes").forEach(route -> {
+                JsonObject stats = ((JsonObject) route).copy();
+                routeStats.put((String) stats.remove("route"), stats);
+                stats.remove("method");
+            });
+        }
+        JsonArray routes = new JsonArray();
+        for (Endpoint endpoint : Apix.getEndpoints()) {
+            JsonObject route = new JsonObject()
+                    .put("method", endpoint.getHttpMethod().name())
+                    .put("path", endpoint.getPath())
+                    .put("handler", endpoint.getController().getClass().getName() + "." + endpoint.getMethod().getName())
+                    .put("consume", endpoint.getConsume())
+                    .put("produce", endpoint.getProduce());
+            if (routeStats.containsKey(endpoint.toString())) {
+                route.put("metrics", routeStats.getJsonObject(endpoint.toString()));
+            }
+            routes.add(route);
+        }
+        return routes;
+    }
+
+    private void traces(RoutingContext routingContext, Function<Tracer, JsonArray> traces) {
+        Tracer tracer = component(Tracer.class);
+        if (tracer == null) {
+            routingContext.response().setStatusCode(404).end("Tracing is not enabled (apix.tracing.enabled)");
+            return;
+        }
+        routingContext.json(traces.apply(tracer));
+    }
+
+    private JsonArray components() {
+        JsonArray json = new JsonArray();
+        components.forEach((type, component) -> json.add(new JsonObject()
+                .put("type", type.getName())
+                .put("class", component.getClass().getName())
+                .put("proxy", Proxy.isProxyClass(component.getClass()))
+                .put("lazy", false)));
+        lazyComponents.get().forEach((type, created) -> json.add(new JsonObject()
+                .put("type", type.getName())
+                .put("class", type.getName())
+                .put("lazy", true)
+                .put("created", created)));
+        return json;
+    }
+
+    private JsonObject properties() {
+        Properties properties = Apix.getProperties();
+        JsonObject json = new JsonObject();
+        if (properties != null) {
+            for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+                json.put(key, SECRET_KEY.matcher(key).matches() ? MASK : properties.getProperty(key));
+            }
+        }
+        return json;
+    }
+
+    private JsonObject metrics() {
+        JsonObject json = new JsonObject();
+        HttpServerMetrics httpServerMetrics = component(HttpServerMetrics.class);
+        if (httpServerMetrics != null) {
+            json.put("http", httpServerMetrics.toJson());
+        }
+        CacheManager cacheManager = component(CacheManager.class);
+        if (cacheManager != null) {
+            JsonObject caches = new JsonObject();
+            cacheManager.stats().forEach((name, stats) -> caches.put(name, stats.toJson()));
+            json.put("caches", caches);
+        }
+        RouteMetrics routeMetrics = component(RouteMetrics.class);
+        if (routeMetrics != null) {
+            json.put("routes", routeMetrics.toJson());
+        }
+        TrafficCapture trafficCapture = component(TrafficCapture.class);
+        if (trafficCapture != null) {
+            json.put("capture", trafficCapture.toJson());
+        }
+        AccessLog accessLog = component(AccessLog.class);
+        if (accessLog != null) {
+            json.put("accessLog", accessLog.toJson());
+        }
+        Tracer tracer = component(Tracer.class);
+        if (tracer != null) {
+            json.put("tracing", tracer.toJson());
+        }
+        RateLimiterRegistry rateLimiterRegistry = component(RateLimiterRegistry.class);
+        if (rateLimiterRegistry != null) {
+            json.put("rateLimits", rateLimiterRegistry.toJson());
+        }
+        return json.put("jvm", jvm());
+    }
+
+    private static JsonObject jvm() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        JsonArray gc = new JsonArray();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc.add(new JsonObject()
+                    .put("name", collector.getName())
+                    .put("count", collector.getCollectionCount())
+                    .put("timeMillis", collector.getCollectionTime()));
+        }
+        return new JsonObject()
+                .put("uptimeMillis", ManagementFactory.getRuntimeMXBean().getUptime())
+                .put("heapUsed", heap.getUsed())
+                .put("heapCommitted", heap.getCommitted())
+                .put("heapMax", heap.getMax())
+                .put("threads", ManagementFactory.getThreadMXBean().getThreadCount())
+                .put("loadedClasses", ManagementFactory.getClassLoadingMXBean().getLoadedClassCount())
+                .put("gc", gc);
+    }
+
+    private void threadDump(RoutingContext routingContext) {
+        vertx.executeBlocking(() -> {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            StringBuilder dump = new StringBuilder();
+            for (ThreadInfo thread : threadMXBean.dumpAllThreads(threadMXBean.isObjectMonitorUsageSupported(), threadMXBean.isSynchronizerUsageSupported())) {
+                appendThread(dump, thread);
+            }
+            return dump.toString();
+        }).onComplete(ar -> {
+            if (ar.failed()) {
+                routingContext.fail(ar.cause());
+                return;
+            }
+            routingContext.response().putHeader(HttpHeaders.CONTENT_TYPE, "text/plain;charset=UTF-8").end(ar.result());
+        });
+    }
+
+    private void flightRecording(RoutingContext routingContext) {
+        if (!FlightRecorder.isSupported()) {
+            routingContext.response().setStatusCode(501).end("Flight recorder not available, Java 11 or later with the jdk.jfr module is needed");
+            return;
+        }
+        String profile = routingContext.queryParams().get("profile") != null ? routingContext.queryParams().get("profile") : DEFAULT_PROFILE;
+        long duration = ClassUtil.valueOf(routingContext.queryParams().get("duration"), Long.class, DEFAULT_RECORDING_DURATION);
+        if (duration <= 0 || duration > MAX_RECORDING_DURATION) {
+            routingContext.response().setStatusCode(400).end("duration must be between 1 and " + MAX_RECORDING_DURATION + " seconds");
+            return;
+        }
+        if (!recording.compareAndSet(false, true)) {
+            routingContext.response().setStatusCode(409).end("A recording is already running");
+            return;
+        }
+        FlightRecorder flightRecorder;
+        try {
+            flightRecorder = FlightRecorder.start(profile, duration * 1000);
+        } catch (RuntimeException e) {
+            recording.set(false);
+            routingContext.response().setStatusCode(400).end(String.valueOf(e.getMessage()));
+            return;
+        }
+        ConsoleLog.trace("Flight recording started (profile: " + profile + ", duration: " + duration + "s)");
+        vertx.setTimer(duration * 1000, id -> vertx.executeBlocking(() -> {
+            Path file = Files.createTempFile("apix-", ".jfr");
+            flightRecorder.stop(file);
+            return file;
+        }).onComplete(ar -> {
+            recording.set(false);
+            if (ar.failed()) {
+                routingContext.fail(ar.cause());
+                return;
+            }
+            Path file = ar.result();
+            routingContext.response()
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream")
+                    .putHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"apix-" + profile + "-" + System.currentTimeMillis() + ".jfr\"")
+                    .sendFile(file.toString())
+                    .onComplete(sent -> vertx.fileSystem().delete(file.toString()));
+        }));
+    }
+
+    /**
+     * Same format as jstack, without the 8 frames limit of ThreadInfo.toString()
+     */
+    private static void appendThread(StringBuilder dump, ThreadInfo thread) {
+        dump.append('"').append(thread.getThreadName()).append("\" #").append(thread.getThreadId()).append(' ').append(thread.getThreadState());
+        if (thread.getLockName() != null) {
+            dump.append(" on ").append(thread.getLockName());
+        }
+        if (thread.getLockOwnerName() != null) {
+            dump.append(" owned by \"").append(thread.getLockOwnerName()).append("\" #").append(thread.getLockOwnerId());
+        }
+        dump.append('\n');
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        for (int i = 0; i < stackTrace.length; i++) {
+            dump.append("\tat ").append(stackTrace[i]).append('\n');
+            for (MonitorInfo monitor : thread.getLockedMonitors()) {
+                if (monitor.getLockedStackDepth() == i) {
+                    dump.append("\t- locked ").append(monitor).append('\n');
+                }
+            }
+        }
+        LockInfo[] synchronizers = thread.getLockedSynchronizers();
+        if (synchronizers.length > 0) {
+            dump.append("\tLocked synchronizers:\n");
+            for (LockInfo synchronizer : synchronizers) {
+                dump.append("\t- ").append(synchronizer).append('\n');
+            }
+        }
+        dump.append('\n');
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T component(Class<T> componentClass) {
+        return (T) components.get(componentClass);
+    }
+}
@@ -0,0 +1,32 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method of a {@link Service} or {@link Repository} to merge single key calls into one call of a batch method.
+ * The annotated method must have one parameter (the key) and return a Future.
+ * The batch method, declared in the same class, must have one List parameter (the keys) and return a Map of key to result, or a Future of this Map.
+ * Calls made in the same event loop tick (maxDelayMicros = 0) or in the given time window are merged, up to maxSize keys per batch.
+ * For example:
+ * {@code
+ *  @Batched(batchMethod = "findAllByIds", maxSize = 50)
+ *  public Future<User> findById(Long id) {...}
+ *
+ *  public Future<Map<Long, User>> findAllByIds(List<Long> ids) {...}
+ * }
+ * The component is proxied, so it must be injected through one of its interfaces. Otherwise, the annotated method is called directly.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Batched {
+    String batchMethod();
+
+    int maxSize() default 100;
+
+    long maxDelayMicros() default 0;
+}
@@ -0,0 +1,31 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method of a component to keep its results in a named cache, the key being the method arguments.
+ * Caches are bounded (maxSize) and can expire entries after write (ttl) or after access (expireAfterAccess).
+ * With refreshAfter, an entry older than the given delay is still returned but reloaded in the background.
+ * All durations are in milliseconds, 0 means disabled. Null results are not cached, failed futures neither.
+ * Several methods can share the same cache name, the first declaration defines the cache settings.
+ * The component is proxied, so it must be injected through one of its interfaces.
+ *
+ * @author mahatoky rasolonirina
+ * @see mtk.apix.cache.CacheManager
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    String name() default "";
+
+    long ttl() default 0;
+
+    long expireAfterAccess() default 0;
+
+    long refreshAfter() default 0;
+
+    long maxSize() default 10000;
+}
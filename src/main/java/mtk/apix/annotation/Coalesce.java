@@ -0,0 +1,24 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method annotated with {@link GetMapping} to share one execution between identical concurrent requests.
+ * The first request runs the method, the requests with the same key arriving before it completes receive the same serialized body.
+ * The method must return the response value (object or Future): a method which only writes in the RoutingContext can't be coalesced.
+ * The key is made of parts joined with '+':
+ * - path: the request path
+ * - query: the query string
+ * - header:Name: the value of the given request header, ex: "path+query+header:Accept-Language"
+ * Requests carrying an Authorization or Cookie header are never coalesced unless the key contains this header.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+    String key() default "path+query";
+}
@@ -20,4 +20,9 @@ public @interface DeleteMapping {
     String consume() default MediaType.APPLICATION_JSON;
 
     String produce() default MediaType.APPLICATION_JSON;
+
+    /**
+     * Timeout of the request in milliseconds, 0 for none, -1 to use the global timeout (apix.request.timeout)
+     */
+    long timeout() default -1;
 }
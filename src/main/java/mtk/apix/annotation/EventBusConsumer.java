@@ -0,0 +1,32 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method of a component to consume the messages sent to the given event bus address.
+ * The first parameter which is not a {@link io.vertx.core.eventbus.Message} receives the message body,
+ * a Message parameter gives access to the message itself, other parameters are components.
+ * The returned value (object or Future) is sent as reply if the sender expects one.
+ * Message bodies whose class is not natively supported by the event bus are passed by reference (no copy, no serialization):
+ * they must be treated as immutable.
+ * - blocking: run the method on a worker thread instead of the event loop
+ * - ordered: with blocking, process messages one at a time in arrival order, otherwise in parallel
+ * - maxBuffered: max messages buffered when the consumer is paused
+ *
+ * @author mahatoky rasolonirina
+ * @see mtk.apix.eventbus.LocalObjectCodec
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface EventBusConsumer {
+    String address();
+
+    boolean blocking() default false;
+
+    boolean ordered() default true;
+
+    int maxBuffered() default 1000;
+}
@@ -22,4 +22,9 @@ public @interface GetMapping {
     String produce() default MediaType.APPLICATION_JSON;
 
     String[] headers() default {};
+
+    /**
+     * Timeout of the request in milliseconds, 0 for none, -1 to use the global timeout (apix.request.timeout)
+     */
+    long timeout() default -1;
 }
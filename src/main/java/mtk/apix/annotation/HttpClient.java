@@ -0,0 +1,30 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on an interface describing a remote http service. Apix creates its implementation at startup, injectable with {@link Autowired}.
+ * Methods use the mapping annotations ({@link GetMapping}, {@link PostMapping}, {@link PutMapping}, {@link DeleteMapping}),
+ * parameters use {@link PathVariable}, {@link RequestParam} and {@link RequestBody}, and methods return a Future of the decoded body.
+ * For example:
+ * {@code
+ *  @HttpClient("http://user-service:8080/api")
+ *  public interface UserClient {
+ *      @GetMapping("/users/:id")
+ *      Future<User> getUser(@PathVariable("id") long id);
+ *  }
+ * }
+ * The base url can be a property: "${user-service.url}".
+ * A response status other than 2xx fails the Future with a {@link mtk.apix.exception.HttpClientException}.
+ *
+ * @author mahatoky rasolonirina
+ * @see mtk.apix.client.HttpClientManager
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HttpClient {
+    String value();
+}
@@ -0,0 +1,21 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * On a component class: the component is created on first use instead of at startup.
+ * On an autowired field: the dependency is resolved on first use, which also allows dependencies created after the component (or cyclic ones).
+ * A lazy dependency is injected as a proxy when the field type is an interface, or as the Supplier given by a Supplier&lt;T&gt; field,
+ * otherwise it is created when injected.
+ * With apix.lazy-init=true every component except controllers, interceptors, configurations and event bus consumers is lazy, @Lazy(false) keeps a component eager.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD})
+public @interface Lazy {
+    boolean value() default true;
+}
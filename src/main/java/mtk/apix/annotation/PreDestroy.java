@@ -0,0 +1,18 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method which will launch automatically when the application shuts down, after in-flight requests are completed.
+ * Components are destroyed in the reverse order of their creation: a component is destroyed before its dependencies.
+ * The method can return a Future, the next component is destroyed when it completes.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PreDestroy {
+}
@@ -0,0 +1,44 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * To limit the requests of each client on a mapping method, or on all the methods of a controller (one limit shared by its routes).
+ * Each client can burst up to permits requests, then gets permits requests per period; beyond, the response is 429 with a Retry-After header.
+ * The key identifies the client:
+ * - ip: the address of the client
+ * - header:Name: the value of the given request header, ex: "header:X-Api-Key". Requests without the header are limited by ip
+ * - global: one limit for all the clients
+ * Each attribute can be overridden in the properties files: apix.ratelimit.[name].permits, per, unit, key, and enabled=false to remove the limit.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimit {
+    /**
+     * client key: ip, header:Name or global
+     */
+    String key() default "ip";
+
+    /**
+     * requests allowed per period
+     */
+    long permits();
+
+    /**
+     * length of the period, in unit
+     */
+    long per() default 1;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * name of the limit in the properties, [Controller].[method] or [Controller] by default
+     */
+    String name() default "";
+}
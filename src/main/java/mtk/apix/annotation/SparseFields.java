@@ -0,0 +1,23 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a mapping method returning an object to let the client choose the fields of the response, ex: "/users/1?fields=id,name,address.city".
+ * Fields are comma separated, nested fields are separated by '.': "address" writes the whole address, "address.city" only its city.
+ * The fields apply to each element of a returned collection. Unknown fields are ignored, without the query param the whole object is written.
+ * The projection is applied while the object is serialized, the fields not requested are never written.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SparseFields {
+    /**
+     * name of the query param
+     */
+    String param() default "fields";
+}
@@ -0,0 +1,26 @@
+package mtk.apix.annotation;
+
+import mtk.apix.push.SlowConsumerPolicy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method of a {@link RestController} which will open a Server-Sent Events stream (text/event-stream).
+ * The method is called once the stream is open, with a {@link mtk.apix.push.SseSession} parameter to send events.
+ * When the outbound queue of a connection exceeds maxQueuedBytes, the slow consumer policy is applied (drop the event or disconnect).
+ *
+ * @author mahatoky rasolonirina
+ * @see mtk.apix.push.TopicBroadcaster
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SseMapping {
+    String[] value() default {};
+
+    int maxQueuedBytes() default 1024 * 1024;
+
+    SlowConsumerPolicy slowConsumer() default SlowConsumerPolicy.DROP;
+}
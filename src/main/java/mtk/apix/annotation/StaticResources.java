@@ -0,0 +1,40 @@
+package mtk.apix.annotation;
+
+import mtk.apix.util.StaticResourceHandler;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on the main class to serve the files of a directory, can be replaced by properties file (apix.static.*).
+ * For example, with @StaticResources(path = "/assets", dir = "public"), GET /assets/css/app.css sends public/css/app.css.
+ * The directory is looked up in the file system, then in the classpath.
+ *
+ * @author mahatoky rasolonirina
+ * @see StaticResourceHandler
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface StaticResources {
+    /**
+     * url path prefix of the files
+     */
+    String path() default StaticResourceHandler.DEFAULT_PATH;
+
+    /**
+     * directory of the files
+     */
+    String dir() default StaticResourceHandler.DEFAULT_DIR;
+
+    /**
+     * max-age of the Cache-Control header in seconds, 0 for no Cache-Control header
+     */
+    long maxAge() default StaticResourceHandler.DEFAULT_MAX_AGE;
+
+    /**
+     * files up to this size (in bytes) are kept in memory, 0 to always send files from disk
+     */
+    long cacheMaxFileSize() default StaticResourceHandler.DEFAULT_CACHE_MAX_FILE_SIZE;
+}
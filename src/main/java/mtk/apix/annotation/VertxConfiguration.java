@@ -20,4 +20,22 @@ public @interface VertxConfiguration {
     int idleTimeout() default DefaultVertxConfig.IDLE_TIMEOUT;
 
     boolean compressionSupported() default DefaultVertxConfig.COMPRESSION_SUPPORTED;
+
+    /**
+     * Enable HTTP/2: with TLS it is negotiated with ALPN, without TLS clients can use h2c (upgrade or prior knowledge)
+     */
+    boolean http2() default DefaultVertxConfig.HTTP2;
+
+    /**
+     * Path of the key store (JKS, or PKCS12 for .p12 and .pfx files) enabling TLS, empty for plain http
+     */
+    String keyStore() default "";
+
+    String keyStorePassword() default "";
+
+    long http2MaxConcurrentStreams() default DefaultVertxConfig.HTTP2_MAX_CONCURRENT_STREAMS;
+
+    int http2InitialWindowSize() default DefaultVertxConfig.HTTP2_INITIAL_WINDOW_SIZE;
+
+    long http2HeaderTableSize() default DefaultVertxConfig.HTTP2_HEADER_TABLE_SIZE;
 }
@@ -0,0 +1,32 @@
+package mtk.apix.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To configure the warm-up (apix.warmup.enabled) of a mapping method, or of all the methods of a controller.
+ * By default every GET route is called, with path variables replaced by "1". @WarmUp(false) excludes a route.
+ * POST, PUT and DELETE routes change data: they are called only with a @WarmUp on their mapping method.
+ *
+ * @author mahatoky rasolonirina
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface WarmUp {
+    /**
+     * false to exclude the route from the warm-up
+     */
+    boolean value() default true;
+
+    /**
+     * path (with query) of the warm-up requests, ex: "/api/users/42?details=true". The route path by default
+     */
+    String path() default "";
+
+    /**
+     * body of the warm-up requests
+     */
+    String body() default "";
+}
@@ -0,0 +1,34 @@
+package mtk.apix.annotation;
+
+import mtk.apix.push.SlowConsumerPolicy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * To put on a method of a {@link RestController} which will accept WebSocket connections.
+ * The method is called once the connection is open, with a {@link mtk.apix.push.WebSocketSession} parameter to receive and send messages.
+ * When the outbound queue of a connection exceeds maxQueuedBytes, the slow consumer policy is applied (drop the message or disconnect).
+ * For example:
+ * {@code
+ *  @WebSocketMapping("/ws/chat")
+ *  public void chat(WebSocketSession session) {
+ *      session.subscribe("chat");
+ *      session.onMessage(text -> broadcaster.publish("chat", text));
+ *  }
+ * }
+ *
+ * @author mahatoky rasolonirina
+ * @see mtk.apix.push.TopicBroadcaster
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface WebSocketMapping {
+    String[] value() default {};
+
+    int maxQueuedBytes() default 1024 * 1024;
+
+    SlowConsumerPolicy slowConsumer() default SlowConsumerPolicy.DROP;
+}
@@ -0,0 +1,419 @@
+package mtk.apix.cache;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache with a W-TinyLFU eviction policy:
+ * - new entries go in a small LRU window (1% of the size)
+ * - entries leaving the window enter the main space only if they are accessed more often than the entry they would evict
+ * - the main space is a segmented LRU (probation 20%, protected 80%) protecting frequently accessed entries
+ * Reads never wait for the eviction lock: under contention, the reordering of the entry is skipped.
+ *
+ * @author mahatoky rasolonirina
+ * @see CacheManager
+ */
+public class ApixCache<K, V> {
+
+    private static final int NONE = 0;
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private final String name;
+    private final long maxSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Map<K, Future<V>> loading = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final NodeDeque<K, V> window = new NodeDeque<>();
+    private final NodeDeque<K, V> probation = new NodeDeque<>();
+    private final NodeDeque<K, V> protectedSpace = new NodeDeque<>();
+    private final long windowMaxSize;
+    private final long protectedMaxSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    /**
+     * @param name                    name of the cache
+     * @param maxSize                 max number of entries
+     * @param expireAfterWriteMillis  0 to disable
+     * @param expireAfterAccessMillis 0 to disable
+     * @param refreshAfterMillis      0 to disable
+     * @param refreshExecutor         executor of the synchronous background reloads
+     */
+    public ApixCache(String name, long maxSize, long expireAfterWriteMillis, long expireAfterAccessMillis, long refreshAfterMillis, Executor refreshExecutor) {
+        this.name = name;
+        this.maxSize = Math.max(1, maxSize);
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterWriteMillis));
+        this.expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterAccessMillis));
+        this.refreshAfterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, refreshAfterMillis));
+        this.refreshExecutor = refreshExecutor;
+        this.sketch = new FrequencySketch(this.maxSize);
+        this.windowMaxSize = Math.max(1, this.maxSize / 100);
+        this.protectedMaxSize = (long) ((this.maxSize - windowMaxSize) * 0.8);
+    }
+
+    /**
+     * @param key key
+     * @return the value, or null if absent or expired
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = lookup(key, System.nanoTime());
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Give the cached value or load it with the given loader.
+     * Concurrent misses on the same key each call the loader.
+     *
+     * @param key    key
+     * @param loader loader used on miss and for background refresh
+     * @return the cached or loaded value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = System.nanoTime();
+        Node<K, V> node = lookup(key, now);
+        if (node != null) {
+            if (needsRefresh(node, now)) {
+                refreshExecutor.execute(() -> {
+                    try {
+                        load(key, loader);
+                    } catch (RuntimeException ignored) {
+                        // the stale value is kept until it expires
+                    } finally {
+                        node.refreshing.set(false);
+                    }
+                });
+            }
+            return node.value;
+        }
+        return load(key, loader);
+    }
+
+    /**
+     * Give the cached value or load it with the given asynchronous loader.
+     * Concurrent misses on the same key share the same load.
+     *
+     * @param key    key
+     * @param loader loader used on miss and for background refresh
+     * @return future of the cached or loaded value
+     */
+    public Future<V> getAsync(K key, Function<? super K, Future<V>> loader) {
+        long now = System.nanoTime();
+        Node<K, V> node = lookup(key, now);
+        if (node != null) {
+            if (needsRefresh(node, now)) {
+                loadAsync(key, loader).onComplete(ar -> node.refreshing.set(false));
+            }
+            return Future.succeededFuture(node.value);
+        }
+        Future<V> inFlight = loading.get(key);
+        return inFlight != null ? inFlight : loadAsync(key, loader);
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException e) {
+            loadFailureCount.increment();
+            throw e;
+        } finally {
+            totalLoadTime.add(System.nanoTime() - start);
+        }
+        loadSuccessCount.increment();
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    private Future<V> loadAsync(K key, Function<? super K, Future<V>> loader) {
+        Promise<V> promise = Promise.promise();
+        Future<V> existing = loading.putIfAbsent(key, promise.future());
+        if (existing != null) {
+            return existing;
+        }
+        long start = System.nanoTime();
+        Future<V> future;
+        try {
+            future = loader.apply(key);
+        } catch (RuntimeException e) {
+            future = Future.failedFuture(e);
+        }
+        future.onComplete(ar -> {
+            totalLoadTime.add(System.nanoTime() - start);
+            if (ar.succeeded()) {
+                loadSuccessCount.increment();
+                if (ar.result() != null) {
+                    put(key, ar.result());
+                }
+            } else {
+                loadFailureCount.increment();
+            }
+            loading.remove(key, promise.future());
+            promise.handle(ar);
+        });
+        return promise.future();
+    }
+
+    public void put(K key, V value) {
+        long now = System.nanoTime();
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            Node<K, V> created = new Node<>(key, value, now);
+            node = data.putIfAbsent(key, created);
+            if (node == null) {
+                evictionLock.lock();
+                try {
+                    onAdd(created);
+                } finally {
+                    evictionLock.unlock();
+                }
+                return;
+            }
+        }
+        node.value = value;
+        node.writeTime = now;
+        node.accessTime = now;
+        afterRead(node);
+    }
+
+    public void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    public void invalidateAll() {
+        data.values().forEach(this::remove);
+    }
+
+    /**
+     * Remove expired entries. Expired entries are also removed when they are read
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        for (Node<K, V> node : data.values()) {
+            if (isExpired(node, now)) {
+                remove(node);
+            }
+        }
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(name, data.size(), maxSize, hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(), evictionCount.sum(), totalLoadTime.sum());
+    }
+
+    private Node<K, V> lookup(K key, long now) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        if (isExpired(node, now)) {
+            missCount.increment();
+            remove(node);
+            return null;
+        }
+        hitCount.increment();
+        node.accessTime = now;
+        afterRead(node);
+        return node;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private boolean needsRefresh(Node<K, V> node, long now) {
+        return refreshAfterNanos > 0 && now - node.writeTime >= refreshAfterNanos && node.refreshing.compareAndSet(false, true);
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key, node);
+        evictionLock.lock();
+        try {
+            unlink(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /*
+     * Methods below are called under the eviction lock
+     */
+
+    private void onAdd(Node<K, V> node) {
+        if (data.get(node.key) != node) {
+            return;
+        }
+        sketch.increment(node.key);
+        window.addLast(node);
+        node.queue = WINDOW;
+        if (window.size <= windowMaxSize) {
+            return;
+        }
+        Node<K, V> candidate = window.pollFirst();
+        probation.addLast(candidate);
+        candidate.queue = PROBATION;
+
+        while (window.size + probation.size + protectedSpace.size > maxSize) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedSpace.peekFirst() != null ? protectedSpace.peekFirst() : window.peekFirst();
+            }
+            if (candidate != null && victim != candidate) {
+                // admission: the candidate replaces the victim only if it is more popular
+                if (sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    victim = candidate;
+                }
+                candidate = null;
+            }
+            evict(victim);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == NONE) {
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROTECTED) {
+            protectedSpace.moveToBack(node);
+        } else {
+            probation.unlink(node);
+            protectedSpace.addLast(node);
+            node.queue = PROTECTED;
+            if (protectedSpace.size > protectedMaxSize) {
+                Node<K, V> demoted = protectedSpace.pollFirst();
+                probation.addLast(demoted);
+                demoted.queue = PROBATION;
+            }
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        unlink(node);
+        data.remove(node.key, node);
+        evictionCount.increment();
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.queue == WINDOW) {
+            window.unlink(node);
+        } else if (node.queue == PROBATION) {
+            probation.unlink(node);
+        } else if (node.queue == PROTECTED) {
+            protectedSpace.unlink(node);
+        }
+        node.queue = NONE;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private volatile V value;
+        private volatile long writeTime;
+        private volatile long accessTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private int queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key, V value, long now) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * Access ordered doubly linked list, the least recently used node first
+     */
+    private static final class NodeDeque<K, V> {
+        private final Node<K, V> head = new Node<>(null, null, 0);
+        private long size;
+
+        private NodeDeque() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private void addLast(Node<K, V> node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            size++;
+        }
+
+        private void unlink(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        private Node<K, V> peekFirst() {
+            return head.next == head ? null : head.next;
+        }
+
+        private Node<K, V> pollFirst() {
+            Node<K, V> node = peekFirst();
+            if (node != null) {
+                unlink(node);
+            }
+            return node;
+        }
+
+        private void moveToBack(Node<K, V> node) {
+            unlink(node);
+            addLast(node);
+        }
+    }
+}
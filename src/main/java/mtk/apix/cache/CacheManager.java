@@ -0,0 +1,83 @@
+package mtk.apix.cache;
+
+import io.vertx.core.Vertx;
+import mtk.apix.util.ConsoleLog;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Registry of the named caches of the application, available as component.
+ * Caches are created by {@link mtk.apix.annotation.Cacheable} methods or directly with {@link #getOrCreateCache}.
+ * Expired entries are removed every second on a worker thread.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+public class CacheManager {
+    private static final long CLEAN_UP_PERIOD = 1000;
+
+    private final Map<String, ApixCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private final Executor refreshExecutor;
+
+    public CacheManager(Vertx vertx) {
+        if (vertx != null) {
+            refreshExecutor = command -> vertx.executeBlocking(() -> {
+                command.run();
+                return null;
+            }, false);
+            vertx.setPeriodic(CLEAN_UP_PERIOD, id -> {
+                if (!caches.isEmpty()) {
+                    vertx.executeBlocking(() -> {
+                        caches.values().forEach(ApixCache::cleanUp);
+                        return null;
+                    }, true);
+                }
+            });
+        } else {
+            refreshExecutor = Runnable::run;
+        }
+    }
+
+    /**
+     * Give the cache with the given name, it is created with the given settings if it doesn't exist
+     *
+     * @param name                    cache name
+     * @param maxSize                 max number of entries
+     * @param expireAfterWriteMillis  0 to disable
+     * @param expireAfterAccessMillis 0 to disable
+     * @param refreshAfterMillis      0 to disable
+     * @return the cache
+     */
+    public <K, V> ApixCache<K, V> getOrCreateCache(String name, long maxSize, long expireAfterWriteMillis, long expireAfterAccessMillis, long refreshAfterMillis) {
+        return (ApixCache<K, V>) caches.computeIfAbsent(name, n -> {
+            ConsoleLog.trace("Cache created: " + n + " (maxSize: " + maxSize + ")");
+            return new ApixCache<>(n, maxSize, expireAfterWriteMillis, expireAfterAccessMillis, refreshAfterMillis, refreshExecutor);
+        });
+    }
+
+    /**
+     * @param name cache name
+     * @return the cache or null if it doesn't exist
+     */
+    public <K, V> ApixCache<K, V> getCache(String name) {
+        return (ApixCache<K, V>) caches.get(name);
+    }
+
+    public Collection<ApixCache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * @return statistics of every cache by name
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new TreeMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+}
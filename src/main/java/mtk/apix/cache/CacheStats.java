@@ -0,0 +1,95 @@
+package mtk.apix.cache;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Statistics snapshot of an {@link ApixCache}
+ *
+ * @author mahatoky rasolonirina
+ */
+public class CacheStats {
+    private final String name;
+    private final long size;
+    private final long maxSize;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long evictionCount;
+    private final long totalLoadTime;
+
+    public CacheStats(String name, long size, long maxSize, long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long evictionCount, long totalLoadTime) {
+        this.name = name;
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.evictionCount = evictionCount;
+        this.totalLoadTime = totalLoadTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return total time spent loading values, in nanoseconds
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("name", name)
+                .put("size", size)
+                .put("maxSize", maxSize)
+                .put("hitCount", hitCount)
+                .put("missCount", missCount)
+                .put("hitRate", getHitRate())
+                .put("loadSuccessCount", loadSuccessCount)
+                .put("loadFailureCount", loadFailureCount)
+                .put("evictionCount", evictionCount)
+                .put("totalLoadTimeNanos", totalLoadTime);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
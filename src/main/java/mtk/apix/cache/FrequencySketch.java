@@ -0,0 +1,78 @@
+package mtk.apix.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was accessed (TinyLFU).
+ * Counters are halved once the number of increments reaches 10 times the cache size, so old popularity fades.
+ * Not thread safe: used under the eviction lock of {@link ApixCache}.
+ *
+ * @author mahatoky rasolonirina
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final long sampleSize;
+    private long additions;
+
+    FrequencySketch(long maxSize) {
+        int capacity = (int) Math.min(Math.max(maxSize, 16), 1 << 28);
+        int length = Integer.highestOneBit(capacity - 1) << 1;
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = 10L * capacity;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shiftOf(hash, i)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int shift = shiftOf(hash, i);
+            if (((table[index] >>> shift) & 0xF) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Each long holds 16 counters, the counter used depends on the hash and on the row
+     */
+    private int shiftOf(int hash, int i) {
+        return ((hash >>> (i << 3)) & 0xF) << 2;
+    }
+
+    private int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
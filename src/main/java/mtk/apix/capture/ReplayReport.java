@@ -0,0 +1,82 @@
+package mtk.apix.capture;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of a {@link TrafficReplay}: latency percentiles of the successful requests, errors and statuses
+ *
+ * @author mahatoky rasolonirina
+ */
+public class ReplayReport {
+
+    private final long[] latencies;
+    private final long errors;
+    private final Map<Integer, Long> statuses;
+    private final long durationNanos;
+
+    /**
+     * @param latencies     latency of each completed request in nanoseconds
+     * @param errors        requests without response
+     * @param statuses      number of responses per status
+     * @param durationNanos duration of the replay
+     */
+    public ReplayReport(long[] latencies, long errors, Map<Integer, Long> statuses, long durationNanos) {
+        this.latencies = latencies.clone();
+        Arrays.sort(this.latencies);
+        this.errors = errors;
+        this.statuses = new TreeMap<>(statuses);
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in milliseconds at the given percentile (nearest rank), 0 without completed request
+     */
+    public double getLatencyMillis(double percentile) {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+        return millis(latencies[Math.max(0, Math.min(latencies.length - 1, rank - 1))]);
+    }
+
+    public long getRequests() {
+        return latencies.length + errors;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public JsonObject toJson() {
+        JsonObject statusesJson = new JsonObject();
+        statuses.forEach((status, count) -> statusesJson.put(String.valueOf(status), count));
+        double seconds = durationNanos / 1_000_000_000.0;
+        return new JsonObject()
+                .put("requests", getRequests())
+                .put("errors", errors)
+                .put("statuses", statusesJson)
+                .put("durationMillis", millis(durationNanos))
+                .put("throughput", seconds > 0 ? Math.round(getRequests() / seconds * 10) / 10.0 : 0)
+                .put("latencyMillis", new JsonObject()
+                        .put("mean", latencies.length > 0 ? millis(Arrays.stream(latencies).sum() / latencies.length) : 0)
+                        .put("p50", getLatencyMillis(50))
+                        .put("p90", getLatencyMillis(90))
+                        .put("p99", getLatencyMillis(99))
+                        .put("p999", getLatencyMillis(99.9))
+                        .put("max", getLatencyMillis(100)));
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encodePrettily();
+    }
+}
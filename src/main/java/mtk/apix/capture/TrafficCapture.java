@@ -0,0 +1,179 @@
+package mtk.apix.capture;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.util.ConsoleLog;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Capture of live requests in a {@link TrafficFile}, available as component when enabled (apix.capture.enabled).
+ * A sample of the requests is recorded: method, uri, allowed headers, body and time since the previous recorded request.
+ * Records are written asynchronously from a single context; when the write queue is full or the file reaches its max size, records are dropped.
+ * To register after the body handler, so the body is read.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class TrafficCapture implements Handler<RoutingContext> {
+
+    public static final String DEFAULT_FILE = "apix-capture.bin";
+    public static final double DEFAULT_SAMPLE_RATE = 0.01;
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+    public static final String DEFAULT_HEADERS = "Content-Type,Accept,Accept-Encoding";
+    private static final int WRITE_QUEUE_MAX_SIZE = 1024 * 1024;
+
+    private final Vertx vertx;
+    private final String file;
+    private final double sampleRate;
+    private final long maxSize;
+    private final int maxBodySize;
+    private final Set<String> headers;
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong lastCapture = new AtomicLong();
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean active;
+    private AsyncFile asyncFile;
+    private Context context;
+
+    /**
+     * @param vertx       vertx instance
+     * @param file        capture file, replaced when the capture starts
+     * @param sampleRate  part of the requests to record, between 0 and 1
+     * @param maxSize     max size of the file in bytes, the capture stops when it is reached
+     * @param maxBodySize requests with a larger body aren't recorded
+     * @param headers     names of the headers to record, other headers (ex: Authorization, Cookie) are never recorded
+     */
+    public TrafficCapture(Vertx vertx, String file, double sampleRate, long maxSize, int maxBodySize, Collection<String> headers) {
+        this.vertx = vertx;
+        this.file = file;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.maxSize = maxSize;
+        this.maxBodySize = maxBodySize;
+        this.headers = headers.stream().map(String::trim).filter(name -> !name.isEmpty()).map(name -> name.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+    }
+
+    /**
+     * Open the file and start recording
+     *
+     * @return future completed when the capture is started
+     */
+    public Future<Void> start() {
+        context = vertx.getOrCreateContext();
+        return vertx.fileSystem().open(file, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true))
+                .map(opened -> {
+                    asyncFile = opened.setWriteQueueMaxSize(WRITE_QUEUE_MAX_SIZE);
+                    Buffer header = TrafficFile.header();
+                    asyncFile.write(header);
+                    size.set(header.length());
+                    active = true;
+                    ConsoleLog.trace("Capture: recording " + (sampleRate * 100) + "% of the requests in " + file);
+                    return null;
+                });
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        if (active && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            capture(routingContext);
+        }
+        routingContext.next();
+    }
+
+    private void capture(RoutingContext routingContext) {
+        Buffer body = routingContext.body() != null && routingContext.body().buffer() != null ? routingContext.body().buffer() : Buffer.buffer();
+        if (body.length() > maxBodySize) {
+            dropped.increment();
+            return;
+        }
+        MultiMap recordedHeaders = MultiMap.caseInsensitiveMultiMap();
+        routingContext.request().headers().forEach(header -> {
+            if (headers.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                recordedHeaders.add(header.getKey(), header.getValue());
+            }
+        });
+        long now = System.nanoTime();
+        long previous = lastCapture.getAndSet(now);
+        Buffer record;
+        try {
+            record = TrafficFile.encode(new TrafficRecord(previous == 0 ? 0 : (now - previous) / 1000, routingContext.request().method(), routingContext.request().uri(), recordedHeaders, body));
+        } catch (IllegalArgumentException e) {
+            dropped.increment();
+            return;
+        }
+        if (size.addAndGet(record.length()) > maxSize) {
+            size.addAndGet(-record.length());
+            dropped.increment();
+            if (active) {
+                active = false;
+                ConsoleLog.info("Capture: max size reached, " + file + " is complete");
+            }
+            return;
+        }
+        context.runOnContext(v -> {
+            if (asyncFile == null || asyncFile.writeQueueFull()) {
+                size.addAndGet(-record.length());
+                dropped.increment();
+                return;
+            }
+            asyncFile.write(record);
+            captured.increment();
+        });
+    }
+
+    /**
+     * Stop recording and close the file
+     *
+     * @return future completed when the file is closed
+     */
+    public Future<Void> close() {
+        active = false;
+        if (context == null) {
+            return Future.succeededFuture();
+        }
+        return Future.<Void>future(promise -> context.runOnContext(v -> {
+            if (asyncFile == null) {
+                promise.complete();
+                return;
+            }
+            AsyncFile closing = asyncFile;
+            asyncFile = null;
+            closing.close().onComplete(promise);
+        }));
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("active", active)
+                .put("file", file)
+                .put("sampleRate", sampleRate)
+                .put("captured", captured.sum())
+                .put("dropped", dropped.sum())
+                .put("size", size.get())
+                .put("maxSize", maxSize);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
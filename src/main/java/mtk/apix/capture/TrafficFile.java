@@ -0,0 +1,115 @@
+package mtk.apix.capture;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of the capture files.
+ * - header: magic "APXC", version (1 byte)
+ * - records: length of the record (int), then inter-arrival time in microseconds (long), method, uri, header count (short),
+ * header names and values, body length (int) and body bytes. Strings are written as length (short) and UTF-8 bytes
+ * A truncated last record (file size limit, crash) is ignored when reading.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class TrafficFile {
+
+    private static final byte[] MAGIC = {'A', 'P', 'X', 'C'};
+    private static final byte VERSION = 1;
+
+    private TrafficFile() {
+    }
+
+    /**
+     * @return header of a capture file
+     */
+    public static Buffer header() {
+        return Buffer.buffer(MAGIC.length + 1).appendBytes(MAGIC).appendByte(VERSION);
+    }
+
+    /**
+     * @param record request to write
+     * @return the length-prefixed record
+     * @throws IllegalArgumentException if the uri, a header or the header count is too large
+     */
+    public static Buffer encode(TrafficRecord record) {
+        Buffer content = Buffer.buffer(64 + record.getUri().length() + record.getBody().length());
+        content.appendLong(record.getInterArrivalMicros());
+        appendString(content, record.getMethod().name());
+        appendString(content, record.getUri());
+        if (record.getHeaders().size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many headers for a capture record");
+        }
+        content.appendShort((short) record.getHeaders().size());
+        for (Map.Entry<String, String> header : record.getHeaders()) {
+            appendString(content, header.getKey());
+            appendString(content, header.getValue());
+        }
+        content.appendInt(record.getBody().length()).appendBuffer(record.getBody());
+        return Buffer.buffer(content.length() + 4).appendInt(content.length()).appendBuffer(content);
+    }
+
+    /**
+     * @param file content of a capture file
+     * @return recorded requests
+     * @throws IllegalArgumentException if the content isn't a capture file
+     */
+    public static List<TrafficRecord> read(Buffer file) {
+        if (file.length() < MAGIC.length + 1 || !file.getBuffer(0, MAGIC.length).equals(Buffer.buffer(MAGIC))) {
+            throw new IllegalArgumentException("Not a capture file");
+        }
+        if (file.getByte(MAGIC.length) != VERSION) {
+            throw new IllegalArgumentException("Unsupported capture file version: " + file.getByte(MAGIC.length));
+        }
+        List<TrafficRecord> records = new ArrayList<>();
+        int position = MAGIC.length + 1;
+        while (position + 4 <= file.length()) {
+            int length = file.getInt(position);
+            if (length <= 0 || position + 4 + length > file.length()) {
+                break;
+            }
+            records.add(decode(file.getBuffer(position + 4, position + 4 + length)));
+            position += 4 + length;
+        }
+        return records;
+    }
+
+    private static TrafficRecord decode(Buffer content) {
+        int[] position = {0};
+        long interArrivalMicros = content.getLong(0);
+        position[0] += 8;
+        HttpMethod method = HttpMethod.valueOf(readString(content, position));
+        String uri = readString(content, position);
+        int headerCount = content.getShort(position[0]);
+        position[0] += 2;
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        for (int i = 0; i < headerCount; i++) {
+            headers.add(readString(content, position), readString(content, position));
+        }
+        int bodyLength = content.getInt(position[0]);
+        position[0] += 4;
+        Buffer body = content.getBuffer(position[0], position[0] + bodyLength);
+        return new TrafficRecord(interArrivalMicros, method, uri, headers, body);
+    }
+
+    private static void appendString(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for a capture record: " + bytes.length + " bytes");
+        }
+        buffer.appendShort((short) bytes.length).appendBytes(bytes);
+    }
+
+    private static String readString(Buffer buffer, int[] position) {
+        int length = buffer.getUnsignedShort(position[0]);
+        String value = buffer.getString(position[0] + 2, position[0] + 2 + length, StandardCharsets.UTF_8.name());
+        position[0] += 2 + length;
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package mtk.apix.capture;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+
+/**
+ * Request recorded by {@link TrafficCapture}
+ *
+ * @author mahatoky rasolonirina
+ */
+public class TrafficRecord {
+
+    private final long interArrivalMicros;
+    private final HttpMethod method;
+    private final String uri;
+    private final MultiMap headers;
+    private final Buffer body;
+
+    /**
+     * @param interArrivalMicros time since the previous recorded request in microseconds
+     * @param method             http method
+     * @param uri                path and query
+     * @param headers            recorded headers
+     * @param body               body, empty if none
+     */
+    public TrafficRecord(long interArrivalMicros, HttpMethod method, String uri, MultiMap headers, Buffer body) {
+        this.interArrivalMicros = interArrivalMicros;
+        this.method = method;
+        this.uri = uri;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public long getInterArrivalMicros() {
+        return interArrivalMicros;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public MultiMap getHeaders() {
+        return headers;
+    }
+
+    public Buffer getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return method.name() + " " + uri;
+    }
+}
@@ -0,0 +1,208 @@
+package mtk.apix.capture;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.ext.web.Router;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replay of a {@link TrafficFile} against an Apix instance, through http or through a router in the same JVM.
+ * - speed > 0: requests are sent at their recorded times divided by the speed (1 = recorded pace), without waiting for responses
+ * - speed 0: requests are sent as fast as possible, concurrency at a time
+ * Command line: java -cp [classpath] mtk.apix.capture.TrafficReplay [file] [url] [speed] [concurrency]
+ *
+ * @author mahatoky rasolonirina
+ */
+public class TrafficReplay {
+
+    public static final double DEFAULT_SPEED = 1;
+    public static final int DEFAULT_CONCURRENCY = 64;
+    private static final long REQUEST_IDLE_TIMEOUT = 30000;
+
+    private final Vertx vertx;
+    private final List<TrafficRecord> records;
+    private final double speed;
+    private final int concurrency;
+
+    /**
+     * @param vertx       vertx instance
+     * @param records     requests to replay
+     * @param speed       replay speed, 0 for as fast as possible
+     * @param concurrency max requests in flight, only when the speed is 0
+     */
+    public TrafficReplay(Vertx vertx, List<TrafficRecord> records, double speed, int concurrency) {
+        this.vertx = vertx;
+        this.records = new ArrayList<>(records);
+        this.speed = speed;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Replay through a loopback server in front of the given router
+     *
+     * @param router application router
+     * @return report of the replay
+     */
+    public Future<ReplayReport> run(Router router) {
+        HttpServer server = vertx.createHttpServer(new HttpServerOptions().setHost("127.0.0.1"));
+        return server.requestHandler(router).listen(0).compose(listening -> {
+            HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+                            .setDefaultHost("127.0.0.1")
+                            .setDefaultPort(listening.actualPort())
+                            .setKeepAlive(true),
+                    new PoolOptions().setHttp1MaxSize(concurrency));
+            return run(client).eventually(() -> client.close());
+        }).eventually(() -> server.close());
+    }
+
+    /**
+     * @param client client whose default host and port are those of the application
+     * @return report of the replay
+     */
+    public Future<ReplayReport> run(HttpClient client) {
+        long[] latencies = new long[records.size()];
+        boolean[] completed = new boolean[records.size()];
+        LongAdder errors = new LongAdder();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        AtomicInteger remaining = new AtomicInteger(records.size());
+        Promise<ReplayReport> done = Promise.promise();
+        long start = System.nanoTime();
+        if (records.isEmpty()) {
+            return Future.succeededFuture(new ReplayReport(new long[0], 0, new ConcurrentHashMap<>(), 0));
+        }
+        ResultHandler sent = (index, ar) -> {
+            if (ar.succeeded()) {
+                latencies[index] = ar.result()[1];
+                completed[index] = true;
+                statuses.computeIfAbsent((int) ar.result()[0], status -> new LongAdder()).increment();
+            } else {
+                errors.increment();
+            }
+            if (remaining.decrementAndGet() == 0) {
+                List<Long> completedLatencies = new ArrayList<>();
+                for (int i = 0; i < latencies.length; i++) {
+                    if (completed[i]) {
+                        completedLatencies.add(latencies[i]);
+                    }
+                }
+                Map<Integer, Long> statusCounts = new ConcurrentHashMap<>();
+                statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+                done.complete(new ReplayReport(completedLatencies.stream().mapToLong(Long::longValue).toArray(), errors.sum(), statusCounts, System.nanoTime() - start));
+            }
+        };
+        if (speed > 0) {
+            long[] due = new long[records.size()];
+            long offset = 0;
+            for (int i = 0; i < due.length; i++) {
+                offset += (long) (records.get(i).getInterArrivalMicros() * 1000 / speed);
+                due[i] = offset;
+            }
+            schedule(client, due, 0, start, sent);
+        } else {
+            AtomicLong next = new AtomicLong();
+            for (int i = 0; i < Math.min(concurrency, records.size()); i++) {
+                sendNext(client, next, sent);
+            }
+        }
+        return done.future();
+    }
+
+    /**
+     * Send the requests due from the given index, then wait with a timer for the next one
+     *
+     * @param due time of each request since the start in nanoseconds
+     */
+    private void schedule(HttpClient client, long[] due, int index, long start, ResultHandler sent) {
+        for (int i = index; i < records.size(); i++) {
+            long delayMillis = TimeUnit.NANOSECONDS.toMillis(start + due[i] - System.nanoTime());
+            if (delayMillis >= 1) {
+                int next = i;
+                vertx.setTimer(delayMillis, id -> schedule(client, due, next, start, sent));
+                return;
+            }
+            int sentIndex = i;
+            send(client, records.get(i)).onComplete(ar -> sent.handle(sentIndex, ar));
+        }
+    }
+
+    private void sendNext(HttpClient client, AtomicLong next, ResultHandler sent) {
+        int index = (int) next.getAndIncrement();
+        if (index >= records.size()) {
+            return;
+        }
+        send(client, records.get(index)).onComplete(ar -> {
+            sent.handle(index, ar);
+            sendNext(client, next, sent);
+        });
+    }
+
+    /**
+     * @return status and latency in nanoseconds of the response
+     */
+    private Future<long[]> send(HttpClient client, TrafficRecord record) {
+        long start = System.nanoTime();
+        RequestOptions options = new RequestOptions()
+                .setMethod(record.getMethod())
+                .setURI(record.getUri())
+                .setHeaders(record.getHeaders())
+                .setIdleTimeout(REQUEST_IDLE_TIMEOUT);
+        return client.request(options)
+                .compose(request -> record.getBody().length() > 0 ? request.send(record.getBody()) : request.send())
+                .compose(response -> response.body().map(body -> new long[]{response.statusCode(), System.nanoTime() - start}));
+    }
+
+    private interface ResultHandler {
+        void handle(int index, AsyncResult<long[]> result);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: TrafficReplay [capture file] [url, ex: http://localhost:9204] [speed, default 1, 0 = as fast as possible] [concurrency, default 64]");
+            return;
+        }
+        List<TrafficRecord> records = TrafficFile.read(Buffer.buffer(Files.readAllBytes(Paths.get(args[0]))));
+        URI url = new URI(args[1]);
+        boolean ssl = "https".equalsIgnoreCase(url.getScheme());
+        double speed = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_SPEED;
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CONCURRENCY;
+        Vertx vertx = Vertx.vertx();
+        HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+                        .setDefaultHost(url.getHost())
+                        .setDefaultPort(url.getPort() > 0 ? url.getPort() : ssl ? 443 : 80)
+                        .setSsl(ssl)
+                        .setTrustAll(ssl)
+                        .setVerifyHost(false)
+                        .setKeepAlive(true),
+                new PoolOptions().setHttp1MaxSize(concurrency));
+        System.out.println("Replaying " + records.size() + " request(s) on " + url + " at " + (speed > 0 ? speed + "x" : "max speed"));
+        new TrafficReplay(vertx, records, speed, concurrency).run(client)
+                .onComplete(ar -> {
+                    if (ar.succeeded()) {
+                        System.out.println(ar.result());
+                    } else {
+                        ar.cause().printStackTrace();
+                    }
+                    vertx.close();
+                });
+    }
+}
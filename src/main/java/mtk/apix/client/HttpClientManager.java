@@ -0,0 +1,97 @@
+package mtk.apix.client;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import mtk.apix.constant.PropertyKeys;
+import mtk.apix.util.ClassUtil;
+import mtk.apix.util.ConsoleLog;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared pooled http clients of the application, available as component.
+ * The default client is configured with the apix.http-client.* properties, connections are pooled per host.
+ * A host can override any setting with apix.http-client.host.[host].* : it then gets its own client.
+ * Settings: maxPoolSize, http2MaxPoolSize, http2MultiplexingLimit, protocol (HTTP_1_1 or HTTP_2), http2ClearTextUpgrade,
+ * pipelining, pipeliningLimit, keepAlive, keepAliveTimeout (s), connectTimeout (ms), idleTimeout (s), maxWaitQueueSize
+ *
+ * @author mahatoky rasolonirina
+ */
+public class HttpClientManager {
+
+    private static final String HOST = "host.";
+
+    private final Vertx vertx;
+    private final Properties properties;
+    private final HttpClient defaultClient;
+    private final Map<String, HttpClient> hostClients = new ConcurrentHashMap<>();
+
+    public HttpClientManager(Vertx vertx, Properties properties) {
+        this.vertx = vertx;
+        this.properties = properties != null ? properties : new Properties();
+        this.defaultClient = createClient(null);
+    }
+
+    /**
+     * @return the client configured with the apix.http-client.* properties
+     */
+    public HttpClient getClient() {
+        return defaultClient;
+    }
+
+    /**
+     * @param host host to call
+     * @return the client of the host if it has its own settings, otherwise the default client
+     */
+    public HttpClient getClient(String host) {
+        if (host == null || !hasHostSettings(host)) {
+            return defaultClient;
+        }
+        return hostClients.computeIfAbsent(host, this::createClient);
+    }
+
+    private boolean hasHostSettings(String host) {
+        String prefix = PropertyKeys.HTTP_CLIENT_PREFIX + HOST + host + ".";
+        return properties.stringPropertyNames().stream().anyMatch(key -> key.startsWith(prefix));
+    }
+
+    private HttpClient createClient(String host) {
+        HttpClientOptions options = new HttpClientOptions()
+                .setKeepAlive(setting(host, "keepAlive", Boolean.class, HttpClientOptions.DEFAULT_KEEP_ALIVE))
+                .setKeepAliveTimeout(setting(host, "keepAliveTimeout", Integer.class, HttpClientOptions.DEFAULT_KEEP_ALIVE_TIMEOUT))
+                .setPipelining(setting(host, "pipelining", Boolean.class, HttpClientOptions.DEFAULT_PIPELINING))
+                .setPipeliningLimit(setting(host, "pipeliningLimit", Integer.class, HttpClientOptions.DEFAULT_PIPELINING_LIMIT))
+                .setHttp2MultiplexingLimit(setting(host, "http2MultiplexingLimit", Integer.class, HttpClientOptions.DEFAULT_HTTP2_MULTIPLEXING_LIMIT))
+                .setHttp2ClearTextUpgrade(setting(host, "http2ClearTextUpgrade", Boolean.class, HttpClientOptions.DEFAULT_HTTP2_CLEAR_TEXT_UPGRADE))
+                .setConnectTimeout(setting(host, "connectTimeout", Integer.class, HttpClientOptions.DEFAULT_CONNECT_TIMEOUT))
+                .setIdleTimeout(setting(host, "idleTimeout", Integer.class, HttpClientOptions.DEFAULT_IDLE_TIMEOUT));
+        if (HttpVersion.HTTP_2.name().equalsIgnoreCase(setting(host, "protocol", String.class, null))) {
+            options.setProtocolVersion(HttpVersion.HTTP_2).setUseAlpn(true);
+        }
+        PoolOptions poolOptions = new PoolOptions();
+        poolOptions.setHttp1MaxSize(setting(host, "maxPoolSize", Integer.class, poolOptions.getHttp1MaxSize()))
+                .setHttp2MaxSize(setting(host, "http2MaxPoolSize", Integer.class, poolOptions.getHttp2MaxSize()))
+                .setMaxWaitQueueSize(setting(host, "maxWaitQueueSize", Integer.class, poolOptions.getMaxWaitQueueSize()));
+        ConsoleLog.trace("Http client created" + (host != null ? " for " + host : "") + " (protocol: " + options.getProtocolVersion() + ", maxPoolSize: " + poolOptions.getHttp1MaxSize() + ")");
+        return vertx.createHttpClient(options, poolOptions);
+    }
+
+    /**
+     * Value of the host setting, or of the default setting if the host doesn't override it
+     */
+    private <T> T setting(String host, String name, Class<T> type, T defaultValue) {
+        String value = null;
+        if (host != null) {
+            value = properties.getProperty(PropertyKeys.HTTP_CLIENT_PREFIX + HOST + host + "." + name);
+        }
+        if (value == null) {
+            value = properties.getProperty(PropertyKeys.HTTP_CLIENT_PREFIX + name);
+        }
+        return ClassUtil.valueOf(value != null ? value.trim() : null, type, defaultValue);
+    }
+}
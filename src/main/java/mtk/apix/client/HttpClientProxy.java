@@ -0,0 +1,364 @@
+package mtk.apix.client;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.jackson.DatabindCodec;
+import mtk.apix.annotation.*;
+import mtk.apix.exception.DependencyException;
+import mtk.apix.exception.HttpClientException;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.Trace;
+import mtk.apix.util.ContentCodec;
+import mtk.apix.util.Deadline;
+import mtk.apix.util.ResponseWriter;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implementation of the interfaces annotated with {@link mtk.apix.annotation.HttpClient}.
+ * Requests are described once per method when the proxy is created, calls only fill the path, query and body.
+ * The remaining time of the current request {@link Deadline} bounds the call.
+ * The call is a span of the current {@link Trace}, given to the called service with the traceparent header.
+ * Default methods of the interface are called on the proxy, so they can build on the request methods.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class HttpClientProxy implements InvocationHandler {
+
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+
+    private final String name;
+    private final Map<Method, RequestTemplate> templates;
+    private final Map<Method, MethodHandle> defaultMethods;
+
+    private HttpClientProxy(String name, Map<Method, RequestTemplate> templates, Map<Method, MethodHandle> defaultMethods) {
+        this.name = name;
+        this.templates = templates;
+        this.defaultMethods = defaultMethods;
+    }
+
+    /**
+     * Create the implementation of the given interface
+     *
+     * @param clientInterface interface annotated with {@link mtk.apix.annotation.HttpClient}
+     * @param clientManager   pooled clients
+     * @param properties      application properties, used to resolve the base url
+     * @return the implementation
+     */
+    public static Object create(Class<?> clientInterface, HttpClientManager clientManager, Properties properties) {
+        if (!clientInterface.isInterface()) {
+            throw new DependencyException("@HttpClient must be put on an interface: " + clientInterface.getName());
+        }
+        URI baseUri;
+        try {
+            baseUri = URI.create(resolve(clientInterface.getAnnotation(mtk.apix.annotation.HttpClient.class).value(), properties));
+        } catch (IllegalArgumentException e) {
+            throw new DependencyException("Invalid base url on " + clientInterface.getName() + ": " + e.getMessage());
+        }
+        if (baseUri.getHost() == null) {
+            throw new DependencyException("Base url of " + clientInterface.getName() + " must be absolute, ex: http://host:port/path");
+        }
+        Map<Method, RequestTemplate> templates = new HashMap<>();
+        Map<Method, MethodHandle> defaultMethods = new HashMap<>();
+        for (Method method : clientInterface.getMethods()) {
+            if (method.isDefault()) {
+                defaultMethods.put(method, defaultMethod(method));
+            } else if (!Modifier.isStatic(method.getModifiers())) {
+                templates.put(method, new RequestTemplate(clientInterface, method, baseUri, clientManager.getClient(baseUri.getHost())));
+            }
+        }
+        return Proxy.newProxyInstance(clientInterface.getClassLoader(), new Class<?>[]{clientInterface}, new HttpClientProxy(clientInterface.getName(), templates, defaultMethods));
+    }
+
+    /**
+     * Handle of the default method, to be bound to the proxy.
+     * A private lookup in the interface is needed: MethodHandles.privateLookupIn on Java 9+, the private Lookup constructor on Java 8
+     *
+     * @param method default method of an interface
+     * @return handle calling the default implementation
+     * @throws DependencyException if the JVM doesn't give access to the default method
+     */
+    private static MethodHandle defaultMethod(Method method) {
+        Class<?> declaringInterface = method.getDeclaringClass();
+        try {
+            MethodHandles.Lookup lookup;
+            try {
+                Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+                lookup = (MethodHandles.Lookup) privateLookupIn.invoke(null, declaringInterface, MethodHandles.lookup());
+            } catch (NoSuchMethodException e) {
+                Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+                constructor.setAccessible(true);
+                lookup = constructor.newInstance(declaringInterface, MethodHandles.Lookup.PRIVATE);
+            }
+            return lookup.unreflectSpecial(method, declaringInterface);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new DependencyException("Can't call the default method " + declaringInterface.getName() + "." + method.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static String resolve(String value, Properties properties) {
+        Matcher matcher = PROPERTY.matcher(value);
+        StringBuffer resolved = new StringBuffer();
+        while (matcher.find()) {
+            String property = properties.getProperty(matcher.group(1));
+            if (property == null) {
+                throw new DependencyException("Property '" + matcher.group(1) + "' not found");
+            }
+            matcher.appendReplacement(resolved, Matcher.quoteReplacement(property.trim()));
+        }
+        matcher.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        RequestTemplate template = templates.get(method);
+        if (template != null) {
+            return template.call(args != null ? args : new Object[0]);
+        }
+        MethodHandle defaultMethod = defaultMethods.get(method);
+        if (defaultMethod != null) {
+            return defaultMethod.bindTo(proxy).invokeWithArguments(args != null ? args : new Object[0]);
+        }
+        if (method.getName().equals("toString") && method.getParameterCount() == 0) {
+            return "HttpClient(" + name + ")";
+        }
+        if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+            return System.identityHashCode(proxy);
+        }
+        if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+            return proxy == args[0];
+        }
+        // every method of the interface is a request or a default method
+        throw new IllegalStateException("No implementation of " + method);
+    }
+
+    /**
+     * Request described by an interface method
+     */
+    private static class RequestTemplate {
+        private final HttpClient client;
+        private final HttpMethod httpMethod;
+        private final String host;
+        private final int port;
+        private final boolean ssl;
+        private final String path;
+        private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        private final Pattern[] pathVariables;
+        private final String[] requestParams;
+        private int bodyIndex = -1;
+        private ContentCodec bodyCodec;
+        private final Type resultType;
+        private final Class<?> resultClass;
+
+        private RequestTemplate(Class<?> clientInterface, Method method, URI baseUri, HttpClient client) {
+            String methodName = clientInterface.getName() + "." + method.getName();
+            if (!Future.class.equals(method.getReturnType())) {
+                throw new DependencyException("@HttpClient method " + methodName + " must return a Future");
+            }
+            String value;
+            String consume;
+            String produce;
+            String[] headerValues = {};
+            if (method.isAnnotationPresent(GetMapping.class)) {
+                GetMapping mapping = method.getAnnotation(GetMapping.class);
+                httpMethod = HttpMethod.GET;
+                value = first(mapping.value());
+                consume = mapping.consume();
+                produce = mapping.produce();
+                headerValues = mapping.headers();
+            } else if (method.isAnnotationPresent(PostMapping.class)) {
+                PostMapping mapping = method.getAnnotation(PostMapping.class);
+                httpMethod = HttpMethod.POST;
+                value = first(mapping.value());
+                consume = mapping.consume();
+                produce = mapping.produce();
+                headerValues = mapping.headers();
+            } else if (method.isAnnotationPresent(PutMapping.class)) {
+                PutMapping mapping = method.getAnnotation(PutMapping.class);
+                httpMethod = HttpMethod.PUT;
+                value = first(mapping.value());
+                consume = mapping.consume();
+                produce = mapping.produce();
+                headerValues = mapping.headers();
+            } else if (method.isAnnotationPresent(DeleteMapping.class)) {
+                DeleteMapping mapping = method.getAnnotation(DeleteMapping.class);
+                httpMethod = HttpMethod.DELETE;
+                value = first(mapping.value());
+                consume = mapping.consume();
+                produce = mapping.produce();
+            } else {
+                throw new DependencyException("@HttpClient method " + methodName + " must be annotated with @GetMapping, @PostMapping, @PutMapping or @DeleteMapping");
+            }
+
+            this.client = client;
+            this.ssl = "https".equalsIgnoreCase(baseUri.getScheme());
+            this.host = baseUri.getHost();
+            this.port = baseUri.getPort() != -1 ? baseUri.getPort() : ssl ? 443 : 80;
+            String basePath = baseUri.getRawPath() == null ? "" : baseUri.getRawPath();
+            this.path = (basePath.endsWith("/") ? basePath.substring(0, basePath.length() - 1) : basePath) + value;
+
+            // the consumed type of the server method is the type sent by the client, the produced type is the one accepted
+            if (!produce.isEmpty()) {
+                headers.set(HttpHeaders.ACCEPT, produce);
+            }
+            for (String header : headerValues) {
+                int separator = header.indexOf(':');
+                if (separator > 0) {
+                    headers.add(header.substring(0, separator).trim(), header.substring(separator + 1).trim());
+                }
+            }
+
+            Parameter[] parameters = method.getParameters();
+            pathVariables = new Pattern[parameters.length];
+            requestParams = new String[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                Parameter parameter = parameters[i];
+                if (parameter.isAnnotationPresent(PathVariable.class)) {
+                    pathVariables[i] = pathVariable(nameOf(parameter.getAnnotation(PathVariable.class).value(), parameter));
+                } else if (parameter.isAnnotationPresent(PathParam.class)) {
+                    pathVariables[i] = pathVariable(nameOf(parameter.getAnnotation(PathParam.class).value(), parameter));
+                } else if (parameter.isAnnotationPresent(RequestParam.class)) {
+                    requestParams[i] = nameOf(parameter.getAnnotation(RequestParam.class).value(), parameter);
+                } else if (parameter.isAnnotationPresent(RequestBody.class)) {
+                    bodyIndex = i;
+                    if (!consume.isEmpty()) {
+                        headers.set(HttpHeaders.CONTENT_TYPE, ContentCodec.first(consume));
+                        bodyCodec = ContentCodec.of(ContentCodec.first(consume));
+                    }
+                } else {
+                    throw new DependencyException("Parameter " + i + " of @HttpClient method " + methodName + " must be annotated with @PathVariable, @RequestParam or @RequestBody");
+                }
+            }
+
+            Type returnType = method.getGenericReturnType();
+            this.resultType = returnType instanceof ParameterizedType ? ((ParameterizedType) returnType).getActualTypeArguments()[0] : Object.class;
+            this.resultClass = DatabindCodec.mapper().getTypeFactory().constructType(resultType).getRawClass();
+        }
+
+        private static String first(String[] values) {
+            return values.length > 0 ? values[0] : "";
+        }
+
+        private static Pattern pathVariable(String name) {
+            return Pattern.compile(":" + Pattern.quote(name) + "(?![A-Za-z0-9_])");
+        }
+
+        private static String nameOf(String value, Parameter parameter) {
+            return value == null || value.isEmpty() ? parameter.getName() : value;
+        }
+
+        private Future<Object> call(Object[] args) {
+            Deadline deadline = Deadline.current();
+            if (deadline.isExpired()) {
+                return Future.failedFuture(new TimeoutException("Deadline exceeded before calling " + httpMethod + " " + host + path));
+            }
+            String uri = uri(args);
+            RequestOptions options = new RequestOptions()
+                    .setMethod(httpMethod)
+                    .setHost(host)
+                    .setPort(port)
+                    .setSsl(ssl)
+                    .setURI(uri)
+                    .setHeaders(MultiMap.caseInsensitiveMultiMap().addAll(headers));
+            if (deadline != Deadline.NONE) {
+                options.setIdleTimeout(Math.max(1, deadline.remainingMillis()));
+            }
+            Trace trace = Trace.current();
+            Span span = trace.span("http " + httpMethod.name() + " " + host + path);
+            if (trace != Trace.NONE) {
+                options.putHeader(Trace.TRACEPARENT, trace.traceparent(span));
+            }
+            Buffer body = bodyIndex >= 0 ? ResponseWriter.toBuffer(args[bodyIndex], bodyCodec, null) : null;
+            Future<Object> result = client.request(options)
+                    .compose(request -> body != null ? request.send(body) : request.send())
+                    .compose(response -> {
+                        span.tag("status", response.statusCode());
+                        return response.body().compose(responseBody -> decode(response, uri, responseBody));
+                    });
+            if (span.isRecording()) {
+                result.onComplete(ar -> span.end());
+            }
+            return deadline.bind(result);
+        }
+
+        private String uri(Object[] args) {
+            String uri = path;
+            StringBuilder query = new StringBuilder();
+            for (int i = 0; i < args.length; i++) {
+                if (pathVariables[i] != null) {
+                    uri = pathVariables[i].matcher(uri).replaceAll(Matcher.quoteReplacement(encode(String.valueOf(args[i])).replace("+", "%20")));
+                } else if (requestParams[i] != null && args[i] != null) {
+                    query.append(query.length() == 0 ? '?' : '&').append(encode(requestParams[i])).append('=').append(encode(String.valueOf(args[i])));
+                }
+            }
+            return query.length() == 0 ? uri : uri + (uri.contains("?") ? "&" + query.substring(1) : query);
+        }
+
+        private static String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private Future<Object> decode(HttpClientResponse response, String uri, Buffer body) {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                return Future.failedFuture(new HttpClientException(httpMethod.name(), host + ":" + port + uri, response.statusCode(), body.toString()));
+            }
+            if (Void.class.equals(resultClass) || body.length() == 0) {
+                return Future.succeededFuture();
+            }
+            if (Buffer.class.equals(resultClass)) {
+                return Future.succeededFuture(body);
+            }
+            if (String.class.equals(resultClass)) {
+                return Future.succeededFuture(body.toString());
+            }
+            // the server chooses the format among the accepted types, json if it isn't told
+            ContentCodec codec = ContentCodec.of(response.getHeader(HttpHeaders.CONTENT_TYPE));
+            if (codec == null) {
+                codec = ContentCodec.json();
+            }
+            try {
+                if (JsonObject.class.equals(resultClass)) {
+                    return Future.succeededFuture(codec == ContentCodec.json() ? body.toJsonObject() : new JsonObject(codec.<Map<String, Object>>decode(body, Map.class)));
+                }
+                if (JsonArray.class.equals(resultClass)) {
+                    return Future.succeededFuture(codec == ContentCodec.json() ? body.toJsonArray() : new JsonArray(codec.<List<Object>>decode(body, List.class)));
+                }
+                return Future.succeededFuture(codec.decode(body, resultType));
+            } catch (RuntimeException e) {
+                return Future.failedFuture(e);
+            }
+        }
+    }
+}
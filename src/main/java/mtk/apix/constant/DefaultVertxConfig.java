@@ -9,5 +9,9 @@ public final class DefaultVertxConfig {
     public static final int EVENT_POOL_SIZE = 10;
     public static final int IDLE_TIMEOUT = 15000;
     public static final boolean COMPRESSION_SUPPORTED = false;
+    public static final boolean HTTP2 = false;
+    public static final long HTTP2_MAX_CONCURRENT_STREAMS = 100;
+    public static final int HTTP2_INITIAL_WINDOW_SIZE = 65535;
+    public static final long HTTP2_HEADER_TABLE_SIZE = 4096;
 
 }
@@ -12,4 +12,58 @@ public final class PropertyKeys {
     public final static String VERTX_EVENT_LOOP_POOL_SIZE = "apix.vertx.eventLoopPoolSize";
     public final static String VERTX_IDLE_TIMEOUT = "apix.vertx.IdleTimeout";
     public final static String VERTX_COMPRESSION_SUPPORTED = "apix.vertx.compressionSupported";
+    public final static String VERTX_HTTP2 = "apix.vertx.http2";
+    public final static String VERTX_KEY_STORE = "apix.vertx.keyStore";
+    public final static String VERTX_KEY_STORE_PASSWORD = "apix.vertx.keyStorePassword";
+    public final static String VERTX_HTTP2_MAX_CONCURRENT_STREAMS = "apix.vertx.http2MaxConcurrentStreams";
+    public final static String VERTX_HTTP2_INITIAL_WINDOW_SIZE = "apix.vertx.http2InitialWindowSize";
+    public final static String VERTX_HTTP2_HEADER_TABLE_SIZE = "apix.vertx.http2HeaderTableSize";
+    public final static String EXECUTION_MODE = "apix.execution";
+    public final static String LAZY_INIT = "apix.lazy-init";
+    public final static String BATCH_ENABLED = "apix.batch.enabled";
+    public final static String BATCH_PATH = "apix.batch.path";
+    public final static String BATCH_PARALLELISM = "apix.batch.parallelism";
+    public final static String BATCH_MAX_REQUESTS = "apix.batch.maxRequests";
+    public final static String REQUEST_TIMEOUT = "apix.request.timeout";
+    public final static String REQUEST_TIMEOUT_STATUS = "apix.request.timeoutStatus";
+    public final static String SHUTDOWN_GRACE = "apix.shutdown.grace";
+    public final static String SHUTDOWN_HOOK = "apix.shutdown.hook";
+    public final static String SHUTDOWN_READINESS_DELAY = "apix.shutdown.readinessDelay";
+    public final static String READINESS_PATH = "apix.readiness.path";
+    public final static String STATIC_PATH = "apix.static.path";
+    public final static String STATIC_DIR = "apix.static.dir";
+    public final static String STATIC_MAX_AGE = "apix.static.maxAge";
+    public final static String STATIC_CACHE_MAX_FILE_SIZE = "apix.static.cacheMaxFileSize";
+    public final static String WARMUP_ENABLED = "apix.warmup.enabled";
+    public final static String WARMUP_ITERATIONS = "apix.warmup.iterations";
+    public final static String WARMUP_DURATION = "apix.warmup.duration";
+    public final static String WARMUP_CONCURRENCY = "apix.warmup.concurrency";
+    public final static String WARMUP_CAPTURE = "apix.warmup.capture";
+    public final static String CAPTURE_ENABLED = "apix.capture.enabled";
+    public final static String CAPTURE_FILE = "apix.capture.file";
+    public final static String CAPTURE_SAMPLE_RATE = "apix.capture.sampleRate";
+    public final static String CAPTURE_MAX_SIZE = "apix.capture.maxSize";
+    public final static String CAPTURE_MAX_BODY_SIZE = "apix.capture.maxBodySize";
+    public final static String CAPTURE_HEADERS = "apix.capture.headers";
+    public final static String ROUTE_METRICS_ENABLED = "apix.metrics.routes.enabled";
+    public final static String ROUTE_METRICS_SAMPLE_RATE = "apix.metrics.routes.sampleRate";
+    public final static String ROUTE_METRICS_PATH = "apix.metrics.routes.path";
+    public final static String TRACING_ENABLED = "apix.tracing.enabled";
+    public final static String TRACING_SAMPLE_RATE = "apix.tracing.sampleRate";
+    public final static String TRACING_BUFFER_SIZE = "apix.tracing.bufferSize";
+    public final static String TRACING_FILE = "apix.tracing.file";
+    public final static String ACCESS_LOG_ENABLED = "apix.accesslog.enabled";
+    public final static String ACCESS_LOG_FILE = "apix.accesslog.file";
+    public final static String ACCESS_LOG_FORMAT = "apix.accesslog.format";
+    public final static String ACCESS_LOG_SAMPLE_RATE = "apix.accesslog.sampleRate";
+    public final static String ACCESS_LOG_FIELDS = "apix.accesslog.fields";
+    public final static String ACCESS_LOG_MAX_FILE_SIZE = "apix.accesslog.maxFileSize";
+    public final static String ACCESS_LOG_MAX_FILES = "apix.accesslog.maxFiles";
+    public final static String ACCESS_LOG_QUEUE_SIZE = "apix.accesslog.queueSize";
+    public final static String RATE_LIMIT_PREFIX = "apix.ratelimit.";
+    public final static String RATE_LIMIT_ENABLED = "apix.ratelimit.enabled";
+    public final static String RATE_LIMIT_MAX_KEYS = "apix.ratelimit.maxKeys";
+    public final static String ADMIN_PORT = "apix.admin.port";
+    public final static String ADMIN_HOST = "apix.admin.host";
+    public final static String HTTP_CLIENT_PREFIX = "apix.http-client.";
 }
@@ -0,0 +1,143 @@
+package mtk.apix.eventbus;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import mtk.apix.annotation.EventBusConsumer;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.Trace;
+import mtk.apix.trace.Tracer;
+import mtk.apix.util.ClassUtil;
+import mtk.apix.util.ConsoleLog;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * Invoke a method annotated with {@link EventBusConsumer} for each received message and reply with its result.
+ * With a {@link Tracer}, each message is traced, continuing the trace of its traceparent header.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+public class EventBusConsumerHandler implements Handler<Message<Object>> {
+    private static final int FAILURE_CODE = 500;
+
+    private final Vertx vertx;
+    private final Object component;
+    private final Method method;
+    private final EventBusConsumer consumer;
+    private final Collection<Object> components;
+    private final Tracer tracer;
+    private final int bodyIndex;
+
+    /**
+     * @param vertx      vertx instance
+     * @param component  component of the method
+     * @param method     method annotated with {@link EventBusConsumer}
+     * @param components components usable as method parameters
+     * @param tracer     tracer of the messages, can be null
+     */
+    public EventBusConsumerHandler(Vertx vertx, Object component, Method method, Collection<Object> components, Tracer tracer) {
+        this.vertx = vertx;
+        this.tracer = tracer;
+        this.component = component;
+        this.method = method;
+        this.consumer = method.getAnnotation(EventBusConsumer.class);
+        this.components = components;
+        this.method.setAccessible(true);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        int index = -1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (!Message.class.isAssignableFrom(parameterTypes[i])) {
+                index = i;
+                break;
+            }
+        }
+        this.bodyIndex = index;
+        if (bodyIndex >= 0) {
+            LocalObjectCodec.register(vertx.eventBus(), parameterTypes[bodyIndex]);
+        }
+    }
+
+    @Override
+    public void handle(Message<Object> message) {
+        Trace trace = tracer != null ? tracer.start("eventbus " + message.address(), message.headers().get(Trace.TRACEPARENT)) : Trace.NONE;
+        if (consumer.blocking()) {
+            vertx.executeBlocking(() -> invoke(message, trace), consumer.ordered()).onComplete(ar -> {
+                if (ar.succeeded()) {
+                    reply(message, ar.result(), trace);
+                } else {
+                    fail(message, ar.cause(), trace);
+                }
+            });
+        } else {
+            try {
+                reply(message, invoke(message, trace), trace);
+            } catch (Exception e) {
+                fail(message, e, trace);
+            }
+        }
+    }
+
+    private Object invoke(Message<Object> message, Trace trace) throws Exception {
+        Span span = trace.span("consumer");
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Object[] args = new Object[parameterTypes.length];
+        for (int i = 0; i < args.length; i++) {
+            if (i == bodyIndex) {
+                args[i] = message.body();
+            } else if (Message.class.isAssignableFrom(parameterTypes[i])) {
+                args[i] = message;
+            } else {
+                args[i] = ClassUtil.findInstance(parameterTypes[i], components);
+            }
+        }
+        try {
+            return method.invoke(component, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private void reply(Message<Object> message, Object result, Trace trace) {
+        if (result instanceof Future) {
+            Span span = trace.span("async");
+            ((Future<Object>) result).onComplete(ar -> {
+                span.end();
+                if (ar.succeeded()) {
+                    reply(message, ar.result(), trace);
+                } else {
+                    fail(message, ar.cause(), trace);
+                }
+            });
+            return;
+        }
+        if (tracer != null) {
+            tracer.end(trace);
+        }
+        if (message.replyAddress() == null) {
+            return;
+        }
+        if (result != null) {
+            LocalObjectCodec.register(vertx.eventBus(), result.getClass());
+        }
+        message.reply(result);
+    }
+
+    private void fail(Message<Object> message, Throwable throwable, Trace trace) {
+        if (tracer != null) {
+            trace.getRoot().tag("error", String.valueOf(throwable.getMessage()));
+            tracer.end(trace);
+        }
+        if (message.replyAddress() != null) {
+            message.fail(FAILURE_CODE, throwable.getMessage());
+        } else {
+            ConsoleLog.error(throwable);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package mtk.apix.eventbus;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.ClusterSerializable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Event bus codec passing objects by reference between local consumers, so POJOs are neither copied nor serialized.
+ * Messages crossing the wire (clustered event bus) are encoded to JSON.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class LocalObjectCodec<T> implements MessageCodec<T, T> {
+
+    private static final Set<Class<?>> REGISTERED = ConcurrentHashMap.newKeySet();
+
+    private final Class<T> type;
+
+    public LocalObjectCodec(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Register the codec as default codec of the given class, unless the event bus supports this class natively or the codec is already registered
+     *
+     * @param eventBus vertx event bus
+     * @param type     class of the message bodies
+     */
+    public static <T> void register(EventBus eventBus, Class<T> type) {
+        if (!isNativelySupported(type) && REGISTERED.add(type)) {
+            try {
+                eventBus.registerDefaultCodec(type, new LocalObjectCodec<>(type));
+            } catch (IllegalStateException e) {
+                // a codec is already registered for this class
+            }
+        }
+    }
+
+    private static boolean isNativelySupported(Class<?> type) {
+        return type.isPrimitive() || type.isInterface() || type == Object.class
+                || type == String.class || type == Buffer.class || type == JsonObject.class || type == JsonArray.class || type == byte[].class
+                || Number.class.isAssignableFrom(type) || type == Boolean.class || type == Character.class
+                || ClusterSerializable.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T t) {
+        Buffer encoded = Json.encodeToBuffer(t);
+        buffer.appendInt(encoded.length());
+        buffer.appendBuffer(encoded);
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        int length = buffer.getInt(pos);
+        return Json.decodeValue(buffer.getBuffer(pos + 4, pos + 4 + length), type);
+    }
+
+    @Override
+    public T transform(T t) {
+        return t;
+    }
+
+    @Override
+    public String name() {
+        return "apix.local." + type.getName();
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
@@ -15,4 +15,8 @@ public class DependencyException extends RuntimeException {
         super(throwable);
     }
 
+    public DependencyException(String message, Throwable throwable){
+        super(message, throwable);
+    }
+
 }
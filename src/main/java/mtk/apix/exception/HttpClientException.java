@@ -0,0 +1,28 @@
+package mtk.apix.exception;
+
+/**
+ * Failure of a call made by a {@link mtk.apix.annotation.HttpClient} interface when the response status isn't 2xx
+ *
+ * @author mahatoky rasolonirina
+ */
+public class HttpClientException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final String body;
+
+    public HttpClientException(String method, String uri, int statusCode, String body) {
+        super(method + " " + uri + " responded " + statusCode);
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
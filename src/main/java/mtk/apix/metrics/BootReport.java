@@ -0,0 +1,195 @@
+package mtk.apix.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing of the application startup, available through {@link mtk.apix.Apix#getBootReport()}.
+ * - wall time and allocated bytes of each phase (allocations are measured on the thread of the phase, -1 if the phase ends on another thread)
+ * - creation and {@link mtk.apix.annotation.PostConstruct} time of each component
+ * - classes scanned for components, classes loaded during the startup, routes
+ *
+ * @author mahatoky rasolonirina
+ */
+public class BootReport {
+
+    private static final int PRINTED_COMPONENTS = 10;
+
+    private final long start = System.nanoTime();
+    private final long loadedClassesAtStart;
+    private final List<Phase> phases = new ArrayList<>();
+    private final List<ComponentTime> components = new ArrayList<>();
+    private int scannedClasses;
+    private int routes;
+    private long totalNanos = -1;
+    private long loadedClasses;
+
+    public BootReport() {
+        this.loadedClassesAtStart = classLoading().getTotalLoadedClassCount();
+    }
+
+    /**
+     * @param name name of the phase
+     * @return the started phase, to end when the phase is completed
+     */
+    public synchronized Phase start(String name) {
+        Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * @param creationTimes      creation time of each component in nanoseconds
+     * @param postConstructTimes {@link mtk.apix.annotation.PostConstruct} time of each component in nanoseconds
+     */
+    public synchronized void setComponents(Map<Class<?>, Long> creationTimes, Map<Class<?>, Long> postConstructTimes) {
+        components.clear();
+        creationTimes.forEach((componentClass, creationTime) -> components.add(new ComponentTime(componentClass.getName(), creationTime, postConstructTimes.getOrDefault(componentClass, 0L))));
+        components.sort(Comparator.comparingLong((ComponentTime component) -> component.creationNanos + component.postConstructNanos).reversed());
+    }
+
+    public synchronized void setScannedClasses(int scannedClasses) {
+        this.scannedClasses = scannedClasses;
+    }
+
+    public synchronized void setRoutes(int routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * End the startup: total time and loaded classes are measured
+     */
+    public synchronized void finish() {
+        if (totalNanos < 0) {
+            totalNanos = System.nanoTime() - start;
+            loadedClasses = classLoading().getTotalLoadedClassCount() - loadedClassesAtStart;
+        }
+    }
+
+    private long loadedClasses() {
+        return totalNanos >= 0 ? loadedClasses : classLoading().getTotalLoadedClassCount() - loadedClassesAtStart;
+    }
+
+    public synchronized boolean isFinished() {
+        return totalNanos >= 0;
+    }
+
+    public synchronized JsonObject toJson() {
+        JsonArray phasesJson = new JsonArray();
+        for (Phase phase : phases) {
+            phasesJson.add(new JsonObject()
+                    .put("name", phase.name)
+                    .put("millis", millis(phase.nanos))
+                    .put("allocatedBytes", phase.allocatedBytes));
+        }
+        JsonArray componentsJson = new JsonArray();
+        for (ComponentTime component : components) {
+            componentsJson.add(new JsonObject()
+                    .put("name", component.name)
+                    .put("creationMillis", millis(component.creationNanos))
+                    .put("postConstructMillis", millis(component.postConstructNanos)));
+        }
+        return new JsonObject()
+                .put("totalMillis", millis(totalNanos >= 0 ? totalNanos : System.nanoTime() - start))
+                .put("finished", totalNanos >= 0)
+                .put("scannedClasses", scannedClasses)
+                .put("loadedClasses", loadedClasses())
+                .put("routes", routes)
+                .put("phases", phasesJson)
+                .put("components", componentsJson);
+    }
+
+    /**
+     * @return printable report: phases, then the slowest components
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder report = new StringBuilder(String.format("Boot report: %.1f ms, %d component(s), %d class(es) scanned, %d class(es) loaded, %d route(s)",
+                millis(totalNanos >= 0 ? totalNanos : System.nanoTime() - start), components.size(), scannedClasses, loadedClasses(), routes));
+        for (Phase phase : phases) {
+            report.append(String.format("%n  %-22s %10.1f ms %12s", phase.name, millis(phase.nanos), phase.allocatedBytes >= 0 ? formatBytes(phase.allocatedBytes) : "-"));
+        }
+        for (int i = 0; i < Math.min(PRINTED_COMPONENTS, components.size()); i++) {
+            ComponentTime component = components.get(i);
+            report.append(String.format("%n  %s: created in %.1f ms, initialized in %.1f ms", component.name, millis(component.creationNanos), millis(component.postConstructNanos)));
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes >= 1024 * 1024 ? String.format("%.1f MB", bytes / (1024.0 * 1024.0)) : String.format("%.1f KB", bytes / 1024.0);
+    }
+
+    private static ClassLoadingMXBean classLoading() {
+        return ManagementFactory.getClassLoadingMXBean();
+    }
+
+    /**
+     * @return bytes allocated by the current thread, -1 if the JVM can't measure them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A startup phase
+     */
+    public class Phase {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final Thread thread = Thread.currentThread();
+        private final long startAllocatedBytes = allocatedBytes();
+        private long nanos = -1;
+        private long allocatedBytes = -1;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * End the phase, only the first call is considered
+         */
+        public void end() {
+            synchronized (BootReport.this) {
+                if (nanos >= 0) {
+                    return;
+                }
+                nanos = System.nanoTime() - start;
+                if (thread == Thread.currentThread() && startAllocatedBytes >= 0) {
+                    allocatedBytes = allocatedBytes() - startAllocatedBytes;
+                }
+            }
+        }
+    }
+
+    private static class ComponentTime {
+        private final String name;
+        private final long creationNanos;
+        private final long postConstructNanos;
+
+        private ComponentTime(String name, long creationNanos, long postConstructNanos) {
+            this.name = name;
+            this.creationNanos = creationNanos;
+            this.postConstructNanos = postConstructNanos;
+        }
+    }
+}
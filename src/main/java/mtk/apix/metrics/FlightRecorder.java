@@ -0,0 +1,59 @@
+package mtk.apix.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Java Flight Recorder recordings and request events.
+ * This version is used on Java 8, where the recordings are not supported by apix.
+ * The Java 11 version is packaged in the multi-release section of the jar (META-INF/versions/11).
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class FlightRecorder {
+    private FlightRecorder() {
+    }
+
+    /**
+     * @return true if the running JVM can record
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Start a recording
+     *
+     * @param profile        cpu, allocation, lock, or the name of a JDK configuration (default, profile)
+     * @param durationMillis duration of the recording, it stops by itself after
+     * @return the running recording
+     */
+    public static FlightRecorder start(String profile, long durationMillis) {
+        throw new UnsupportedOperationException("Flight recordings need Java 11 or later");
+    }
+
+    /**
+     * Stop the recording and write it to the file
+     *
+     * @param file .jfr file
+     */
+    public void stop(Path file) throws IOException {
+        throw new UnsupportedOperationException("Flight recordings need Java 11 or later");
+    }
+
+    /**
+     * @return request event started now, null if no recording listens to it
+     */
+    public static Object beginRequest() {
+        return null;
+    }
+
+    /**
+     * @param event  event of {@link #beginRequest()}
+     * @param method http method
+     * @param route  route path
+     * @param status response status
+     */
+    public static void commitRequest(Object event, String method, String route, int status) {
+    }
+}
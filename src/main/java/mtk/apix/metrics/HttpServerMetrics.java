@@ -0,0 +1,128 @@
+package mtk.apix.metrics;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection and stream counters of the http server, available as component.
+ * A stream is a request/response exchange: on HTTP/1.x connections streams follow each other, on HTTP/2 connections they are multiplexed.
+ * A stream is counted as reset when its connection or the stream itself is closed before the response is ended.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class HttpServerMetrics implements Handler<RoutingContext> {
+
+    private final LongAdder openConnections = new LongAdder();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAccumulator maxStreamsPerConnection = new LongAccumulator(Math::max, 0);
+    private final Map<HttpConnection, AtomicInteger> connectionStreams = new ConcurrentHashMap<>();
+    private final Map<HttpVersion, ProtocolMetrics> protocols = new EnumMap<>(HttpVersion.class);
+
+    public HttpServerMetrics() {
+        for (HttpVersion version : HttpVersion.values()) {
+            protocols.put(version, new ProtocolMetrics());
+        }
+    }
+
+    /**
+     * To register as connection handler of the http server
+     *
+     * @param connection new connection
+     */
+    public void connected(HttpConnection connection) {
+        openConnections.increment();
+        totalConnections.increment();
+        connectionStreams.put(connection, new AtomicInteger());
+        connection.closeHandler(v -> {
+            openConnections.decrement();
+            connectionStreams.remove(connection);
+        });
+    }
+
+    /**
+     * Record the stream of the request, to register as first route handler
+     *
+     * @param routingContext vertx RoutingContext
+     */
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpServerRequest request = routingContext.request();
+        ProtocolMetrics protocol = protocols.get(request.version() != null ? request.version() : HttpVersion.HTTP_1_1);
+        AtomicInteger streams = connectionStreams.get(request.connection());
+        long start = System.nanoTime();
+        protocol.streams.increment();
+        protocol.activeStreams.increment();
+        if (streams != null) {
+            maxStreamsPerConnection.accumulate(streams.incrementAndGet());
+        }
+        routingContext.addEndHandler(ar -> {
+            protocol.activeStreams.decrement();
+            protocol.streamTime.add(System.nanoTime() - start);
+            if (ar.failed() || !routingContext.response().ended()) {
+                protocol.resetStreams.increment();
+            }
+            if (streams != null) {
+                streams.decrementAndGet();
+            }
+        });
+        routingContext.next();
+    }
+
+    /**
+     * Reset the stream counters, ex: after the warm-up
+     */
+    public void resetStreams() {
+        maxStreamsPerConnection.reset();
+        protocols.values().forEach(metrics -> {
+            metrics.streams.reset();
+            metrics.resetStreams.reset();
+            metrics.streamTime.reset();
+        });
+    }
+
+    public long getOpenConnections() {
+        return openConnections.sum();
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject()
+                .put("openConnections", openConnections.sum())
+                .put("totalConnections", totalConnections.sum())
+                .put("maxStreamsPerConnection", maxStreamsPerConnection.get());
+        JsonObject protocolsJson = new JsonObject();
+        protocols.forEach((version, metrics) -> {
+            long streams = metrics.streams.sum();
+            if (streams > 0) {
+                protocolsJson.put(version.name(), new JsonObject()
+                        .put("streams", streams)
+                        .put("activeStreams", metrics.activeStreams.sum())
+                        .put("resetStreams", metrics.resetStreams.sum())
+                        .put("averageStreamTimeMillis", metrics.streamTime.sum() / 1_000_000.0 / streams));
+            }
+        });
+        return json.put("protocols", protocolsJson);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+
+    private static class ProtocolMetrics {
+        private final LongAdder streams = new LongAdder();
+        private final LongAdder activeStreams = new LongAdder();
+        private final LongAdder resetStreams = new LongAdder();
+        private final LongAdder streamTime = new LongAdder();
+    }
+}
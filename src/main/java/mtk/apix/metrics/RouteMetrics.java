@@ -0,0 +1,199 @@
+package mtk.apix.metrics;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.util.Endpoint;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * CPU time and allocated bytes of the controller methods, per route and per method, available as component when enabled (apix.metrics.routes.enabled).
+ * A sample of the invocations is measured with the thread CPU time and allocation counters of the JVM, before and after the invocation on its thread:
+ * work done later by a returned Future isn't counted. Threads without counters (ex: virtual threads) aren't measured.
+ * Totals are estimated from the samples: mean of the samples * invocations.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class RouteMetrics {
+
+    public static final double DEFAULT_SAMPLE_RATE = 0.1;
+
+    private final double sampleRate;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final boolean cpuTimeSupported;
+    private final Map<Endpoint, RouteStats> routes = new ConcurrentHashMap<>();
+
+    /**
+     * @param sampleRate part of the invocations measured, between 0 and 1
+     */
+    public RouteMetrics(double sampleRate) {
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+        if (cpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        com.sun.management.ThreadMXBean allocation = null;
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            allocation = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!allocation.isThreadAllocatedMemoryEnabled()) {
+                allocation.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        this.allocationMXBean = allocation;
+    }
+
+    /**
+     * @param endpoint   route of the controller method
+     * @param invocation controller method invocation
+     * @return the invocation, measured when sampled
+     */
+    public Function<RoutingContext, Object> measure(Endpoint endpoint, Function<RoutingContext, Object> invocation) {
+        RouteStats stats = routes.computeIfAbsent(endpoint, key -> new RouteStats());
+        return routingContext -> {
+            stats.invocations.increment();
+            if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return invocation.apply(routingContext);
+            }
+            long threadId = Thread.currentThread().getId();
+            long cpuTime = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+            long allocatedBytes = allocationMXBean != null ? allocationMXBean.getThreadAllocatedBytes(threadId) : -1;
+            try {
+                return invocation.apply(routingContext);
+            } finally {
+                if (cpuTime >= 0) {
+                    long after = threadMXBean.getCurrentThreadCpuTime();
+                    if (after >= 0) {
+                        stats.cpu.add(after - cpuTime);
+                    }
+                }
+                if (allocatedBytes >= 0) {
+                    long after = allocationMXBean.getThreadAllocatedBytes(threadId);
+                    if (after >= 0) {
+                        stats.allocation.add(after - allocatedBytes);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Reset the measures, ex: after the warm-up
+     */
+    public void reset() {
+        routes.values().forEach(RouteStats::reset);
+    }
+
+    /**
+     * @return measures per route and per controller method, the most CPU consuming first
+     */
+    public JsonObject toJson() {
+        List<Map.Entry<Endpoint, RouteStats>> entries = new ArrayList<>(routes.entrySet());
+        entries.sort(Comparator.comparingDouble((Map.Entry<Endpoint, RouteStats> entry) -> entry.getValue().cpu.estimatedTotal(entry.getValue().invocations.sum())).reversed());
+        JsonArray routesJson = new JsonArray();
+        Map<String, RouteStats> methods = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, RouteStats> entry : entries) {
+            routesJson.add(new JsonObject().put("route", entry.getKey().toString()).put("method", methodName(entry.getKey())).mergeIn(entry.getValue().toJson()));
+            methods.computeIfAbsent(methodName(entry.getKey()), name -> new RouteStats()).addAll(entry.getValue());
+        }
+        JsonArray methodsJson = new JsonArray();
+        methods.forEach((name, stats) -> methodsJson.add(new JsonObject().put("method", name).mergeIn(stats.toJson())));
+        return new JsonObject()
+                .put("sampleRate", sampleRate)
+                .put("cpuTimeSupported", cpuTimeSupported)
+                .put("allocationSupported", allocationMXBean != null)
+                .put("routes", routesJson)
+                .put("methods", methodsJson);
+    }
+
+    private static String methodName(Endpoint endpoint) {
+        return endpoint.getController().getClass().getName() + "." + endpoint.getMethod().getName();
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+
+    private static class RouteStats {
+        private final LongAdder invocations = new LongAdder();
+        private final Measure cpu = new Measure();
+        private final Measure allocation = new Measure();
+
+        private void reset() {
+            invocations.reset();
+            cpu.reset();
+            allocation.reset();
+        }
+
+        private void addAll(RouteStats stats) {
+            invocations.add(stats.invocations.sum());
+            cpu.addAll(stats.cpu);
+            allocation.addAll(stats.allocation);
+        }
+
+        private JsonObject toJson() {
+            long invocationCount = invocations.sum();
+            return new JsonObject()
+                    .put("invocations", invocationCount)
+                    .put("samples", Math.max(cpu.samples.sum(), allocation.samples.sum()))
+                    .put("cpuMicros", new JsonObject()
+                            .put("mean", round(cpu.mean() / 1000))
+                            .put("max", round(cpu.max.get() / 1000.0))
+                            .put("estimatedTotal", round(cpu.estimatedTotal(invocationCount) / 1000)))
+                    .put("allocatedBytes", new JsonObject()
+                            .put("mean", round(allocation.mean()))
+                            .put("max", allocation.max.get())
+                            .put("estimatedTotal", Math.round(allocation.estimatedTotal(invocationCount))));
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+
+    private static class Measure {
+        private final LongAdder samples = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void add(long value) {
+            samples.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        private void addAll(Measure measure) {
+            samples.add(measure.samples.sum());
+            total.add(measure.total.sum());
+            max.accumulate(measure.max.get());
+        }
+
+        private void reset() {
+            samples.reset();
+            total.reset();
+            max.reset();
+        }
+
+        private double mean() {
+            long count = samples.sum();
+            return count > 0 ? (double) total.sum() / count : 0;
+        }
+
+        private double estimatedTotal(long invocations) {
+            return mean() * invocations;
+        }
+    }
+}
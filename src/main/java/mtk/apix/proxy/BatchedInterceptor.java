@@ -0,0 +1,139 @@
+package mtk.apix.proxy;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import mtk.apix.annotation.Batched;
+import mtk.apix.exception.DependencyException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Merge the single key calls of a method annotated with {@link Batched} into one call of its batch method.
+ * Each caller receives its own Future, completed on the context of the caller.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+class BatchedInterceptor implements MethodInterceptor {
+
+    private final Vertx vertx;
+    private final Method batchMethod;
+    private final int maxSize;
+    private final long maxDelayMillis;
+    private final Object lock = new Object();
+    private List<PendingCall> pending = new ArrayList<>();
+
+    BatchedInterceptor(Class<?> componentClass, Method method, Batched batched, Vertx vertx) {
+        if (method.getParameterCount() != 1 || !Future.class.isAssignableFrom(method.getReturnType())) {
+            throw new DependencyException("@Batched method " + componentClass.getName() + "." + method.getName() + " must have one parameter and return a Future");
+        }
+        this.batchMethod = Arrays.stream(componentClass.getMethods())
+                .filter(m -> m.getName().equals(batched.batchMethod()) && m.getParameterCount() == 1 && m.getParameterTypes()[0].isAssignableFrom(List.class))
+                .findFirst()
+                .orElseThrow(() -> new DependencyException("Batch method '" + batched.batchMethod() + "(List)' not found in " + componentClass.getName()));
+        this.batchMethod.setAccessible(true);
+        this.vertx = vertx;
+        this.maxSize = Math.max(1, batched.maxSize());
+        this.maxDelayMillis = batched.maxDelayMicros() <= 0 ? 0 : Math.max(1, TimeUnit.MICROSECONDS.toMillis(batched.maxDelayMicros() + 999));
+    }
+
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) {
+        Promise<Object> promise = Promise.promise();
+        Context context = vertx.getOrCreateContext();
+        List<PendingCall> full = null;
+        List<PendingCall> scheduled = null;
+        synchronized (lock) {
+            pending.add(new PendingCall(args[0], promise, context));
+            if (pending.size() >= maxSize) {
+                full = pending;
+                pending = new ArrayList<>();
+            } else if (pending.size() == 1) {
+                scheduled = pending;
+            }
+        }
+
+        if (full != null) {
+            flush(target, full);
+        } else if (scheduled != null) {
+            List<PendingCall> batch = scheduled;
+            // vertx timers have a millisecond resolution, delays are rounded up
+            if (maxDelayMillis == 0) {
+                context.runOnContext(v -> flushIfPending(target, batch));
+            } else {
+                vertx.setTimer(maxDelayMillis, id -> flushIfPending(target, batch));
+            }
+        }
+        return promise.future();
+    }
+
+    /**
+     * The batch may have already been flushed because it reached its max size
+     */
+    private void flushIfPending(Object target, List<PendingCall> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        flush(target, batch);
+    }
+
+    private void flush(Object target, List<PendingCall> batch) {
+        List<Object> keys = new ArrayList<>(new LinkedHashSet<>(batch.stream().map(call -> call.key).collect(Collectors.toList())));
+        Future<Map<Object, Object>> results;
+        try {
+            Object result = batchMethod.invoke(target, keys);
+            results = result instanceof Future ? (Future<Map<Object, Object>>) result : Future.succeededFuture((Map<Object, Object>) result);
+        } catch (InvocationTargetException e) {
+            results = Future.failedFuture(e.getCause());
+        } catch (Exception e) {
+            results = Future.failedFuture(e);
+        }
+
+        results.onComplete(ar -> {
+            for (PendingCall call : batch) {
+                if (ar.succeeded()) {
+                    call.complete(ar.result() == null ? null : ar.result().get(call.key), null);
+                } else {
+                    call.complete(null, ar.cause());
+                }
+            }
+        });
+    }
+
+    private static class PendingCall {
+        private final Object key;
+        private final Promise<Object> promise;
+        private final Context context;
+
+        private PendingCall(Object key, Promise<Object> promise, Context context) {
+            this.key = key;
+            this.promise = promise;
+            this.context = context;
+        }
+
+        private void complete(Object value, Throwable failure) {
+            if (Vertx.currentContext() == context) {
+                complete0(value, failure);
+            } else {
+                context.runOnContext(v -> complete0(value, failure));
+            }
+        }
+
+        private void complete0(Object value, Throwable failure) {
+            if (failure != null) {
+                promise.fail(failure);
+            } else {
+                promise.complete(value);
+            }
+        }
+    }
+}
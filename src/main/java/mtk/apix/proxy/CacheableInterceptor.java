@@ -0,0 +1,73 @@
+package mtk.apix.proxy;
+
+import io.vertx.core.Future;
+import mtk.apix.annotation.Cacheable;
+import mtk.apix.cache.ApixCache;
+import mtk.apix.cache.CacheManager;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Keep the results of a method annotated with {@link Cacheable} in its named cache.
+ * Methods returning a Future are loaded asynchronously and concurrent misses share the same load.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+class CacheableInterceptor implements MethodInterceptor {
+
+    private final ApixCache<Object, Object> cache;
+    private final MethodInterceptor next;
+    private final boolean async;
+
+    CacheableInterceptor(Class<?> componentClass, Method method, Cacheable cacheable, CacheManager cacheManager, MethodInterceptor next) {
+        String name = cacheable.name().isEmpty() ? componentClass.getName() + "." + method.getName() : cacheable.name();
+        this.cache = cacheManager.getOrCreateCache(name, cacheable.maxSize(), cacheable.ttl(), cacheable.expireAfterAccess(), cacheable.refreshAfter());
+        this.next = next;
+        this.async = Future.class.isAssignableFrom(method.getReturnType());
+    }
+
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        Object key = key(args);
+        if (async) {
+            return cache.getAsync(key, k -> {
+                try {
+                    return (Future<Object>) next.invoke(target, method, args);
+                } catch (Throwable t) {
+                    return Future.failedFuture(t);
+                }
+            });
+        }
+        try {
+            return cache.get(key, k -> {
+                try {
+                    return next.invoke(target, method, args);
+                } catch (Throwable t) {
+                    throw new LoadFailure(t);
+                }
+            });
+        } catch (LoadFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object key(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "";
+        }
+        return args.length == 1 && args[0] != null ? args[0] : Arrays.asList(args);
+    }
+
+    /**
+     * Carry the exception thrown by the method through the cache loader
+     */
+    private static class LoadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private LoadFailure(Throwable cause) {
+            super(cause);
+        }
+    }
+}
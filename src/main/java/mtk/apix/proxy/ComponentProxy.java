@@ -0,0 +1,123 @@
+package mtk.apix.proxy;
+
+import io.vertx.core.Vertx;
+import mtk.apix.annotation.Batched;
+import mtk.apix.annotation.Cacheable;
+import mtk.apix.cache.CacheManager;
+import mtk.apix.exception.DependencyException;
+import mtk.apix.util.ConsoleLog;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ * Proxy given by the container in place of a component which has intercepted methods (ex: {@link Batched}, {@link Cacheable}).
+ * Based on JDK dynamic proxies: the component must be injected through one of its interfaces.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class ComponentProxy implements InvocationHandler {
+
+    /**
+     * Call of the component method itself
+     */
+    static final MethodInterceptor DIRECT = (target, method, args) -> {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    };
+
+    private final Object target;
+    private final Map<Method, MethodInterceptor> interceptors;
+    private final Map<Method, Method> implementations;
+
+    private ComponentProxy(Object target, Map<Method, MethodInterceptor> interceptors, Map<Method, Method> implementations) {
+        this.target = target;
+        this.interceptors = interceptors;
+        this.implementations = implementations;
+    }
+
+    /**
+     * Create the proxy of the given component if at least one of its methods is intercepted
+     *
+     * @param component    component instance
+     * @param vertx        vertx instance used by interceptors
+     * @param cacheManager caches used by {@link Cacheable} methods
+     * @return the proxy, or null if the component doesn't need one
+     */
+    public static Object create(Object component, Vertx vertx, CacheManager cacheManager) {
+        Class<?> componentClass = component.getClass();
+        Map<Method, MethodInterceptor> implementationInterceptors = new HashMap<>();
+        for (Method method : componentClass.getMethods()) {
+            MethodInterceptor interceptor = createInterceptor(component, method, vertx, cacheManager);
+            if (interceptor != null) {
+                implementationInterceptors.put(method, interceptor);
+            }
+        }
+        if (implementationInterceptors.isEmpty()) {
+            return null;
+        }
+        Set<Class<?>> interfaces = getAllInterfaces(componentClass);
+        if (interfaces.isEmpty()) {
+            ConsoleLog.warn(componentClass.getName() + " has intercepted methods but no interface to proxy, methods will be called directly");
+            return null;
+        }
+
+        Map<Method, MethodInterceptor> interceptors = new HashMap<>();
+        Map<Method, Method> implementations = new HashMap<>();
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getMethods()) {
+                try {
+                    Method implementation = componentClass.getMethod(method.getName(), method.getParameterTypes());
+                    implementation.setAccessible(true);
+                    implementations.put(method, implementation);
+                    if (implementationInterceptors.containsKey(implementation)) {
+                        interceptors.put(method, implementationInterceptors.get(implementation));
+                    }
+                } catch (NoSuchMethodException e) {
+                    throw new DependencyException(e);
+                }
+            }
+        }
+        return Proxy.newProxyInstance(componentClass.getClassLoader(), interfaces.toArray(new Class<?>[0]), new ComponentProxy(component, interceptors, implementations));
+    }
+
+    /**
+     * Chain the interceptors of the given method: cache first, then batching, then the method itself
+     */
+    private static MethodInterceptor createInterceptor(Object component, Method method, Vertx vertx, CacheManager cacheManager) {
+        MethodInterceptor interceptor = null;
+        if (method.isAnnotationPresent(Batched.class)) {
+            interceptor = new BatchedInterceptor(component.getClass(), method, method.getAnnotation(Batched.class), vertx);
+        }
+        if (method.isAnnotationPresent(Cacheable.class)) {
+            interceptor = new CacheableInterceptor(component.getClass(), method, method.getAnnotation(Cacheable.class), cacheManager, interceptor != null ? interceptor : DIRECT);
+        }
+        return interceptor;
+    }
+
+    private static Set<Class<?>> getAllInterfaces(Class<?> aClass) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        while (aClass != null) {
+            interfaces.addAll(Arrays.asList(aClass.getInterfaces()));
+            aClass = aClass.getSuperclass();
+        }
+        return interfaces;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodInterceptor interceptor = interceptors.get(method);
+        Method implementation = implementations.getOrDefault(method, method);
+        return (interceptor != null ? interceptor : DIRECT).invoke(target, implementation, args);
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+}
@@ -0,0 +1,75 @@
+package mtk.apix.proxy;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/**
+ * Proxy injected in place of a lazy dependency: the dependency is resolved on the first method call, then every call is delegated to it.
+ * Based on JDK dynamic proxies: the dependency must be injected through an interface.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class LazyProxy implements InvocationHandler {
+
+    private final Supplier<?> resolver;
+    private volatile Object target;
+
+    private LazyProxy(Supplier<?> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @param anInterface type of the injected field
+     * @param resolver    gives the dependency, called once
+     * @return proxy implementing the interface
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> anInterface, Supplier<?> resolver) {
+        return (T) Proxy.newProxyInstance(anInterface.getClassLoader(), new Class<?>[]{anInterface}, new LazyProxy(resolver));
+    }
+
+    /**
+     * @param resolver gives the value, called once
+     * @return Supplier calling the resolver on the first get, in a thread-safe way
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> memoize(Supplier<T> resolver) {
+        LazyProxy lazyProxy = new LazyProxy(resolver);
+        return () -> (T) lazyProxy.getTarget();
+    }
+
+    /**
+     * @return the dependency, resolved at the first call in a thread-safe way
+     */
+    public Object getTarget() {
+        Object resolved = target;
+        if (resolved == null) {
+            synchronized (this) {
+                resolved = target;
+                if (resolved == null) {
+                    resolved = resolver.get();
+                    target = resolved;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class && method.getName().equals("equals")) {
+            return proxy == args[0];
+        }
+        if (method.getDeclaringClass() == Object.class && method.getName().equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(getTarget(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package mtk.apix.proxy;
+
+import java.lang.reflect.Method;
+
+/**
+ * Replace the direct call of a component method when the component is used through its proxy
+ *
+ * @author mahatoky rasolonirina
+ * @see ComponentProxy
+ */
+public interface MethodInterceptor {
+    /**
+     * @param target component instance
+     * @param method implementation method
+     * @param args   call arguments
+     * @return result of the call
+     * @throws Throwable exception thrown by the call
+     */
+    Object invoke(Object target, Method method, Object[] args) throws Throwable;
+}
@@ -0,0 +1,74 @@
+package mtk.apix.push;
+
+import io.vertx.core.buffer.Buffer;
+import mtk.apix.util.ResponseWriter;
+
+/**
+ * Message serialized once and written as is to every connection: the same payload bytes for WebSocket messages,
+ * the same event frame for Server-Sent Events.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class PushMessage {
+    private final String event;
+    private final Buffer payload;
+    private volatile String text;
+    private volatile Buffer sseFrame;
+
+    private PushMessage(String event, Buffer payload) {
+        this.event = event;
+        this.payload = payload;
+    }
+
+    /**
+     * @param message String, Buffer or object serialized to JSON
+     * @return serialized message
+     */
+    public static PushMessage of(Object message) {
+        return of(null, message);
+    }
+
+    /**
+     * @param event   event name, only used by Server-Sent Events
+     * @param message String, Buffer or object serialized to JSON
+     * @return serialized message
+     */
+    public static PushMessage of(String event, Object message) {
+        return message instanceof PushMessage ? (PushMessage) message : new PushMessage(event, ResponseWriter.toBuffer(message));
+    }
+
+    public Buffer payload() {
+        return payload;
+    }
+
+    /**
+     * @return the payload as text, decoded on first use
+     */
+    public String text() {
+        String decoded = text;
+        if (decoded == null) {
+            decoded = payload.toString();
+            text = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * @return the Server-Sent Events frame, built on first use
+     */
+    public Buffer sseFrame() {
+        Buffer frame = sseFrame;
+        if (frame == null) {
+            StringBuilder builder = new StringBuilder();
+            if (event != null && !event.isEmpty()) {
+                builder.append("event: ").append(event).append('\n');
+            }
+            for (String line : text().split("\r?\n", -1)) {
+                builder.append("data: ").append(line).append('\n');
+            }
+            frame = Buffer.buffer(builder.append('\n').toString());
+            sseFrame = frame;
+        }
+        return frame;
+    }
+}
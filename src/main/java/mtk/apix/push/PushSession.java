@@ -0,0 +1,139 @@
+package mtk.apix.push;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open push connection (WebSocket or Server-Sent Events) injected in methods annotated with
+ * {@link mtk.apix.annotation.WebSocketMapping} or {@link mtk.apix.annotation.SseMapping}.
+ * Messages are written only if the outbound queue of the connection is not full, otherwise the {@link SlowConsumerPolicy} is applied.
+ *
+ * @author mahatoky rasolonirina
+ */
+public abstract class PushSession {
+    private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+    private final long id;
+    private final TopicBroadcaster broadcaster;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final Context eventLoopContext;
+    private final Thread eventLoopThread;
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    private final List<Handler<Void>> closeHandlers = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedMessages = new AtomicLong();
+
+    protected PushSession(TopicBroadcaster broadcaster, SlowConsumerPolicy slowConsumerPolicy) {
+        this.id = ID_GENERATOR.incrementAndGet();
+        this.broadcaster = broadcaster;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.eventLoopContext = Vertx.currentContext();
+        this.eventLoopThread = eventLoopContext != null && eventLoopContext.isEventLoopContext() ? Thread.currentThread() : null;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @param message String, Buffer or object serialized to JSON
+     */
+    public void send(Object message) {
+        deliver(PushMessage.of(message));
+    }
+
+    /**
+     * Write a message serialized once, applying the slow consumer policy
+     *
+     * @param message serialized message
+     */
+    public void deliver(PushMessage message) {
+        if (!isOpen()) {
+            return;
+        }
+        if (writeQueueFull()) {
+            if (slowConsumerPolicy == SlowConsumerPolicy.DISCONNECT) {
+                close();
+            } else {
+                droppedMessages.incrementAndGet();
+            }
+            return;
+        }
+        write(message);
+    }
+
+    /**
+     * Receive the messages published on the given topic by the {@link TopicBroadcaster}
+     *
+     * @param topic topic name
+     * @return this session
+     */
+    public PushSession subscribe(String topic) {
+        if (topics.add(topic)) {
+            broadcaster.subscribe(topic, this);
+        }
+        return this;
+    }
+
+    public PushSession unsubscribe(String topic) {
+        if (topics.remove(topic)) {
+            broadcaster.unsubscribe(topic, this);
+        }
+        return this;
+    }
+
+    public PushSession onClose(Handler<Void> closeHandler) {
+        closeHandlers.add(closeHandler);
+        return this;
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * @return number of messages dropped because the connection was too slow
+     */
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * @return context of the request which opened the connection
+     */
+    Context getEventLoopContext() {
+        return eventLoopContext;
+    }
+
+    /**
+     * @return event loop thread owning the connection, null if opened outside an event loop
+     */
+    Thread getEventLoopThread() {
+        return eventLoopThread;
+    }
+
+    /**
+     * To call by implementations once the connection is closed
+     */
+    protected void closed() {
+        for (String topic : topics) {
+            broadcaster.unsubscribe(topic, this);
+        }
+        topics.clear();
+        closeHandlers.forEach(handler -> handler.handle(null));
+    }
+
+    public abstract boolean isOpen();
+
+    public abstract void close();
+
+    protected abstract boolean writeQueueFull();
+
+    protected abstract void write(PushMessage message);
+}
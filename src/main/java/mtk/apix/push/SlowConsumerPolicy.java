@@ -0,0 +1,17 @@
+package mtk.apix.push;
+
+/**
+ * What to do with a message sent to a connection whose outbound queue is full
+ *
+ * @author mahatoky rasolonirina
+ */
+public enum SlowConsumerPolicy {
+    /**
+     * the message is dropped for this connection only
+     */
+    DROP,
+    /**
+     * the connection is closed
+     */
+    DISCONNECT
+}
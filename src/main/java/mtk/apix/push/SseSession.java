@@ -0,0 +1,64 @@
+package mtk.apix.push;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+
+/**
+ * Server-Sent Events stream opened on a method annotated with {@link mtk.apix.annotation.SseMapping}.
+ * Each message is written as one event frame shared by every subscriber.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class SseSession extends PushSession {
+    private final HttpServerResponse response;
+    private volatile boolean open = true;
+
+    public SseSession(HttpServerResponse response, TopicBroadcaster broadcaster, SlowConsumerPolicy slowConsumerPolicy, int maxQueuedBytes) {
+        super(broadcaster, slowConsumerPolicy);
+        this.response = response;
+        this.response.setChunked(true)
+                .setWriteQueueMaxSize(maxQueuedBytes)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "text/event-stream")
+                .putHeader(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .closeHandler(v -> {
+                    open = false;
+                    closed();
+                });
+        this.response.write(":ok\n\n");
+    }
+
+    /**
+     * @param event   event name
+     * @param message String, Buffer or object serialized to JSON
+     */
+    public void send(String event, Object message) {
+        deliver(PushMessage.of(event, message));
+    }
+
+    public HttpServerResponse response() {
+        return response;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !response.closed() && !response.ended();
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            response.reset();
+        }
+    }
+
+    @Override
+    protected boolean writeQueueFull() {
+        return response.writeQueueFull();
+    }
+
+    @Override
+    protected void write(PushMessage message) {
+        response.write(message.sseFrame());
+    }
+}
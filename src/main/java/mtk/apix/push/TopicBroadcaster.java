@@ -0,0 +1,79 @@
+package mtk.apix.push;
+
+import io.vertx.core.Context;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publish messages to the push sessions subscribed to a topic, available as component.
+ * A message is serialized once for all subscribers, and subscribers are grouped by event loop
+ * so a publication costs one task per event loop instead of one per connection.
+ * A topic is removed with its last subscriber.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class TopicBroadcaster {
+    private static final Object NO_CONTEXT = new Object();
+
+    private final Map<String, Map<Object, Set<PushSession>>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * @param topic   topic name
+     * @param message String, Buffer or object serialized to JSON
+     * @return number of subscribers
+     */
+    public int publish(String topic, Object message) {
+        Map<Object, Set<PushSession>> subscribers = topics.get(topic);
+        if (subscribers == null) {
+            return 0;
+        }
+        PushMessage pushMessage = PushMessage.of(message);
+        int count = 0;
+        for (Map.Entry<Object, Set<PushSession>> entry : subscribers.entrySet()) {
+            Set<PushSession> sessions = entry.getValue();
+            count += sessions.size();
+            Context context = entry.getKey() instanceof Thread ? sessions.stream().findAny().map(PushSession::getEventLoopContext).orElse(null) : null;
+            if (context != null) {
+                // the contexts of the sessions of one group run on the same event loop thread
+                context.runOnContext(v -> sessions.forEach(session -> session.deliver(pushMessage)));
+            } else {
+                sessions.forEach(session -> session.deliver(pushMessage));
+            }
+        }
+        return count;
+    }
+
+    public int subscriberCount(String topic) {
+        Map<Object, Set<PushSession>> subscribers = topics.get(topic);
+        return subscribers == null ? 0 : subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public Set<String> getTopics() {
+        return topics.keySet();
+    }
+
+    void subscribe(String topic, PushSession session) {
+        // changes of a topic are atomic: a topic removed by an unsubscribe is never given to a new subscriber
+        topics.compute(topic, (t, subscribers) -> {
+            Map<Object, Set<PushSession>> map = subscribers != null ? subscribers : new ConcurrentHashMap<>();
+            map.computeIfAbsent(contextKey(session), c -> ConcurrentHashMap.newKeySet()).add(session);
+            return map;
+        });
+    }
+
+    void unsubscribe(String topic, PushSession session) {
+        topics.computeIfPresent(topic, (t, subscribers) -> {
+            subscribers.computeIfPresent(contextKey(session), (c, sessions) -> {
+                sessions.remove(session);
+                return sessions.isEmpty() ? null : sessions;
+            });
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private Object contextKey(PushSession session) {
+        return session.getEventLoopThread() != null ? session.getEventLoopThread() : NO_CONTEXT;
+    }
+}
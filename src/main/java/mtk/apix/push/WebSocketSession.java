@@ -0,0 +1,89 @@
+package mtk.apix.push;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+
+/**
+ * WebSocket connection opened on a method annotated with {@link mtk.apix.annotation.WebSocketMapping}.
+ * Messages are sent as text messages whose bytes are the payload encoded once for all subscribers:
+ * a text frame of the first character, then continuation frames of at most 64 KB sliced from the payload.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class WebSocketSession extends PushSession {
+    private static final short POLICY_VIOLATION = 1008;
+    private static final int MAX_FRAME_SIZE = HttpServerOptions.DEFAULT_MAX_WEBSOCKET_FRAME_SIZE;
+
+    private final ServerWebSocket webSocket;
+    private volatile boolean open = true;
+
+    public WebSocketSession(ServerWebSocket webSocket, TopicBroadcaster broadcaster, SlowConsumerPolicy slowConsumerPolicy, int maxQueuedBytes) {
+        super(broadcaster, slowConsumerPolicy);
+        this.webSocket = webSocket;
+        this.webSocket.setWriteQueueMaxSize(maxQueuedBytes);
+        this.webSocket.closeHandler(v -> {
+            open = false;
+            closed();
+        });
+    }
+
+    public WebSocketSession onMessage(Handler<String> messageHandler) {
+        webSocket.textMessageHandler(messageHandler);
+        return this;
+    }
+
+    public WebSocketSession onBinaryMessage(Handler<Buffer> messageHandler) {
+        webSocket.binaryMessageHandler(messageHandler);
+        return this;
+    }
+
+    public ServerWebSocket socket() {
+        return webSocket;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !webSocket.isClosed();
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            webSocket.close(POLICY_VIOLATION, "Slow consumer");
+        }
+    }
+
+    @Override
+    protected boolean writeQueueFull() {
+        return webSocket.writeQueueFull();
+    }
+
+    @Override
+    protected void write(PushMessage message) {
+        Buffer payload = message.payload();
+        int length = payload.length();
+        // a text frame can't be made from bytes: the first character is encoded again, the rest follows in continuation frames
+        // (clients ignore continuation frames after an empty text frame)
+        int offset = length == 0 ? 0 : Math.min(length, characterLength(payload.getByte(0)));
+        webSocket.writeFrame(WebSocketFrame.textFrame(payload.getString(0, offset, "UTF-8"), offset == length));
+        while (offset < length) {
+            int end = Math.min(length, offset + MAX_FRAME_SIZE);
+            webSocket.writeFrame(WebSocketFrame.continuationFrame(payload.slice(offset, end), end == length));
+            offset = end;
+        }
+    }
+
+    private static int characterLength(byte firstByte) {
+        if ((firstByte & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((firstByte & 0xF0) == 0xE0) {
+            return 3;
+        }
+        return (firstByte & 0xF8) == 0xF0 ? 4 : 1;
+    }
+}
@@ -0,0 +1,167 @@
+package mtk.apix.ratelimit;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client limit of a route or controller, see {@link mtk.apix.annotation.RateLimit}.
+ * Each client has a token bucket of permits tokens refilled at permits per period, kept as a single atomic value
+ * (generic cell rate algorithm: the time at which the bucket is full again), updated with compare-and-set.
+ * The table of clients is bounded: beyond maxKeys, new clients share one overflow bucket until idle clients are evicted.
+ * A client is idle when its bucket is full again, evicting it doesn't change its limit.
+ * Sub-requests of a batch are dispatched in process with the address of the batch request, they count for the client of the batch.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class RateLimiter implements Handler<RoutingContext> {
+
+    private static final String IP = "ip";
+    private static final String GLOBAL = "global";
+    private static final String HEADER = "header:";
+
+    private final String name;
+    private final String key;
+    private final String header;
+    private final long permits;
+    private final long periodNanos;
+    private final long intervalNanos;
+    private final int maxKeys;
+    private final long origin = System.nanoTime();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow = new AtomicLong();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param name        name of the limit
+     * @param key         ip, header:Name or global
+     * @param permits     requests allowed per period
+     * @param periodNanos length of the period in nanoseconds
+     * @param maxKeys     max number of clients in the table
+     * @throws IllegalArgumentException if the key, permits or period is invalid
+     */
+    public RateLimiter(String name, String key, long permits, long periodNanos, int maxKeys) {
+        this.name = name;
+        this.key = key.trim();
+        if (!IP.equals(this.key) && !GLOBAL.equals(this.key) && !(this.key.startsWith(HEADER) && this.key.length() > HEADER.length())) {
+            throw new IllegalArgumentException("Invalid @RateLimit key '" + key + "' of " + name + ", expected ip, global or header:Name");
+        }
+        if (permits <= 0 || periodNanos <= 0) {
+            throw new IllegalArgumentException("Invalid @RateLimit of " + name + ": permits and period must be positive");
+        }
+        this.header = this.key.startsWith(HEADER) ? this.key.substring(HEADER.length()).trim() : null;
+        this.permits = permits;
+        this.periodNanos = periodNanos;
+        this.intervalNanos = Math.max(1, periodNanos / permits);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Let the request through, or end it with 429 if its client is over the limit
+     *
+     * @param routingContext vertx RoutingContext
+     */
+    @Override
+    public void handle(RoutingContext routingContext) {
+        long now = System.nanoTime() - origin;
+        AtomicLong bucket = bucket(clientKey(routingContext.request()));
+        HttpServerResponse response = routingContext.response();
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            long wait = next - now - periodNanos;
+            if (wait > 0) {
+                rejected.increment();
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+                headers(response, 0, full - now);
+                response.setStatusCode(429)
+                        .putHeader("Retry-After", String.valueOf(retryAfter))
+                        .end("Too Many Requests");
+                return;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                accepted.increment();
+                headers(response, (periodNanos - (next - now)) / intervalNanos, next - now);
+                routingContext.next();
+                return;
+            }
+        }
+    }
+
+    private void headers(HttpServerResponse response, long remaining, long resetNanos) {
+        response.putHeader("RateLimit-Limit", String.valueOf(permits))
+                .putHeader("RateLimit-Remaining", String.valueOf(Math.max(0, remaining)))
+                .putHeader("RateLimit-Reset", String.valueOf(Math.max(0, TimeUnit.NANOSECONDS.toSeconds(resetNanos + TimeUnit.SECONDS.toNanos(1) - 1))))
+                .putHeader("RateLimit-Policy", permits + ";w=" + Math.max(1, TimeUnit.NANOSECONDS.toSeconds(periodNanos)));
+    }
+
+    private String clientKey(HttpServerRequest request) {
+        if (header != null) {
+            String value = request.getHeader(header);
+            if (value != null) {
+                return value;
+            }
+        } else if (GLOBAL.equals(key)) {
+            return GLOBAL;
+        }
+        // prefixed so a header value can't take the bucket of an ip
+        return request.remoteAddress() != null ? "\u0000" + request.remoteAddress().hostAddress() : "\u0000";
+    }
+
+    private AtomicLong bucket(String clientKey) {
+        AtomicLong bucket = buckets.get(clientKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(clientKey, k -> new AtomicLong());
+    }
+
+    /**
+     * Remove the clients whose bucket is full again
+     */
+    public void evictIdle() {
+        long now = System.nanoTime() - origin;
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    /**
+     * Forget all the clients, ex: after the warm-up
+     */
+    public void reset() {
+        buckets.clear();
+        overflow.set(0);
+        accepted.reset();
+        rejected.reset();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("key", key)
+                .put("permits", permits)
+                .put("periodMillis", TimeUnit.NANOSECONDS.toMillis(periodNanos))
+                .put("clients", buckets.size())
+                .put("accepted", accepted.sum())
+                .put("rejected", rejected.sum());
+    }
+
+    @Override
+    public String toString() {
+        return name + toJson().encode();
+    }
+}
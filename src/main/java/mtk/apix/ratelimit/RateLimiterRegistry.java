@@ -0,0 +1,115 @@
+package mtk.apix.ratelimit;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import mtk.apix.annotation.RateLimit;
+import mtk.apix.constant.PropertyKeys;
+import mtk.apix.util.ClassUtil;
+import mtk.apix.util.ConsoleLog;
+import mtk.apix.util.Endpoint;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RateLimiter}s of the routes annotated with {@link RateLimit}, available as component.
+ * The annotation of a method has priority over the annotation of its controller, whose limit is shared by all its routes.
+ * The attributes are overridden by the properties apix.ratelimit.[name].permits, per, unit, key and enabled.
+ * Idle clients are evicted every 10 seconds.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class RateLimiterRegistry {
+
+    public static final int DEFAULT_MAX_KEYS = 100000;
+    private static final long EVICTION_PERIOD = 10000;
+
+    private final Vertx vertx;
+    private final Properties properties;
+    private final int maxKeys;
+    private final Map<String, RateLimiter> limiters = new ConcurrentHashMap<>();
+    private long evictionTimer = -1;
+
+    /**
+     * @param vertx      vertx instance
+     * @param properties application properties
+     * @param maxKeys    max number of clients per limit
+     */
+    public RateLimiterRegistry(Vertx vertx, Properties properties, int maxKeys) {
+        this.vertx = vertx;
+        this.properties = properties != null ? properties : new Properties();
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @param endpoint route of a controller method
+     * @return the limiter of the route, null if the route has no limit or if its limit is disabled in the properties
+     * @throws IllegalArgumentException if the limit is invalid
+     */
+    public synchronized RateLimiter get(Endpoint endpoint) {
+        Method method = endpoint.getMethod();
+        Class<?> controllerClass = endpoint.getController().getClass();
+        RateLimit rateLimit = method.getAnnotation(RateLimit.class);
+        String name;
+        if (rateLimit != null) {
+            name = rateLimit.name().isEmpty() ? controllerClass.getSimpleName() + "." + method.getName() : rateLimit.name();
+        } else if (controllerClass.isAnnotationPresent(RateLimit.class)) {
+            rateLimit = controllerClass.getAnnotation(RateLimit.class);
+            name = rateLimit.name().isEmpty() ? controllerClass.getSimpleName() : rateLimit.name();
+        } else {
+            return null;
+        }
+        if (!setting(name, "enabled", Boolean.class, true)) {
+            return null;
+        }
+        RateLimiter limiter = limiters.get(name);
+        if (limiter == null) {
+            TimeUnit unit = TimeUnit.valueOf(setting(name, "unit", String.class, rateLimit.unit().name()).trim().toUpperCase());
+            limiter = new RateLimiter(name,
+                    setting(name, "key", String.class, rateLimit.key()),
+                    setting(name, "permits", Long.class, rateLimit.permits()),
+                    unit.toNanos(setting(name, "per", Long.class, rateLimit.per())),
+                    maxKeys);
+            limiters.put(name, limiter);
+            ConsoleLog.trace("Rate limit: " + limiter);
+            startEviction();
+        }
+        return limiter;
+    }
+
+    private <T> T setting(String name, String setting, Class<T> type, T defaultValue) {
+        String value = properties.getProperty(PropertyKeys.RATE_LIMIT_PREFIX + name + "." + setting);
+        return value != null ? ClassUtil.valueOf(value.trim(), type, defaultValue) : defaultValue;
+    }
+
+    private void startEviction() {
+        if (evictionTimer >= 0) {
+            return;
+        }
+        evictionTimer = vertx.setPeriodic(EVICTION_PERIOD, id -> vertx.executeBlocking(() -> {
+            limiters.values().forEach(RateLimiter::evictIdle);
+            return null;
+        }, false));
+    }
+
+    /**
+     * Forget the clients of all the limiters, ex: after the warm-up
+     */
+    public void reset() {
+        limiters.values().forEach(RateLimiter::reset);
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        limiters.forEach((name, limiter) -> json.put(name, limiter.toJson()));
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
@@ -0,0 +1,80 @@
+package mtk.apix.trace;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.OpenOptions;
+import mtk.apix.util.ConsoleLog;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append the spans to a local file, one JSON object per line, for tests and local debugging (apix.tracing.file).
+ * Spans are written asynchronously from a single context; when the write queue is full, spans are dropped.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class FileSpanExporter implements SpanExporter {
+
+    private static final int WRITE_QUEUE_MAX_SIZE = 1024 * 1024;
+
+    private final String file;
+    private final Context context;
+    private final LongAdder dropped = new LongAdder();
+    private AsyncFile asyncFile;
+
+    /**
+     * @param vertx vertx instance
+     * @param file  file to append to, created if missing
+     */
+    public FileSpanExporter(Vertx vertx, String file) {
+        this.file = file;
+        this.context = vertx.getOrCreateContext();
+        context.runOnContext(v -> vertx.fileSystem().open(file, new OpenOptions().setWrite(true).setCreate(true).setAppend(true))
+                .onSuccess(opened -> asyncFile = opened.setWriteQueueMaxSize(WRITE_QUEUE_MAX_SIZE))
+                .onFailure(throwable -> ConsoleLog.error(new Throwable("Can't open span file " + file, throwable))));
+    }
+
+    @Override
+    public void export(List<Span> spans) {
+        Buffer lines = Buffer.buffer();
+        for (Span span : spans) {
+            lines.appendString(span.toJson().encode()).appendByte((byte) '\n');
+        }
+        context.runOnContext(v -> {
+            if (asyncFile == null || asyncFile.writeQueueFull()) {
+                dropped.add(spans.size());
+                return;
+            }
+            asyncFile.write(lines);
+        });
+    }
+
+    @Override
+    public Future<Void> close() {
+        return Future.<Void>future(promise -> context.runOnContext(v -> {
+            if (asyncFile == null) {
+                promise.complete();
+                return;
+            }
+            AsyncFile closing = asyncFile;
+            asyncFile = null;
+            closing.close().onComplete(promise);
+        }));
+    }
+
+    /**
+     * @return number of spans dropped because the write queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "FileSpanExporter(" + file + ")";
+    }
+}
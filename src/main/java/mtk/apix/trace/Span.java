@@ -0,0 +1,145 @@
+package mtk.apix.trace;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timed stage of a {@link Trace}, ex: interceptor, binding, controller, serialization, writing, or an outgoing call.
+ * A span is created started with {@link Trace#span(String)} and must be ended with {@link #end()}.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class Span {
+
+    /**
+     * Span of the requests not sampled, it records nothing
+     */
+    static final Span NOOP = new Span(null, null, null, null, 0);
+
+    private final Trace trace;
+    private final String spanId;
+    private final String parentId;
+    private final long startNanos;
+    private volatile String name;
+    private volatile long durationNanos = -1;
+    private Map<String, Object> tags;
+
+    Span(Trace trace, String name, String spanId, String parentId, long startNanos) {
+        this.trace = trace;
+        this.name = name;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * End the span, following calls are ignored
+     */
+    public void end() {
+        if (this != NOOP && durationNanos < 0) {
+            durationNanos = Math.max(0, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * @param key   name of the tag, ex: status
+     * @param value value of the tag
+     * @return this span
+     */
+    public Span tag(String key, Object value) {
+        if (this != NOOP) {
+            synchronized (this) {
+                if (tags == null) {
+                    tags = new LinkedHashMap<>();
+                }
+                tags.put(key, value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return false for the span of the requests not sampled
+     */
+    public boolean isRecording() {
+        return this != NOOP;
+    }
+
+    /**
+     * @return true for the span of the whole request
+     */
+    public boolean isRoot() {
+        return trace != null && trace.getRoot() == this;
+    }
+
+    public boolean isEnded() {
+        return durationNanos >= 0;
+    }
+
+    /**
+     * @return traceparent header giving this span as parent to the called service
+     */
+    public String traceparent() {
+        return "00-" + trace.getTraceId() + "-" + spanId + (trace.isSampled() ? "-01" : "-00");
+    }
+
+    public String getTraceId() {
+        return trace != null ? trace.getTraceId() : null;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return start time in microseconds since the epoch
+     */
+    public long getStartMicros() {
+        return trace != null ? trace.toEpochMicros(startNanos) : 0;
+    }
+
+    /**
+     * @return duration in nanoseconds, -1 while the span is running
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public synchronized Map<String, Object> getTags() {
+        return tags != null ? new LinkedHashMap<>(tags) : new LinkedHashMap<>();
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject()
+                .put("traceId", getTraceId())
+                .put("spanId", spanId)
+                .put("parentId", parentId)
+                .put("name", name)
+                .put("startMicros", getStartMicros())
+                .put("durationMicros", durationNanos / 1000.0);
+        Map<String, Object> spanTags = getTags();
+        if (!spanTags.isEmpty()) {
+            json.put("tags", new JsonObject(spanTags));
+        }
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
@@ -0,0 +1,98 @@
+package mtk.apix.trace;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory ring buffer of the last exported spans, the oldest spans are overwritten.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class SpanBuffer implements SpanExporter {
+
+    private final AtomicReferenceArray<Span> spans;
+    private final AtomicLong position = new AtomicLong();
+
+    /**
+     * @param size max number of spans kept
+     */
+    public SpanBuffer(int size) {
+        this.spans = new AtomicReferenceArray<>(Math.max(1, size));
+    }
+
+    @Override
+    public void export(List<Span> trace) {
+        for (Span span : trace) {
+            spans.set((int) (position.getAndIncrement() % spans.length()), span);
+        }
+    }
+
+    /**
+     * @return the spans kept, the oldest first
+     */
+    public List<Span> getSpans() {
+        long end = position.get();
+        List<Span> list = new ArrayList<>();
+        for (long i = Math.max(0, end - spans.length()); i < end; i++) {
+            Span span = spans.get((int) (i % spans.length()));
+            if (span != null) {
+                list.add(span);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @param traceId id of a trace
+     * @return the spans of the trace still kept
+     */
+    public List<Span> getSpans(String traceId) {
+        List<Span> list = new ArrayList<>();
+        for (Span span : getSpans()) {
+            if (span.getTraceId().equals(traceId)) {
+                list.add(span);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Recent requests with the time spent in each stage, the most recent first.
+     * A trace continued by several requests of this application gives one entry per request
+     *
+     * @param limit max number of requests
+     * @return array of {traceId, spanId, name, durationMillis, tags, stages: {name: millis}}
+     */
+    public JsonArray toJson(int limit) {
+        Map<String, JsonObject> requests = new LinkedHashMap<>();
+        List<Span> list = getSpans();
+        for (int i = list.size() - 1; i >= 0; i--) {
+            Span span = list.get(i);
+            // the spans of a request are children of its root span
+            String rootId = span.isRoot() ? span.getSpanId() : span.getParentId();
+            JsonObject request = requests.get(rootId);
+            if (request == null) {
+                if (requests.size() >= limit) {
+                    continue;
+                }
+                request = new JsonObject().put("traceId", span.getTraceId()).put("spanId", rootId).put("stages", new JsonObject());
+                requests.put(rootId, request);
+            }
+            double millis = span.getDurationNanos() / 1_000_000.0;
+            if (span.isRoot()) {
+                request.put("name", span.getName()).put("durationMillis", millis).put("tags", new JsonObject(span.getTags()));
+            } else {
+                JsonObject stages = request.getJsonObject("stages");
+                stages.put(span.getName(), stages.getDouble(span.getName(), 0.0) + millis);
+            }
+        }
+        return new JsonArray(new ArrayList<>(requests.values()));
+    }
+}
@@ -0,0 +1,29 @@
+package mtk.apix.trace;
+
+import io.vertx.core.Future;
+
+import java.util.List;
+
+/**
+ * Receive the spans of the ended traces.
+ * Components implementing this interface are registered in the {@link Tracer} at startup.
+ * Exporters are called on the thread ending the request, they must not block (queue the spans and send them asynchronously).
+ *
+ * @author mahatoky rasolonirina
+ */
+public interface SpanExporter {
+
+    /**
+     * @param spans spans of an ended trace, the root span first
+     */
+    void export(List<Span> spans);
+
+    /**
+     * Flush and release the resources of the exporter, at shutdown
+     *
+     * @return future completed when closed
+     */
+    default Future<Void> close() {
+        return Future.succeededFuture();
+    }
+}
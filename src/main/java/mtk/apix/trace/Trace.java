@@ -0,0 +1,189 @@
+package mtk.apix.trace;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace of a request or of an event bus message, started by the {@link Tracer}.
+ * The trace continues the one of the caller given by the W3C traceparent header, if any.
+ * It is given by {@link #of(RoutingContext)}, and by {@link #current()} on the context of the request:
+ * the vertx context follows the request in the worker pool (executeBlocking), the future callbacks and the event bus consumers.
+ * The spans of a trace are exported when it ends.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class Trace {
+
+    /**
+     * Trace of the requests handled without tracer, it records nothing
+     */
+    public static final Trace NONE = new Trace(null, null, null, null, false);
+    public static final String TRACEPARENT = "traceparent";
+    private static final String KEY = "apix.trace";
+    private static final ThreadLocal<Trace> THREAD_TRACE = new ThreadLocal<>();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Tracer tracer;
+    private final String traceId;
+    private final boolean sampled;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Span root;
+    private final List<Span> spans = new ArrayList<>();
+    private boolean ended;
+
+    Trace(Tracer tracer, String name, String traceId, String parentId, boolean sampled) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.sampled = sampled;
+        this.startEpochMicros = System.currentTimeMillis() * 1000;
+        this.startNanos = System.nanoTime();
+        this.root = tracer != null ? new Span(this, name, newSpanId(), parentId, startNanos) : Span.NOOP;
+        if (sampled) {
+            spans.add(root);
+        }
+    }
+
+    /**
+     * @param routingContext vertx RoutingContext of the request
+     * @return the trace of the request, {@link #NONE} if the request isn't traced
+     */
+    public static Trace of(RoutingContext routingContext) {
+        Trace trace = routingContext.get(KEY);
+        return trace != null ? trace : NONE;
+    }
+
+    /**
+     * @return the trace of the request handled on the current vertx context (or virtual thread), {@link #NONE} outside a traced request
+     */
+    public static Trace current() {
+        Context context = Vertx.currentContext();
+        Trace trace = context != null ? context.getLocal(KEY) : null;
+        if (trace == null) {
+            trace = THREAD_TRACE.get();
+        }
+        return trace != null ? trace : NONE;
+    }
+
+    /**
+     * Make the trace current on this thread, for threads without vertx context (virtual threads)
+     *
+     * @param trace trace of the request, null to detach
+     */
+    public static void attach(Trace trace) {
+        if (trace == null || trace == NONE) {
+            THREAD_TRACE.remove();
+        } else {
+            THREAD_TRACE.set(trace);
+        }
+    }
+
+    /**
+     * Make the trace current on the vertx context of the request
+     *
+     * @param routingContext vertx RoutingContext of the request, can be null
+     */
+    void bind(RoutingContext routingContext) {
+        if (routingContext != null) {
+            routingContext.put(KEY, this);
+        }
+        Context context = Vertx.currentContext();
+        if (context != null) {
+            context.putLocal(KEY, this);
+        }
+    }
+
+    /**
+     * Start a span, child of the root span of the trace
+     *
+     * @param name name of the span
+     * @return the started span, to end
+     */
+    public Span span(String name) {
+        if (!sampled) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, name, newSpanId(), root.getSpanId(), System.nanoTime());
+        synchronized (spans) {
+            if (!ended) {
+                spans.add(span);
+            }
+        }
+        return span;
+    }
+
+    /**
+     * @param span span of the call, can be a not recording span
+     * @return traceparent header to send to the called service, null for {@link #NONE}
+     */
+    public String traceparent(Span span) {
+        if (this == NONE) {
+            return null;
+        }
+        return span.isRecording() ? span.traceparent() : root.traceparent();
+    }
+
+    /**
+     * End the root span and the spans still running, then export the spans
+     */
+    void end() {
+        if (this == NONE) {
+            return;
+        }
+        List<Span> finished;
+        synchronized (spans) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            finished = new ArrayList<>(spans);
+        }
+        root.end();
+        if (sampled) {
+            finished.forEach(Span::end);
+            tracer.export(finished);
+        }
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * @return span of the whole request
+     */
+    public Span getRoot() {
+        return root;
+    }
+
+    long toEpochMicros(long nanos) {
+        return startEpochMicros + (nanos - startNanos) / 1000;
+    }
+
+    static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hex(random.nextLong() | 1, 16) + hex(random.nextLong(), 16);
+    }
+
+    static String newSpanId() {
+        return hex(ThreadLocalRandom.current().nextLong() | 1, 16);
+    }
+
+    private static String hex(long value, int length) {
+        char[] chars = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            chars[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,161 @@
+package mtk.apix.trace;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.util.ConsoleLog;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Start a {@link Trace} per request, available as component when enabled (apix.tracing.enabled).
+ * A trace continues the trace of the traceparent header of the request and follows its sampling decision,
+ * other requests are sampled with the sample rate. Not sampled requests only propagate the trace id.
+ * Spans of the ended traces are kept in a {@link SpanBuffer} and given to the registered {@link SpanExporter}s.
+ * To register as one of the first route handlers.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class Tracer implements Handler<RoutingContext> {
+
+    public static final double DEFAULT_SAMPLE_RATE = 0.1;
+    public static final int DEFAULT_BUFFER_SIZE = 10000;
+
+    private final double sampleRate;
+    private final SpanBuffer buffer;
+    private final List<SpanExporter> exporters = new CopyOnWriteArrayList<>();
+    private final LongAdder traces = new LongAdder();
+    private final LongAdder sampledTraces = new LongAdder();
+    private final LongAdder exportFailures = new LongAdder();
+
+    /**
+     * @param sampleRate part of the requests without traceparent to trace, between 0 and 1
+     * @param bufferSize number of spans kept in memory
+     */
+    public Tracer(double sampleRate, int bufferSize) {
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.buffer = new SpanBuffer(bufferSize);
+    }
+
+    /**
+     * @param exporter exporter receiving the spans of the ended traces
+     */
+    public void addExporter(SpanExporter exporter) {
+        exporters.add(exporter);
+        ConsoleLog.trace("Span exporter: " + exporter);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        Trace trace = start(routingContext.request().method().name(), routingContext.request().getHeader(Trace.TRACEPARENT));
+        trace.bind(routingContext);
+        routingContext.addEndHandler(ar -> {
+            Route route = routingContext.currentRoute();
+            trace.getRoot().setName(routingContext.request().method().name() + " " + (route != null && route.getPath() != null ? route.getPath() : routingContext.normalizedPath()));
+            trace.getRoot().tag("status", routingContext.response().getStatusCode());
+            if (ar.failed()) {
+                trace.getRoot().tag("error", String.valueOf(ar.cause().getMessage()));
+            }
+            trace.end();
+        });
+        routingContext.next();
+    }
+
+    /**
+     * Start a trace current on the vertx context, ex: for an event bus message. It must be ended with {@link #end(Trace)}
+     *
+     * @param name        name of the root span
+     * @param traceparent traceparent of the caller, can be null
+     * @return the started trace
+     */
+    public Trace start(String name, String traceparent) {
+        traces.increment();
+        String[] parent = parseTraceparent(traceparent);
+        boolean sampled = parent != null ? "01".equals(parent[2]) : sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (sampled) {
+            sampledTraces.increment();
+        }
+        Trace trace = new Trace(this, name, parent != null ? parent[0] : Trace.newTraceId(), parent != null ? parent[1] : null, sampled);
+        trace.bind(null);
+        return trace;
+    }
+
+    /**
+     * End the trace and export its spans
+     *
+     * @param trace trace given by {@link #start(String, String)}
+     */
+    public void end(Trace trace) {
+        trace.end();
+    }
+
+    /**
+     * @param traceparent W3C traceparent header: version-traceId-parentId-flags
+     * @return {traceId, parentId, sampled flag as "01" or "00"}, null if missing or invalid
+     */
+    static String[] parseTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < 55) {
+            return null;
+        }
+        String[] parts = traceparent.trim().split("-");
+        if (parts.length < 4 || parts[0].length() != 2 || "ff".equals(parts[0]) || parts[1].length() != 32 || parts[2].length() != 16 || parts[3].length() != 2
+                || !isHex(parts[1]) || !isHex(parts[2]) || !isHex(parts[3]) || parts[1].matches("0+") || parts[2].matches("0+")) {
+            return null;
+        }
+        return new String[]{parts[1], parts[2], (Integer.parseInt(parts[3], 16) & 1) == 1 ? "01" : "00"};
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void export(List<Span> spans) {
+        buffer.export(spans);
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(spans);
+            } catch (RuntimeException e) {
+                exportFailures.increment();
+            }
+        }
+    }
+
+    /**
+     * @return spans of the last traces
+     */
+    public SpanBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return future completed when the exporters are closed
+     */
+    public Future<Void> close() {
+        return Future.all(exporters.stream().map(SpanExporter::close).collect(Collectors.toList())).mapEmpty();
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("sampleRate", sampleRate)
+                .put("traces", traces.sum())
+                .put("sampledTraces", sampledTraces.sum())
+                .put("exportFailures", exportFailures.sum());
+    }
+
+    @Override
+    public String toString() {
+        return toJson().encode();
+    }
+}
@@ -0,0 +1,348 @@
+package mtk.apix.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.impl.ContextInternal;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handler of the batch endpoint: execute many sub-requests sent in one http request.
+ * The body is a JSON array of sub-requests: {@code [{"method": "GET", "path": "/api/users/1", "headers": {...}, "body": ...}]}
+ * Sub-requests are dispatched in process to the controller endpoints, at most parallelism at a time: the interceptor then the handlers of the matched endpoint
+ * are called with a {@link SubRequestContext}, without any connection. The remote address of the sub-requests is the one of the batch request.
+ * Each sub-request runs on its own duplicate of the vertx context of the batch request, whose locals start as a copy of the batch ones:
+ * {@link Deadline#current()} and Trace.current() of parallel sub-requests don't overwrite each other.
+ * A sub-request matching no endpoint is answered 404 (405 if only its method differs), its Content-Type and Accept headers are checked against the
+ * consumed and produced types of the endpoint (415, 406).
+ * The body of a sub-request is a JSON value, a text, or the base64 of binary content with {@code "encoding": "base64"}.
+ * The response is a JSON array of {@code {"index", "status", "headers", "body"}} in the order of the sub-requests,
+ * a JSON body is given as JSON, a text body as a string, other bodies (CBOR, images...) as base64 with {@code "encoding": "base64"},
+ * or, with the query parameter stream=true, one JSON line per sub-request (application/x-ndjson) written as soon as it completes.
+ * Authorization and Cookie headers of the batch request are forwarded to the sub-requests which don't define them.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class BatchRequestHandler implements Handler<RoutingContext> {
+
+    public static final String DEFAULT_PATH = "/apix/batch";
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final int DEFAULT_MAX_REQUESTS = 50;
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String BASE64 = "base64";
+
+    private final String path;
+    private final int parallelism;
+    private final int maxRequests;
+    private final List<Endpoint> endpoints;
+    private final Handler<RoutingContext> interceptor;
+    private final Handler<RoutingContext> errorHandler;
+
+    /**
+     * @param path         path of the batch endpoint
+     * @param parallelism  max sub-requests executed at the same time
+     * @param maxRequests  max sub-requests per batch
+     * @param endpoints    endpoints of the application, with their handlers
+     * @param interceptor  handler of the interceptor, called before the handlers of the endpoint, null if none
+     * @param errorHandler handler of the 500 failures (controller advice), null if none
+     */
+    public BatchRequestHandler(String path, int parallelism, int maxRequests, List<Endpoint> endpoints, Handler<RoutingContext> interceptor, Handler<RoutingContext> errorHandler) {
+        this.path = path;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxRequests = Math.max(1, maxRequests);
+        this.endpoints = endpoints;
+        this.interceptor = interceptor;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        JsonArray subRequests;
+        try {
+            subRequests = routingContext.body().asJsonArray();
+        } catch (DecodeException | ClassCastException e) {
+            subRequests = null;
+        }
+        if (subRequests == null) {
+            routingContext.response().setStatusCode(400).end("Batch body must be a JSON array of sub-requests");
+            return;
+        }
+        if (subRequests.size() > maxRequests) {
+            routingContext.response().setStatusCode(413).end("Batch is limited to " + maxRequests + " sub-requests");
+            return;
+        }
+
+        boolean stream = Boolean.parseBoolean(routingContext.request().getParam("stream"));
+        HttpServerResponse response = routingContext.response();
+        JsonObject[] results = new JsonObject[subRequests.size()];
+        if (stream) {
+            response.setChunked(true).putHeader(HttpHeaders.CONTENT_TYPE, NDJSON);
+        }
+        if (subRequests.isEmpty()) {
+            end(response, results, stream);
+            return;
+        }
+
+        Context batchVertxContext = routingContext.vertx().getOrCreateContext();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        JsonArray requests = subRequests;
+        Handler<Integer> onCompleted = index -> {
+            if (stream && !response.closed()) {
+                response.write(results[index].encode() + "\n");
+            }
+            if (completed.incrementAndGet() == results.length) {
+                end(response, results, stream);
+            }
+        };
+        for (int i = 0; i < Math.min(parallelism, results.length); i++) {
+            dispatchNext(routingContext, batchVertxContext, requests, results, next, onCompleted);
+        }
+    }
+
+    private void dispatchNext(RoutingContext batchContext, Context batchVertxContext, JsonArray requests, JsonObject[] results, AtomicInteger next, Handler<Integer> onCompleted) {
+        int index = next.getAndIncrement();
+        if (index >= results.length) {
+            return;
+        }
+        Future<JsonObject> result;
+        try {
+            result = dispatch(batchContext, batchVertxContext, requests.getValue(index));
+        } catch (RuntimeException e) {
+            result = Future.failedFuture(e);
+        }
+        result.onComplete(ar -> {
+            results[index] = (ar.succeeded() ? ar.result() : error(500, ar.cause().getMessage())).put("index", index);
+            onCompleted.handle(index);
+            dispatchNext(batchContext, batchVertxContext, requests, results, next, onCompleted);
+        });
+    }
+
+    private Future<JsonObject> dispatch(RoutingContext batchContext, Context batchVertxContext, Object subRequest) {
+        HttpServerRequest batchRequest = batchContext.request();
+        if (!(subRequest instanceof JsonObject) || ((JsonObject) subRequest).getString("path") == null) {
+            return Future.succeededFuture(error(400, "Sub-request must be an object with at least a path"));
+        }
+        JsonObject json = (JsonObject) subRequest;
+        String subPath = json.getString("path");
+        if (subPath.equals(path) || subPath.startsWith(path + "?")) {
+            return Future.succeededFuture(error(400, "Batch endpoint can't be called in a batch"));
+        }
+        HttpMethod method;
+        try {
+            method = HttpMethod.valueOf(json.getString("method", "GET").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Future.succeededFuture(error(400, "Unknown method " + json.getString("method")));
+        }
+
+        MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        JsonObject subHeaders = json.getJsonObject("headers", new JsonObject());
+        for (Map.Entry<String, Object> header : subHeaders) {
+            headers.add(header.getKey(), String.valueOf(header.getValue()));
+        }
+        forwardIfAbsent(batchRequest, headers, HttpHeaders.AUTHORIZATION);
+        forwardIfAbsent(batchRequest, headers, HttpHeaders.COOKIE);
+
+        Object body = json.getValue("body");
+        Buffer bodyBuffer;
+        try {
+            bodyBuffer = body == null ? Buffer.buffer() : !(body instanceof String) ? Json.encodeToBuffer(body)
+                    : BASE64.equals(json.getString("encoding")) ? Buffer.buffer(Base64.getDecoder().decode((String) body)) : Buffer.buffer((String) body);
+        } catch (IllegalArgumentException e) {
+            return Future.succeededFuture(error(400, "Invalid base64 body: " + e.getMessage()));
+        }
+        if (body != null && !(body instanceof String) && !headers.contains(HttpHeaders.CONTENT_TYPE)) {
+            headers.set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        }
+
+        int query = subPath.indexOf('?');
+        String pathOnly = query >= 0 ? subPath.substring(0, query) : subPath;
+        Endpoint endpoint = null;
+        Map<String, String> pathParams = null;
+        boolean pathMatched = false;
+        for (Endpoint candidate : endpoints) {
+            Map<String, String> params = candidate.pathParams(pathOnly);
+            if (params != null) {
+                pathMatched = true;
+                if (candidate.getHttpMethod().equals(method)) {
+                    endpoint = candidate;
+                    pathParams = params;
+                    break;
+                }
+            }
+        }
+        if (endpoint == null) {
+            return Future.succeededFuture(pathMatched ? error(405, "Method Not Allowed") : error(404, "Not Found"));
+        }
+        if (!consumes(endpoint, headers.get(HttpHeaders.CONTENT_TYPE))) {
+            return Future.succeededFuture(error(415, "Unsupported Media Type"));
+        }
+        String acceptable = acceptable(endpoint.getProduce(), headers.get(HttpHeaders.ACCEPT));
+        if (acceptable != null && acceptable.isEmpty()) {
+            return Future.succeededFuture(error(406, "Not Acceptable"));
+        }
+
+        List<Handler<RoutingContext>> handlers = new ArrayList<>();
+        if (interceptor != null) {
+            handlers.add(interceptor);
+        }
+        handlers.addAll(endpoint.getHandlers());
+        SubRequestContext context = new SubRequestContext(batchContext, method, subPath, headers, bodyBuffer, pathParams, acceptable, handlers, errorHandler);
+        duplicate(batchVertxContext).dispatch(v -> context.next());
+        return context.ended().map(v -> toResult(context.responseStatus(), context.responseHeaders(), context.responseBody()));
+    }
+
+    /**
+     * Vertx has no public API to duplicate a context: the duplicate shares the event loop (or worker) of the batch request, with its own locals
+     *
+     * @param batchVertxContext vertx context of the batch request
+     * @return new context of a sub-request, its locals are a copy of the locals of the batch request (trace, ...)
+     */
+    private static ContextInternal duplicate(Context batchVertxContext) {
+        ContextInternal batch = (ContextInternal) batchVertxContext;
+        ContextInternal duplicate = batch.duplicate();
+        duplicate.localContextData().putAll(batch.localContextData());
+        return duplicate;
+    }
+
+    /**
+     * Like the consumes of the route, see Apix mediaTypes: a GET endpoint consumes any type unless its consumed types are given
+     */
+    private boolean consumes(Endpoint endpoint, String contentType) {
+        if (endpoint.getConsume().isEmpty() || (endpoint.getHttpMethod() == HttpMethod.GET && contentType == null)) {
+            return true;
+        }
+        if (contentType == null) {
+            return false;
+        }
+        String type = baseType(contentType);
+        for (String consume : endpoint.getConsume().split(",")) {
+            if (matches(baseType(consume), type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param produce comma separated produced types
+     * @param accept  Accept header of the sub-request
+     * @return first produced type accepted, null without Accept header, empty if no produced type is accepted
+     */
+    private String acceptable(String produce, String accept) {
+        if (produce.isEmpty() || accept == null || accept.trim().isEmpty()) {
+            return null;
+        }
+        for (String accepted : accept.split(",")) {
+            if (refused(accepted)) {
+                continue;
+            }
+            for (String type : produce.split(",")) {
+                if (matches(baseType(accepted), baseType(type))) {
+                    return type.trim();
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * @return true if the accepted type has a quality of 0
+     */
+    private static boolean refused(String accepted) {
+        for (String parameter : accepted.split(";")) {
+            if (parameter.trim().startsWith("q=")) {
+                return ClassUtil.valueOf(parameter.trim().substring(2), Double.class, 1d) <= 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the type matches the pattern, the pattern may be a wildcard: *&#47;* or text/*
+     */
+    private static boolean matches(String pattern, String type) {
+        if (pattern.equals("*/*") || pattern.equals(type)) {
+            return true;
+        }
+        return pattern.endsWith("/*") && type.startsWith(pattern.substring(0, pattern.length() - 1));
+    }
+
+    private static String baseType(String mediaType) {
+        int parameters = mediaType.indexOf(';');
+        return (parameters >= 0 ? mediaType.substring(0, parameters) : mediaType).trim().toLowerCase();
+    }
+
+    private void forwardIfAbsent(HttpServerRequest batchRequest, MultiMap headers, CharSequence name) {
+        String value = batchRequest.getHeader(name);
+        if (value != null && !headers.contains(name)) {
+            headers.set(name, value);
+        }
+    }
+
+    private JsonObject toResult(int status, MultiMap responseHeaders, Buffer body) {
+        JsonObject headers = new JsonObject();
+        responseHeaders.forEach(header -> headers.put(header.getKey(), header.getValue()));
+        JsonObject result = new JsonObject().put("status", status).put("headers", headers);
+        String contentType = responseHeaders.get(HttpHeaders.CONTENT_TYPE);
+        if (body.length() == 0 || contentType == null) {
+            return result.put("body", body.toString());
+        }
+        String type = baseType(contentType);
+        if (type.contains("json")) {
+            try {
+                return result.put("body", Json.decodeValue(body));
+            } catch (DecodeException e) {
+                // kept as text
+            }
+        }
+        if (isText(type)) {
+            return result.put("body", body.toString());
+        }
+        return result.put("body", Base64.getEncoder().encodeToString(body.getBytes())).put("encoding", BASE64);
+    }
+
+    /**
+     * @param type media type without parameters
+     * @return true if the body of the type can be given as a string
+     */
+    private static boolean isText(String type) {
+        return type.startsWith("text/") || type.contains("json") || type.contains("xml") || type.equals("application/javascript")
+                || type.equals("application/x-www-form-urlencoded") || type.equals(NDJSON);
+    }
+
+    private JsonObject error(int status, String message) {
+        return new JsonObject().put("status", status).put("headers", new JsonObject()).put("body", message);
+    }
+
+    private void end(HttpServerResponse response, JsonObject[] results, boolean stream) {
+        if (response.closed() || response.ended()) {
+            return;
+        }
+        if (stream) {
+            response.end();
+            return;
+        }
+        List<JsonObject> list = new ArrayList<>(results.length);
+        for (JsonObject result : results) {
+            list.add(result);
+        }
+        response.putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON).end(new JsonArray(list).toBuffer());
+    }
+}
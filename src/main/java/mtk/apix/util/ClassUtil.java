@@ -7,6 +7,8 @@ import mtk.apix.annotation.PathParam;
 import mtk.apix.annotation.PathVariable;
 import mtk.apix.annotation.RequestBody;
 import mtk.apix.annotation.RequestParam;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.Trace;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -19,6 +21,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -30,6 +33,9 @@ import java.util.stream.Collectors;
  */
 @SuppressWarnings("unchecked")
 public final class ClassUtil {
+
+    private static final Set<String> scannedClasses = ConcurrentHashMap.newKeySet();
+
     private ClassUtil() {
     }
 
@@ -42,7 +48,8 @@ public final class ClassUtil {
      * @param annotations list of annotation
      * @return set of all class annotate with given list of annotation
      */
-    public static Set<Class<?>> getJarAnnotatedClass(Class<?> mainClass, String packageName, Class<? extends Annotation>[] annotations) {
+    @SafeVarargs
+    public static Set<Class<?>> getJarAnnotatedClass(Class<?> mainClass, String packageName, Class<? extends Annotation>... annotations) {
         Set<Class<?>> classes = new HashSet<>();
         try {
             File jarFile = new File(mainClass.getProtectionDomain().getCodeSource().getLocation().toURI());
@@ -55,6 +62,7 @@ public final class ClassUtil {
                         try {
                             String className = entry.getName().replace('/', '.').substring(0, entry.getName().length() - 6);
                             Class<?> clazz = mainClass.getClassLoader().loadClass(className);
+                            scannedClasses.add(className);
                             for (Class<? extends Annotation> annotation : annotations) {
                                 if (clazz.isAnnotationPresent(annotation)) {
                                     classes.add(clazz);
@@ -84,7 +92,8 @@ public final class ClassUtil {
      * @param annotations list of annotation
      * @return all class annotate with given list of annotation
      */
-    public static Set<Class<?>> getAnnotatedClass(Class<?> mainClass, String packageName, Class<? extends Annotation>[] annotations) {
+    @SafeVarargs
+    public static Set<Class<?>> getAnnotatedClass(Class<?> mainClass, String packageName, Class<? extends Annotation>... annotations) {
         String classpath = System.getProperty("java.class.path");
         if (!classpath.contains(";") && classpath.endsWith(".jar")) {
             return getJarAnnotatedClass(mainClass, packageName, annotations);
@@ -100,6 +109,7 @@ public final class ClassUtil {
                                         Class<?> clazz = null;
                                         try {
                                             clazz = Class.forName(packageName + "." + line.substring(0, line.lastIndexOf(".class")));
+                                            scannedClasses.add(clazz.getName());
                                             for (Class<? extends Annotation> annotation : annotations) {
                                                 if (clazz.isAnnotationPresent(annotation)) {
                                                     classes.add(clazz);
@@ -124,6 +134,13 @@ public final class ClassUtil {
         return classes;
     }
 
+    /**
+     * @return number of distinct classes loaded by the component scans
+     */
+    public static int getScannedClassCount() {
+        return scannedClasses.size();
+    }
+
     /**
      * Test if class is annotated with any of given annotation list
      *
@@ -131,7 +148,8 @@ public final class ClassUtil {
      * @param annotations list of annotation
      * @return result of check
      */
-    public static boolean isClassAnnotatedWithAny(Class<?> aClass, Class<? extends Annotation>[] annotations) {
+    @SafeVarargs
+    public static boolean isClassAnnotatedWithAny(Class<?> aClass, Class<? extends Annotation>... annotations) {
         for (Class<? extends Annotation> annotation : annotations) {
             if (aClass.isAnnotationPresent(annotation)) {
                 return true;
@@ -316,13 +334,17 @@ public final class ClassUtil {
     /**
      * A method can be invoked if and only if it has at least one parameter of type RoutingContext
      * The method will be invoked, and if one of the parameters is available in the list of dependencies then we use it, otherwise we set it to null
+     * The binding of the parameters and the invocation are recorded as spans of the request {@link Trace}
      *
      * @param instance       instance of the objet
      * @param method         target method
      * @param routingContext vertx RoutingContext
      * @param dependencies   list of objects that can be used as parameters of the method to invoke
+     * @return result of invocation
      */
-    public static void invokeHttpMethod(Object instance, Method method, RoutingContext routingContext, List<Object> dependencies) {
+    public static Object invokeHttpMethod(Object instance, Method method, RoutingContext routingContext, List<Object> dependencies) {
+        Trace trace = Trace.of(routingContext);
+        Span span = trace.span("binding");
         try {
             Parameter[] parameters = method.getParameters();
             Object[] args = new Object[parameters.length];
@@ -342,26 +364,33 @@ public final class ClassUtil {
                     requestParam = (requestParam == null || requestParam.isEmpty()) ? parameter.getName() : requestParam;
                     args[i] = ClassUtil.valueOf(routingContext.request().getParam(requestParam), paramClass);
                 } else if (parameter.isAnnotationPresent(RequestBody.class)) {
-                    args[i] = routingContext.body().asJsonObject().mapTo(paramClass);
+                    args[i] = ContentCodec.ofRequest(routingContext).decode(routingContext.body().buffer(), paramClass);
                 } else if (RoutingContext.class.isAssignableFrom(paramClass)) {
                     args[i] = routingContext;
                 } else if (HttpServerResponse.class.isAssignableFrom(paramClass)) {
                     args[i] = routingContext.response();
                 } else if (HttpServerRequest.class.isAssignableFrom(paramClass)) {
                     args[i] = routingContext.request();
+                } else if (Deadline.class.equals(paramClass)) {
+                    args[i] = Deadline.of(routingContext);
                 } else {
                     args[i] = findInstance(paramClass, dependencies);
                 }
             }
-            method.invoke(instance, args);
+            span.end();
+            span = trace.span("controller");
+            return method.invoke(instance, args);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException(e);
+        } finally {
+            span.end();
         }
     }
 
     /**
      * Find in the list of given instance an instance which class is assignable from given class
+     * Given collections are searched too, an {@link InstanceResolver} is asked for the class
      *
      * @param aClass    class of the instance to find
      * @param instances list of instance
@@ -369,13 +398,34 @@ public final class ClassUtil {
      */
     public static Object findInstance(Class<?> aClass, Object... instances) {
         for (Object instance : instances) {
-            if (aClass.isAssignableFrom(instances.getClass())) {
+            if (instance instanceof InstanceResolver && !aClass.isInstance(instance)) {
+                Object found = ((InstanceResolver) instance).resolve(aClass);
+                if (found != null) {
+                    return found;
+                }
+            } else if (instance instanceof Collection && !aClass.isInstance(instance)) {
+                Object found = findInstance(aClass, ((Collection<?>) instance).toArray());
+                if (found != null) {
+                    return found;
+                }
+            } else if (aClass.isInstance(instance)) {
                 return instance;
             }
         }
         return null;
     }
 
+    /**
+     * Gives the instance of a class on demand, ex: components created on first use
+     */
+    public interface InstanceResolver {
+        /**
+         * @param aClass class of the instance to find
+         * @return the instance, null if none
+         */
+        Object resolve(Class<?> aClass);
+    }
+
     /**
      * Find the current application path.
      * If the application is packaged in JAR then it returns the folder of its location otherwise we consider the application as being the main folder to return
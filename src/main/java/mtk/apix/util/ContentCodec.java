@@ -0,0 +1,202 @@
+package mtk.apix.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.ext.web.RoutingContext;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encoder and decoder of the objects for one media type, through a Jackson mapper.
+ * The ObjectReader and ObjectWriter of each type are created once and cached.
+ * - application/json: the vertx mapper (DatabindCodec)
+ * - application/cbor, application/x-jackson-smile, application/msgpack: a copy of the vertx mapper with the binary factory,
+ * available when jackson-dataformat-cbor, jackson-dataformat-smile or jackson-dataformat-msgpack (org.msgpack) is in the classpath
+ * Other formats can be added with {@link #register(String, ObjectMapper)}.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class ContentCodec {
+
+    private static final Map<String, String> BINARY_FACTORIES = new HashMap<>();
+    private static final Map<String, ContentCodec> codecs = new ConcurrentHashMap<>();
+    private static volatile ContentCodec json;
+
+    static {
+        BINARY_FACTORIES.put(MediaType.APPLICATION_CBOR, "com.fasterxml.jackson.dataformat.cbor.CBORFactory");
+        BINARY_FACTORIES.put(MediaType.APPLICATION_SMILE, "com.fasterxml.jackson.dataformat.smile.SmileFactory");
+        BINARY_FACTORIES.put(MediaType.APPLICATION_MSGPACK, "org.msgpack.jackson.dataformat.MessagePackFactory");
+    }
+
+    private final String mediaType;
+    private final ObjectMapper mapper;
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private ContentCodec(String mediaType, ObjectMapper mapper) {
+        this.mediaType = mediaType;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Add or replace the codec of a media type
+     *
+     * @param mediaType media type, ex: application/x-protobuf
+     * @param mapper    Jackson mapper of the format
+     */
+    public static void register(String mediaType, ObjectMapper mapper) {
+        codecs.put(baseType(mediaType), new ContentCodec(baseType(mediaType), mapper));
+    }
+
+    /**
+     * @return codec of application/json
+     */
+    public static ContentCodec json() {
+        if (json == null) {
+            json = new ContentCodec(MediaType.APPLICATION_JSON, DatabindCodec.mapper());
+        }
+        return json;
+    }
+
+    /**
+     * @param mediaType media type, parameters are ignored (ex: "application/cbor; charset=..."), json types (+json suffix) use the json codec
+     * @return codec of the media type, null if the type has no codec or if its library isn't in the classpath
+     */
+    public static ContentCodec of(String mediaType) {
+        if (mediaType == null || mediaType.isEmpty()) {
+            return null;
+        }
+        String type = baseType(mediaType);
+        ContentCodec codec = codecs.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        if (MediaType.APPLICATION_JSON.equals(type) || type.endsWith("+json")) {
+            return json();
+        }
+        String factory = BINARY_FACTORIES.get(type);
+        if (factory == null || !isAvailable(type)) {
+            return null;
+        }
+        return codecs.computeIfAbsent(type, t -> {
+            try {
+                // copied to keep the modules and settings of the vertx mapper
+                JsonFactory jsonFactory = (JsonFactory) Class.forName(factory).getDeclaredConstructor().newInstance();
+                return new ContentCodec(t, DatabindCodec.mapper().copyWith(jsonFactory));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can't create the " + t + " codec: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @param routingContext vertx RoutingContext
+     * @return codec of the request Content-Type, json if the request has no Content-Type or if the type has no codec
+     */
+    public static ContentCodec ofRequest(RoutingContext routingContext) {
+        ContentCodec codec = of(routingContext.request().getHeader("Content-Type"));
+        return codec != null ? codec : json();
+    }
+
+    /**
+     * Media type of the response among the produced types, the one negotiated with the Accept header of the request if any
+     *
+     * @param routingContext vertx RoutingContext
+     * @param produce        comma separated produced types
+     * @return media type of the response, empty if the route produces no type
+     */
+    public static String negotiate(RoutingContext routingContext, String produce) {
+        String acceptable = routingContext.getAcceptableContentType();
+        return acceptable != null ? acceptable : first(produce);
+    }
+
+    /**
+     * @param mediaTypes comma separated media types
+     * @return first type, empty if none
+     */
+    public static String first(String mediaTypes) {
+        int separator = mediaTypes.indexOf(',');
+        return (separator >= 0 ? mediaTypes.substring(0, separator) : mediaTypes).trim();
+    }
+
+    /**
+     * Check that the libraries of the binary types are in the classpath
+     *
+     * @param mediaTypes comma separated media types
+     * @throws IllegalArgumentException if a binary type has no library
+     */
+    public static void checkAvailable(String mediaTypes) {
+        for (String mediaType : mediaTypes.split(",")) {
+            String type = baseType(mediaType);
+            if (BINARY_FACTORIES.containsKey(type) && !codecs.containsKey(type) && !isAvailable(type)) {
+                throw new IllegalArgumentException("No codec for " + type + ", add " + BINARY_FACTORIES.get(type) + " to the classpath");
+            }
+        }
+    }
+
+    private static boolean isAvailable(String type) {
+        try {
+            Class.forName(BINARY_FACTORIES.get(type), false, ContentCodec.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static String baseType(String mediaType) {
+        int parameters = mediaType.indexOf(';');
+        return (parameters >= 0 ? mediaType.substring(0, parameters) : mediaType).trim().toLowerCase();
+    }
+
+    /**
+     * @param value object to encode
+     * @return encoded object
+     */
+    public Buffer encode(Object value) {
+        try {
+            return Buffer.buffer(writers.computeIfAbsent(value.getClass(), mapper::writerFor).writeValueAsBytes(value));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to encode as " + mediaType + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param body encoded object
+     * @param type type of the object
+     * @return decoded object, null if the body is empty
+     */
+    public <T> T decode(Buffer body, Type type) {
+        if (body == null || body.length() == 0) {
+            return null;
+        }
+        try {
+            return readers.computeIfAbsent(type, t -> {
+                JavaType javaType = mapper.getTypeFactory().constructType(t);
+                return mapper.readerFor(javaType);
+            }).readValue(body.getBytes());
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to decode " + mediaType + ": " + e.getMessage(), e);
+        }
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    @Override
+    public String toString() {
+        return mediaType;
+    }
+}
@@ -0,0 +1,148 @@
+package mtk.apix.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Time left to a request before its timeout, see the timeout attribute of the mapping annotations.
+ * Can be a parameter of a mapping method, and is given by {@link #current()} on the context of the request,
+ * so components can pass the remaining time to the clients they call.
+ * When the deadline passes, the response is ended with the timeout status and the bound futures fail with a {@link TimeoutException}.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class Deadline {
+
+    /**
+     * Deadline of requests without timeout, it never expires
+     */
+    public static final Deadline NONE = new Deadline(0);
+    private static final String KEY = "apix.deadline";
+
+    private final long timeoutMillis;
+    private final long expiresAtNanos;
+    private final List<Promise<?>> pending = new ArrayList<>();
+    private boolean expired;
+
+    private Deadline(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Start the deadline of a request: the response is ended with the given status if it's not ended before the timeout
+     *
+     * @param vertx          vertx instance
+     * @param routingContext vertx RoutingContext of the request
+     * @param timeoutMillis  timeout of the request, in milliseconds
+     * @param status         status of the response when the deadline passes (503 or 504)
+     * @return the deadline
+     */
+    public static Deadline start(Vertx vertx, RoutingContext routingContext, long timeoutMillis, int status) {
+        Deadline deadline = new Deadline(timeoutMillis);
+        routingContext.put(KEY, deadline);
+        Context context = Vertx.currentContext();
+        if (context != null) {
+            context.putLocal(KEY, deadline);
+        }
+        long timerId = vertx.setTimer(timeoutMillis, id -> {
+            if (!routingContext.response().ended() && !routingContext.response().headWritten() && !routingContext.failed()) {
+                routingContext.fail(status, new TimeoutException("Request timed out after " + timeoutMillis + " ms"));
+            }
+            deadline.expire();
+        });
+        routingContext.addEndHandler(ar -> vertx.cancelTimer(timerId));
+        return deadline;
+    }
+
+    /**
+     * @param routingContext vertx RoutingContext of the request
+     * @return the deadline of the request, {@link #NONE} if the request has no timeout
+     */
+    public static Deadline of(RoutingContext routingContext) {
+        Deadline deadline = routingContext.get(KEY);
+        return deadline != null ? deadline : NONE;
+    }
+
+    /**
+     * @return the deadline of the request handled on the current vertx context, {@link #NONE} outside a request with timeout
+     */
+    public static Deadline current() {
+        Context context = Vertx.currentContext();
+        Deadline deadline = context != null ? context.getLocal(KEY) : null;
+        return deadline != null ? deadline : NONE;
+    }
+
+    /**
+     * @return remaining time in milliseconds, 0 if expired, {@link Long#MAX_VALUE} for {@link #NONE}
+     */
+    public long remainingMillis() {
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return this != NONE && (expired || expiresAtNanos - System.nanoTime() <= 0);
+    }
+
+    /**
+     * @return the timeout of the request in milliseconds, 0 for {@link #NONE}
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Give a future failing with a {@link TimeoutException} when the deadline passes, if the given one isn't completed before
+     *
+     * @param future future to bound
+     * @return the bound future
+     */
+    public <T> Future<T> bind(Future<T> future) {
+        if (this == NONE || future.isComplete()) {
+            return future;
+        }
+        Promise<T> promise = Promise.promise();
+        synchronized (pending) {
+            if (expired) {
+                return Future.failedFuture(timeoutException());
+            }
+            pending.add(promise);
+        }
+        future.onComplete(ar -> {
+            synchronized (pending) {
+                pending.remove(promise);
+            }
+            if (ar.succeeded()) {
+                promise.tryComplete(ar.result());
+            } else {
+                promise.tryFail(ar.cause());
+            }
+        });
+        return promise.future();
+    }
+
+    private void expire() {
+        List<Promise<?>> expiredPromises;
+        synchronized (pending) {
+            expired = true;
+            expiredPromises = new ArrayList<>(pending);
+            pending.clear();
+        }
+        expiredPromises.forEach(promise -> promise.tryFail(timeoutException()));
+    }
+
+    private TimeoutException timeoutException() {
+        return new TimeoutException("Deadline of " + timeoutMillis + " ms exceeded");
+    }
+}
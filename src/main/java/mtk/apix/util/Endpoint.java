@@ -0,0 +1,131 @@
+package mtk.apix.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Route created for a controller mapping method
+ *
+ * @author mahatoky rasolonirina
+ */
+public class Endpoint {
+
+    private final HttpMethod httpMethod;
+    private final String path;
+    private final Object controller;
+    private final Method method;
+    private final String consume;
+    private final String produce;
+    private final List<String> variables = new ArrayList<>();
+    private final Pattern pattern;
+    private final List<Handler<RoutingContext>> handlers = new ArrayList<>();
+
+    public Endpoint(HttpMethod httpMethod, String path, Object controller, Method method, String consume, String produce) {
+        this.httpMethod = httpMethod;
+        this.path = path;
+        this.controller = controller;
+        this.method = method;
+        this.consume = consume;
+        this.produce = produce;
+        this.pattern = toPattern(path);
+    }
+
+    /**
+     * @param method http method of a request
+     * @param path   path of a request, without query
+     * @return true if the request is routed to this endpoint
+     */
+    public boolean matches(HttpMethod method, String path) {
+        return httpMethod.equals(method) && pattern.matcher(path).matches();
+    }
+
+    /**
+     * @param path path of a request, without query
+     * @return decoded path variables of the request, null if the path doesn't match this endpoint
+     */
+    public Map<String, String> pathParams(String path) {
+        Matcher matcher = pattern.matcher(path);
+        if (!matcher.matches()) {
+            return null;
+        }
+        Map<String, String> pathParams = new HashMap<>();
+        for (int i = 0; i < variables.size(); i++) {
+            try {
+                pathParams.put(variables.get(i), URLDecoder.decode(matcher.group(i + 1).replace("+", "%2B"), "UTF-8"));
+            } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                pathParams.put(variables.get(i), matcher.group(i + 1));
+            }
+        }
+        return pathParams;
+    }
+
+    /**
+     * Add a handler of the route, handlers are used to dispatch batch sub-requests in process, see {@link BatchRequestHandler}
+     *
+     * @param handler route handler
+     */
+    public void addHandler(Handler<RoutingContext> handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * Path variables match a segment, * matches anything
+     */
+    private Pattern toPattern(String path) {
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].startsWith(":")) {
+                variables.add(segments[i].substring(1));
+                segments[i] = "([^/]+)";
+            } else {
+                segments[i] = Pattern.quote(segments[i]).replace("*", "\\E.*\\Q");
+            }
+        }
+        return Pattern.compile(String.join("/", segments));
+    }
+
+    public HttpMethod getHttpMethod() {
+        return httpMethod;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Object getController() {
+        return controller;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getConsume() {
+        return consume;
+    }
+
+    public String getProduce() {
+        return produce;
+    }
+
+    public List<Handler<RoutingContext>> getHandlers() {
+        return Collections.unmodifiableList(handlers);
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod.name() + " " + path;
+    }
+}
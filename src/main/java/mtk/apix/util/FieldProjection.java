@@ -0,0 +1,164 @@
+package mtk.apix.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fields of a response chosen by the client, see {@link mtk.apix.annotation.SparseFields}.
+ * The fields string is compiled once into a tree of field names, cached with its ObjectWriter of each {@link ContentCodec}.
+ * Projections are serialized by a copy of the mapper of the codec where every bean goes through one property filter:
+ * the filter looks up the current tree node for each property, and makes the node of an included property the current node while its value is written.
+ * Maps, JsonObject and JsonArray are written by the same provider, the keys of a map are filtered like the properties of a bean.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class FieldProjection {
+
+    private static final String FILTER_ID = "apix.fields";
+    private static final String NODE = "apix.fields.node";
+    private static final int MAX_CACHED = 1024;
+    private static final FieldProjection ALL = new FieldProjection("", null);
+    private static final Map<String, FieldProjection> cache = new ConcurrentHashMap<>();
+    private static final Map<ContentCodec, ObjectWriter> baseWriters = new ConcurrentHashMap<>();
+
+    private final String fields;
+    private final Map<String, FieldProjection> children;
+    private final Map<ContentCodec, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private FieldProjection(String fields, Map<String, FieldProjection> children) {
+        this.fields = fields;
+        this.children = children;
+    }
+
+    /**
+     * @param fields comma separated fields, nested fields separated by '.'
+     * @return compiled projection, null if no field is given
+     */
+    public static FieldProjection of(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        FieldProjection projection = cache.get(fields);
+        if (projection != null) {
+            return projection;
+        }
+        projection = compile(fields);
+        // clients choose the fields, the cache is bounded: beyond, projections are compiled for each request
+        if (cache.size() < MAX_CACHED) {
+            cache.putIfAbsent(fields, projection);
+        }
+        return projection;
+    }
+
+    private static FieldProjection compile(String fields) {
+        FieldProjection root = new FieldProjection(fields, new HashMap<>());
+        for (String path : fields.split(",")) {
+            FieldProjection node = root;
+            String[] names = path.trim().split("\\.");
+            for (int i = 0; i < names.length && node != ALL; i++) {
+                String name = names[i].trim();
+                if (name.isEmpty()) {
+                    break;
+                }
+                if (i == names.length - 1) {
+                    node.children.put(name, ALL);
+                } else {
+                    node = node.children.computeIfAbsent(name, k -> new FieldProjection(k, new HashMap<>()));
+                }
+            }
+        }
+        return root;
+    }
+
+    private static ObjectWriter baseWriter(ContentCodec codec) {
+        return baseWriters.computeIfAbsent(codec, c -> {
+            // copied on first use, after the application has configured the mapper
+            ObjectMapper mapper = c.getMapper().copy();
+            mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(new NopAnnotationIntrospector() {
+                @Override
+                public Object findFilterId(Annotated annotated) {
+                    return annotated instanceof AnnotatedClass ? FILTER_ID : null;
+                }
+            }, mapper.getSerializationConfig().getAnnotationIntrospector()));
+            // the vertx serializers write through the mapper, these keep the projection of the current provider
+            mapper.registerModule(new SimpleModule()
+                    .addSerializer(JsonObject.class, new StdSerializer<JsonObject>(JsonObject.class) {
+                        @Override
+                        public void serialize(JsonObject value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                            provider.defaultSerializeValue(value.getMap(), generator);
+                        }
+                    })
+                    .addSerializer(JsonArray.class, new StdSerializer<JsonArray>(JsonArray.class) {
+                        @Override
+                        public void serialize(JsonArray value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                            provider.defaultSerializeValue(value.getList(), generator);
+                        }
+                    }));
+            SimpleFilterProvider filters = new SimpleFilterProvider().addFilter(FILTER_ID, new Filter());
+            mapper.setFilterProvider(filters);
+            return mapper.writer(filters);
+        });
+    }
+
+    /**
+     * @param value object to serialize
+     * @param codec format of the response
+     * @return the requested fields of the object, encoded by the codec
+     */
+    public Buffer encode(Object value, ContentCodec codec) {
+        try {
+            return Buffer.buffer(writers.computeIfAbsent(codec, c -> baseWriter(c).withAttribute(NODE, this)).writeValueAsBytes(value));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to encode as " + codec + ": " + e.getMessage(), e);
+        }
+    }
+
+    public String getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return fields;
+    }
+
+    private static final class Filter extends SimpleBeanPropertyFilter {
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            FieldProjection node = (FieldProjection) provider.getAttribute(NODE);
+            if (node == null || node == ALL) {
+                writer.serializeAsField(pojo, generator, provider);
+                return;
+            }
+            FieldProjection child = node.children.get(writer.getName());
+            if (child == null) {
+                return;
+            }
+            provider.setAttribute(NODE, child);
+            try {
+                writer.serializeAsField(pojo, generator, provider);
+            } finally {
+                provider.setAttribute(NODE, node);
+            }
+        }
+    }
+}
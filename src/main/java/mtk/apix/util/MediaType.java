@@ -1,5 +1,8 @@
 package mtk.apix.util;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author mahatoky rasolonirina
  */
@@ -8,6 +11,9 @@ public final class MediaType {
 
     public static final String APPLICATION_JSON = "application/json";
     public static final String APPLICATION_XML = "application/xml";
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final String APPLICATION_MSGPACK = "application/msgpack";
     public static final String APPLICATION_PDF = "application/pdf";
     public static final String APPLICATION_ZIP = "application/zip";
     public static final String APPLICATION_MS_WORD = "application/msword";
@@ -24,4 +30,56 @@ public final class MediaType {
     public static final String AUDIO_WAV = "audio/wav";
     public static final String VIDEO_MP4 = "video/mp4";
     public static final String VIDEO_MPEG = "video/mpeg";
+
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        EXTENSIONS.put("html", TEXT_HTML);
+        EXTENSIONS.put("htm", TEXT_HTML);
+        EXTENSIONS.put("css", TEXT_CSS);
+        EXTENSIONS.put("js", "text/javascript");
+        EXTENSIONS.put("mjs", "text/javascript");
+        EXTENSIONS.put("txt", TEXT_PLAIN);
+        EXTENSIONS.put("csv", TEXT_CSV);
+        EXTENSIONS.put("md", "text/markdown");
+        EXTENSIONS.put("json", APPLICATION_JSON);
+        EXTENSIONS.put("map", APPLICATION_JSON);
+        EXTENSIONS.put("webmanifest", "application/manifest+json");
+        EXTENSIONS.put("xml", APPLICATION_XML);
+        EXTENSIONS.put("pdf", APPLICATION_PDF);
+        EXTENSIONS.put("zip", APPLICATION_ZIP);
+        EXTENSIONS.put("wasm", "application/wasm");
+        EXTENSIONS.put("doc", APPLICATION_MS_WORD);
+        EXTENSIONS.put("xls", APPLICATION_MS_EXCEL);
+        EXTENSIONS.put("ppt", APPLICATION_MS_POWERPOINT);
+        EXTENSIONS.put("jpg", IMAGE_JPEG);
+        EXTENSIONS.put("jpeg", IMAGE_JPEG);
+        EXTENSIONS.put("png", IMAGE_PNG);
+        EXTENSIONS.put("gif", IMAGE_GIF);
+        EXTENSIONS.put("svg", "image/svg+xml");
+        EXTENSIONS.put("ico", "image/x-icon");
+        EXTENSIONS.put("webp", "image/webp");
+        EXTENSIONS.put("avif", "image/avif");
+        EXTENSIONS.put("woff", "font/woff");
+        EXTENSIONS.put("woff2", "font/woff2");
+        EXTENSIONS.put("ttf", "font/ttf");
+        EXTENSIONS.put("otf", "font/otf");
+        EXTENSIONS.put("mp3", AUDIO_MPEG);
+        EXTENSIONS.put("wav", AUDIO_WAV);
+        EXTENSIONS.put("mp4", VIDEO_MP4);
+        EXTENSIONS.put("mpeg", VIDEO_MPEG);
+        EXTENSIONS.put("webm", "video/webm");
+    }
+
+    /**
+     * @param fileName name or path of a file
+     * @return media type of the file extension, null if the extension is unknown
+     */
+    public static String ofFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0 || dot < fileName.lastIndexOf('/')) {
+            return null;
+        }
+        return EXTENSIONS.get(fileName.substring(dot + 1).toLowerCase());
+    }
 }
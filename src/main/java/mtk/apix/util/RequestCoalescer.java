@@ -0,0 +1,157 @@
+package mtk.apix.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Share one in-flight execution of a route between identical concurrent requests (single flight).
+ * One instance is created for each route annotated with {@link mtk.apix.annotation.Coalesce}.
+ * Only the serialized body and the status code are shared: headers set by the method on the first request are not copied to the others.
+ * Requests with different {@link FieldProjection}s or response content types are never coalesced.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+public class RequestCoalescer {
+
+    private static final String PATH = "path";
+    private static final String QUERY = "query";
+    private static final String HEADER = "header:";
+
+    private final Map<String, Future<SharedResponse>> inFlight = new ConcurrentHashMap<>();
+    private final List<String> keyParts = new ArrayList<>();
+    private final boolean authorizationInKey;
+    private final boolean cookieInKey;
+
+    /**
+     * @param key parts joined with '+', see {@link mtk.apix.annotation.Coalesce#key()}
+     */
+    public RequestCoalescer(String key) {
+        for (String part : key.split("\\+")) {
+            String trimmed = part.trim();
+            if (!PATH.equals(trimmed) && !QUERY.equals(trimmed) && !(trimmed.startsWith(HEADER) && trimmed.length() > HEADER.length())) {
+                throw new IllegalArgumentException("Invalid @Coalesce key part '" + trimmed + "', expected path, query or header:Name");
+            }
+            keyParts.add(trimmed);
+        }
+        authorizationInKey = keyParts.stream().anyMatch(p -> p.equalsIgnoreCase(HEADER + HttpHeaders.AUTHORIZATION));
+        cookieInKey = keyParts.stream().anyMatch(p -> p.equalsIgnoreCase(HEADER + HttpHeaders.COOKIE));
+    }
+
+    /**
+     * Run the invocation if no identical request is in flight, otherwise wait for the result of the one in flight
+     *
+     * @param routingContext vertx RoutingContext
+     * @param invocation     invocation of the mapping method
+     * @param produce        content type of the response
+     * @param projection     fields requested by the client, null for all the fields
+     */
+    public void handle(RoutingContext routingContext, Supplier<Object> invocation, String produce, FieldProjection projection) {
+        String key = key(routingContext.request(), produce, projection);
+        if (key == null) {
+            ResponseWriter.write(routingContext, invocation.get(), produce, projection);
+            return;
+        }
+
+        Promise<SharedResponse> promise = Promise.promise();
+        Future<SharedResponse> existing = inFlight.putIfAbsent(key, promise.future());
+        if (existing != null) {
+            reply(routingContext, existing, produce);
+            return;
+        }
+
+        try {
+            Object result = invocation.get();
+            Future<Object> future = result instanceof Future ? (Future<Object>) result : Future.succeededFuture(result);
+            future.onComplete(ar -> {
+                inFlight.remove(key, promise.future());
+                if (ar.succeeded()) {
+                    // status set by the method on the first request, ex: 201 or 404
+                    promise.complete(new SharedResponse(routingContext.response().getStatusCode(), ResponseWriter.toBuffer(ar.result(), ContentCodec.of(produce), projection)));
+                } else {
+                    promise.fail(ResponseWriter.invocationFailure(ar.cause()));
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise.future());
+            promise.fail(e);
+        }
+        reply(routingContext, promise.future(), produce);
+    }
+
+    private void reply(RoutingContext routingContext, Future<SharedResponse> shared, String produce) {
+        Context context = Vertx.currentContext();
+        shared.onComplete(ar -> {
+            if (context == null) {
+                reply(routingContext, ar.succeeded() ? ar.result() : null, ar.cause(), produce);
+            } else {
+                context.runOnContext(v -> reply(routingContext, ar.succeeded() ? ar.result() : null, ar.cause(), produce));
+            }
+        });
+    }
+
+    private void reply(RoutingContext routingContext, SharedResponse shared, Throwable failure, String produce) {
+        if (failure != null) {
+            if (!routingContext.failed()) {
+                routingContext.fail(failure);
+            }
+        } else {
+            if (!routingContext.response().ended()) {
+                routingContext.response().setStatusCode(shared.status);
+            }
+            ResponseWriter.end(routingContext, shared.body, produce);
+        }
+    }
+
+    /**
+     * @param request    http request
+     * @param produce    content type of the response
+     * @param projection fields requested by the client
+     * @return coalescing key, or null if the request must run alone
+     */
+    private String key(HttpServerRequest request, String produce, FieldProjection projection) {
+        if ((!authorizationInKey && request.headers().contains(HttpHeaders.AUTHORIZATION))
+                || (!cookieInKey && request.headers().contains(HttpHeaders.COOKIE))) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder();
+        for (String part : keyParts) {
+            if (PATH.equals(part)) {
+                key.append(request.path());
+            } else if (QUERY.equals(part)) {
+                key.append('?').append(request.query() == null ? "" : request.query());
+            } else {
+                String value = request.getHeader(part.substring(HEADER.length()));
+                key.append('|').append(value == null ? "" : value);
+            }
+            key.append('\u0000');
+        }
+        key.append(produce);
+        if (projection != null) {
+            key.append('\u0000').append(projection.getFields());
+        }
+        return key.toString();
+    }
+
+    private static final class SharedResponse {
+        private final int status;
+        private final Buffer body;
+
+        private SharedResponse(int status, Buffer body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package mtk.apix.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.trace.Span;
+import mtk.apix.trace.Trace;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Write the value returned by a mapping method in the http response.
+ * Nothing is written if the method returns nothing (void or null) or if the method has already ended the response itself.
+ * - {@link Future}: the response is written when the future completes
+ * - {@link Buffer} and {@link String}: written as is
+ * - other object: encoded by the {@link ContentCodec} of the content type (JSON by default), only the requested fields with a {@link FieldProjection}
+ * The wait of the future, the serialization and the writing are recorded as spans of the request {@link Trace}.
+ *
+ * @author mahatoky rasolonirina
+ */
+@SuppressWarnings("unchecked")
+public final class ResponseWriter {
+    private ResponseWriter() {
+    }
+
+    /**
+     * @param routingContext vertx RoutingContext
+     * @param result         value returned by the mapping method
+     * @param produce        content type of the response, used if the method didn't set one, and to choose the codec
+     */
+    public static void write(RoutingContext routingContext, Object result, String produce) {
+        write(routingContext, result, produce, null);
+    }
+
+    /**
+     * @param routingContext vertx RoutingContext
+     * @param result         value returned by the mapping method
+     * @param produce        content type of the response, used if the method didn't set one, and to choose the codec
+     * @param projection     fields requested by the client, null for all the fields
+     */
+    public static void write(RoutingContext routingContext, Object result, String produce, FieldProjection projection) {
+        if (result == null || routingContext.response().ended()) {
+            return;
+        }
+        if (result instanceof Future) {
+            Span span = Trace.of(routingContext).span("async");
+            ((Future<Object>) result).onComplete(ar -> {
+                span.end();
+                if (ar.succeeded()) {
+                    write(routingContext, ar.result(), produce, projection);
+                } else {
+                    fail(routingContext, ar.cause());
+                }
+            });
+            return;
+        }
+        Span span = Trace.of(routingContext).span("serialization");
+        Buffer body = toBuffer(result, ContentCodec.of(produce), projection);
+        span.end();
+        end(routingContext, body, produce);
+    }
+
+    /**
+     * Serialize a returned value. Null gives an empty buffer
+     *
+     * @param value value to serialize
+     * @return serialized value
+     */
+    public static Buffer toBuffer(Object value) {
+        return toBuffer(value, null, null);
+    }
+
+    /**
+     * Serialize a returned value. Null gives an empty buffer
+     *
+     * @param value      value to serialize
+     * @param codec      format of the value, null for JSON
+     * @param projection fields to serialize, null for all the fields
+     * @return serialized value
+     */
+    public static Buffer toBuffer(Object value, ContentCodec codec, FieldProjection projection) {
+        if (value == null) {
+            return Buffer.buffer();
+        }
+        if (value instanceof Buffer) {
+            return (Buffer) value;
+        }
+        if (value instanceof String) {
+            return Buffer.buffer((String) value);
+        }
+        ContentCodec target = codec != null ? codec : ContentCodec.json();
+        return projection != null ? projection.encode(value, target) : target.encode(value);
+    }
+
+    public static void end(RoutingContext routingContext, Buffer body, String produce) {
+        HttpServerResponse response = routingContext.response();
+        if (response.ended()) {
+            return;
+        }
+        if (produce != null && !produce.isEmpty() && !response.headers().contains(HttpHeaders.CONTENT_TYPE)) {
+            response.putHeader(HttpHeaders.CONTENT_TYPE, produce);
+        }
+        Span span = Trace.of(routingContext).span("writing");
+        if (span.isRecording()) {
+            response.end(body).onComplete(ar -> span.end());
+        } else {
+            response.end(body);
+        }
+    }
+
+    public static void fail(RoutingContext routingContext, Throwable throwable) {
+        if (!routingContext.failed()) {
+            routingContext.fail(invocationFailure(throwable));
+        }
+    }
+
+    /**
+     * Wrap an asynchronous failure the same way as a failure thrown by {@link ClassUtil#invokeHttpMethod},
+     * so controller advices find the original exception at the same place
+     *
+     * @param throwable original failure
+     * @return wrapped failure
+     */
+    public static Throwable invocationFailure(Throwable throwable) {
+        return new RuntimeException(new InvocationTargetException(throwable));
+    }
+}
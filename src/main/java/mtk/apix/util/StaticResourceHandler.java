@@ -0,0 +1,337 @@
+package mtk.apix.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileProps;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import mtk.apix.cache.ApixCache;
+import mtk.apix.cache.CacheManager;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serve the files of a directory, see {@link mtk.apix.annotation.StaticResources}.
+ * - large files are sent with sendfile (zero-copy when the connection allows it), small files are kept in memory
+ * - files are cached and their size and last modified time are checked again every second,
+ *   a file is read again only if they changed, so modified files are seen without restart
+ * - Last-Modified/ETag with conditional requests (304), single byte range requests (206)
+ * - precompressed variants: file.br or file.gz is sent instead of file when the client accepts it
+ * Unknown files are passed to the next handler.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class StaticResourceHandler implements Handler<RoutingContext> {
+
+    public static final String DEFAULT_PATH = "/static";
+    public static final String DEFAULT_DIR = "static";
+    public static final long DEFAULT_MAX_AGE = 86400;
+    public static final long DEFAULT_CACHE_MAX_FILE_SIZE = 64 * 1024;
+    private static final long CHECK_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_CACHED_FILES = 10000;
+    private static final String INDEX = "index.html";
+    private static final String RANGE = "Range";
+    private static final String[][] ENCODINGS = {{"br", ".br"}, {"gzip", ".gz"}};
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final FileSystem fileSystem;
+    private final String path;
+    private final String dir;
+    private final long maxAge;
+    private final long cacheMaxFileSize;
+    private final ApixCache<String, FileEntry> files;
+
+    /**
+     * @param vertx            vertx instance
+     * @param cacheManager     cache manager, the file cache is named "static:[path]"
+     * @param path             url path prefix
+     * @param dir              directory of the files
+     * @param maxAge           max-age of the Cache-Control header in seconds, 0 for none
+     * @param cacheMaxFileSize files up to this size are kept in memory
+     */
+    public StaticResourceHandler(Vertx vertx, CacheManager cacheManager, String path, String dir, long maxAge, long cacheMaxFileSize) {
+        this.fileSystem = vertx.fileSystem();
+        this.path = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        this.dir = dir.endsWith("/") ? dir.substring(0, dir.length() - 1) : dir;
+        this.maxAge = maxAge;
+        this.cacheMaxFileSize = cacheMaxFileSize;
+        this.files = cacheManager.getOrCreateCache("static:" + this.path, MAX_CACHED_FILES, 0, 0, 0);
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpServerRequest request = routingContext.request();
+        String relativePath = routingContext.normalizedPath().substring(Math.min(path.length(), routingContext.normalizedPath().length()));
+        if ((request.method() != HttpMethod.GET && request.method() != HttpMethod.HEAD) || hasParentSegment(relativePath) || relativePath.contains("\\")) {
+            routingContext.next();
+            return;
+        }
+        if (relativePath.isEmpty() || relativePath.endsWith("/")) {
+            relativePath = (relativePath.isEmpty() ? "/" : relativePath) + INDEX;
+        }
+        String file = dir + relativePath;
+        boolean ranged = request.headers().contains(RANGE);
+        List<String[]> encodings = ranged ? new ArrayList<>() : acceptedEncodings(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        lookup(file).onComplete(ar -> {
+            if (ar.failed() || !ar.result().exists) {
+                routingContext.next();
+                return;
+            }
+            FileEntry identity = ar.result();
+            selectVariant(file, encodings, 0).onComplete(variant -> {
+                if (variant.succeeded() && variant.result() != null) {
+                    send(routingContext, identity, variant.result().entry, variant.result().encoding);
+                } else {
+                    send(routingContext, identity, identity, null);
+                }
+            });
+        });
+    }
+
+    /**
+     * @param relativePath path of the file in the directory
+     * @return true if a segment of the path is "..", names containing ".." (ex: app..min.js) are allowed
+     */
+    private static boolean hasParentSegment(String relativePath) {
+        for (String segment : relativePath.split("/")) {
+            if (segment.equals("..")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Future<Variant> selectVariant(String file, List<String[]> encodings, int index) {
+        if (index >= encodings.size()) {
+            return Future.succeededFuture();
+        }
+        String[] encoding = encodings.get(index);
+        return lookup(file + encoding[1]).compose(entry -> entry.exists
+                ? Future.succeededFuture(new Variant(entry, encoding[0]))
+                : selectVariant(file, encodings, index + 1));
+    }
+
+    private Future<FileEntry> lookup(String file) {
+        return files.getAsync(file, this::load).compose(entry -> {
+            long now = System.nanoTime();
+            if (now - entry.checkedAt < CHECK_PERIOD_NANOS) {
+                return Future.succeededFuture(entry);
+            }
+            // the requests during the check keep the cached entry
+            entry.checkedAt = now;
+            return props(file).compose(props -> {
+                if (entry.isSameFile(props)) {
+                    return Future.succeededFuture(entry);
+                }
+                return read(file, props).onSuccess(changed -> files.put(file, changed));
+            });
+        });
+    }
+
+    private Future<FileEntry> load(String file) {
+        return props(file).compose(props -> read(file, props));
+    }
+
+    /**
+     * @param file path of the file
+     * @return properties of the file, null if it isn't a regular file
+     */
+    private Future<FileProps> props(String file) {
+        return fileSystem.props(file)
+                .map(props -> props.isRegularFile() ? props : null)
+                .otherwiseEmpty();
+    }
+
+    private Future<FileEntry> read(String file, FileProps props) {
+        if (props == null) {
+            return Future.succeededFuture(FileEntry.missing(file));
+        }
+        if (props.size() > cacheMaxFileSize) {
+            return Future.succeededFuture(new FileEntry(file, props.size(), props.lastModifiedTime(), null));
+        }
+        return fileSystem.readFile(file)
+                .map(content -> new FileEntry(file, props.size(), props.lastModifiedTime(), content))
+                .recover(throwable -> Future.succeededFuture(FileEntry.missing(file)));
+    }
+
+    private void send(RoutingContext routingContext, FileEntry identity, FileEntry entry, String encoding) {
+        HttpServerRequest request = routingContext.request();
+        HttpServerResponse response = routingContext.response();
+        String etag = "W/\"" + Long.toHexString(identity.size) + "-" + Long.toHexString(identity.lastModified) + (encoding != null ? "-" + encoding : "") + "\"";
+        response.putHeader(HttpHeaders.CONTENT_TYPE, identity.contentType)
+                .putHeader(HttpHeaders.LAST_MODIFIED, HTTP_DATE.format(Instant.ofEpochMilli(identity.lastModified)))
+                .putHeader(HttpHeaders.ETAG, etag)
+                .putHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .putHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (maxAge > 0) {
+            response.putHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+        }
+        if (encoding != null) {
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        }
+        if (isNotModified(request, etag, identity.lastModified)) {
+            response.setStatusCode(304).end();
+            return;
+        }
+
+        long offset = 0;
+        long length = entry.size;
+        String range = request.getHeader(RANGE);
+        if (range != null && encoding == null) {
+            long[] bounds = parseRange(range, entry.size);
+            if (bounds == null) {
+                response.setStatusCode(416).putHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + entry.size).end();
+                return;
+            }
+            if (bounds.length == 2) {
+                offset = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                response.setStatusCode(206).putHeader(HttpHeaders.CONTENT_RANGE, "bytes " + bounds[0] + "-" + bounds[1] + "/" + entry.size);
+            }
+        }
+
+        if (request.method() == HttpMethod.HEAD) {
+            response.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length)).end();
+        } else if (entry.content != null) {
+            response.end(offset == 0 && length == entry.size ? entry.content : entry.content.slice((int) offset, (int) (offset + length)));
+        } else {
+            response.sendFile(entry.path, offset, length).onFailure(throwable -> {
+                if (!response.headWritten()) {
+                    routingContext.fail(throwable);
+                } else {
+                    response.reset();
+                }
+            });
+        }
+    }
+
+    private boolean isNotModified(HttpServerRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag);
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            try {
+                // http dates have a second precision
+                return ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().getEpochSecond() >= lastModified / 1000;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse a single range "bytes=start-end", "bytes=start-" or "bytes=-suffixLength"
+     *
+     * @param range Range header
+     * @param size  file size
+     * @return {start, end}, an empty array to ignore the header (multiple ranges, other unit), or null if not satisfiable
+     */
+    private static long[] parseRange(String range, long size) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String value = range.substring("bytes=".length()).trim();
+        int dash = value.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffixLength = Long.parseLong(value.substring(1));
+                start = Math.max(0, size - suffixLength);
+                end = size - 1;
+                if (suffixLength == 0) {
+                    return null;
+                }
+            } else {
+                start = Long.parseLong(value.substring(0, dash));
+                end = dash == value.length() - 1 ? size - 1 : Math.min(size - 1, Long.parseLong(value.substring(dash + 1)));
+            }
+            return start > end || start >= size ? null : new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding header
+     * @return precompressed encodings accepted by the client, in order of preference of the server
+     */
+    private static List<String[]> acceptedEncodings(String acceptEncoding) {
+        List<String[]> accepted = new ArrayList<>();
+        if (acceptEncoding == null) {
+            return accepted;
+        }
+        for (String[] encoding : ENCODINGS) {
+            for (String token : acceptEncoding.split(",")) {
+                String[] parts = token.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(encoding[0]) && !(parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?"))) {
+                    accepted.add(encoding);
+                    break;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private static class Variant {
+        private final FileEntry entry;
+        private final String encoding;
+
+        private Variant(FileEntry entry, String encoding) {
+            this.entry = entry;
+            this.encoding = encoding;
+        }
+    }
+
+    private static class FileEntry {
+        private final String path;
+        private final boolean exists;
+        private final long size;
+        private final long lastModified;
+        private final String contentType;
+        private final Buffer content;
+        private volatile long checkedAt = System.nanoTime();
+
+        private FileEntry(String path, long size, long lastModified, Buffer content) {
+            this(path, true, size, lastModified, content);
+        }
+
+        private FileEntry(String path, boolean exists, long size, long lastModified, Buffer content) {
+            this.path = path;
+            this.exists = exists;
+            this.size = size;
+            this.lastModified = lastModified;
+            String mimeType = MediaType.ofFileName(path);
+            this.contentType = mimeType == null ? "application/octet-stream" : mimeType.startsWith("text/") ? mimeType + ";charset=UTF-8" : mimeType;
+            this.content = content;
+        }
+
+        private static FileEntry missing(String path) {
+            return new FileEntry(path, false, 0, 0, null);
+        }
+
+        private boolean isSameFile(FileProps props) {
+            return props == null ? !exists : exists && props.size() == size && props.lastModifiedTime() == lastModified;
+        }
+    }
+}
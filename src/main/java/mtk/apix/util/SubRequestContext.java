@@ -0,0 +1,1116 @@
+package mtk.apix.util;
+
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.Cookie;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpFrame;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerFileUpload;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.StreamPriority;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.HostAndPort;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.web.FileUpload;
+import io.vertx.ext.web.ParsedHeaderValues;
+import io.vertx.ext.web.RequestBody;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.HttpException;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.security.cert.X509Certificate;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RoutingContext of a batch sub-request dispatched in process, see {@link BatchRequestHandler}.
+ * The request is built from the sub-request, its connection, remote address, user and session are those of the batch request,
+ * and its data starts as a copy of the data of the batch context (trace, ...).
+ * {@link #next()} calls the given handlers in order, like the router does for the handlers of a route.
+ * The response is kept in memory, {@link #ended()} is completed when it is ended.
+ *
+ * @author mahatoky rasolonirina
+ */
+final class SubRequestContext implements RoutingContext {
+
+    private static final String NOT_AVAILABLE = " isn't available in a batch sub-request";
+
+    private final RoutingContext batchContext;
+    private final Request request;
+    private final Response response;
+    private final List<Handler<RoutingContext>> handlers;
+    private final Handler<RoutingContext> errorHandler;
+    private final Map<String, String> pathParams;
+    private final Map<String, Object> data;
+    private final List<Handler<Void>> headersEndHandlers = new ArrayList<>();
+    private final List<Handler<Void>> bodyEndHandlers = new ArrayList<>();
+    private final List<Handler<AsyncResult<Void>>> endHandlers = new ArrayList<>();
+    private final Promise<Void> ended = Promise.promise();
+    private Buffer body;
+    private Session session;
+    private String acceptableContentType;
+    private Throwable failure;
+    private int statusCode = -1;
+    private int index;
+
+    /**
+     * @param batchContext          context of the batch request
+     * @param method                method of the sub-request
+     * @param uri                   uri of the sub-request, path and query
+     * @param headers               headers of the sub-request
+     * @param body                  body of the sub-request
+     * @param pathParams            path variables of the endpoint
+     * @param acceptableContentType media type negotiated with the Accept header, null if none
+     * @param handlers              handlers called in order by {@link #next()}
+     * @param errorHandler          handler of the 500 failures, like the error handler of the router
+     */
+    SubRequestContext(RoutingContext batchContext, HttpMethod method, String uri, MultiMap headers, Buffer body, Map<String, String> pathParams,
+                      String acceptableContentType, List<Handler<RoutingContext>> handlers, Handler<RoutingContext> errorHandler) {
+        this.batchContext = batchContext;
+        this.body = body;
+        this.pathParams = pathParams;
+        this.acceptableContentType = acceptableContentType;
+        this.handlers = handlers;
+        this.errorHandler = errorHandler;
+        this.data = new HashMap<>(batchContext.data());
+        this.session = batchContext.session();
+        this.request = new Request(method, uri, headers);
+        this.response = new Response();
+        pathParams.forEach((name, value) -> {
+            if (!request.params().contains(name)) {
+                request.params().add(name, value);
+            }
+        });
+    }
+
+    /**
+     * @return future completed when the response is ended
+     */
+    Future<Void> ended() {
+        return ended.future();
+    }
+
+    /**
+     * @return status, headers and body of the ended response
+     */
+    int responseStatus() {
+        return response.statusCode;
+    }
+
+    MultiMap responseHeaders() {
+        return response.headers;
+    }
+
+    Buffer responseBody() {
+        return response.body;
+    }
+
+    @Override
+    public HttpServerRequest request() {
+        return request;
+    }
+
+    @Override
+    public HttpServerResponse response() {
+        return response;
+    }
+
+    @Override
+    public void next() {
+        if (index >= handlers.size()) {
+            // like the router when no route handles the request
+            if (!response.ended) {
+                response.setStatusCode(404).end(HttpResponseStatus.NOT_FOUND.reasonPhrase());
+            }
+            return;
+        }
+        Handler<RoutingContext> handler = handlers.get(index++);
+        try {
+            handler.handle(this);
+        } catch (Throwable throwable) {
+            fail(throwable);
+        }
+    }
+
+    @Override
+    public void fail(int statusCode) {
+        fail(statusCode, null);
+    }
+
+    @Override
+    public void fail(Throwable throwable) {
+        fail(throwable instanceof HttpException ? ((HttpException) throwable).getStatusCode() : 500, throwable);
+    }
+
+    @Override
+    public void fail(int statusCode, Throwable throwable) {
+        this.statusCode = statusCode;
+        this.failure = throwable;
+        if (response.ended) {
+            return;
+        }
+        if (statusCode == 500 && errorHandler != null) {
+            try {
+                errorHandler.handle(this);
+            } catch (Throwable e) {
+                // answered below like an unhandled failure
+            }
+        }
+        if (!response.ended) {
+            HttpResponseStatus status = HttpResponseStatus.valueOf(statusCode);
+            response.setStatusCode(statusCode).end(status.reasonPhrase());
+        }
+    }
+
+    @Override
+    public RoutingContext put(String key, Object obj) {
+        data.put(key, obj);
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        return (T) data.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, T defaultValue) {
+        return data.containsKey(key) ? (T) data.get(key) : defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T remove(String key) {
+        return (T) data.remove(key);
+    }
+
+    @Override
+    public Map<String, Object> data() {
+        return data;
+    }
+
+    @Override
+    public Vertx vertx() {
+        return batchContext.vertx();
+    }
+
+    @Override
+    public String mountPoint() {
+        return null;
+    }
+
+    @Override
+    public Route currentRoute() {
+        return null;
+    }
+
+    @Override
+    public String normalizedPath() {
+        return request.path();
+    }
+
+    @Deprecated
+    @Override
+    public Cookie getCookie(String name) {
+        return request.getCookie(name);
+    }
+
+    @Deprecated
+    @Override
+    public RoutingContext addCookie(Cookie cookie) {
+        response.addCookie(cookie);
+        return this;
+    }
+
+    @Deprecated
+    @Override
+    public Cookie removeCookie(String name, boolean invalidate) {
+        return response.removeCookie(name, invalidate);
+    }
+
+    @Deprecated
+    @Override
+    public int cookieCount() {
+        return request.cookies().size();
+    }
+
+    @Deprecated
+    @Override
+    public Map<String, Cookie> cookieMap() {
+        Map<String, Cookie> cookies = new HashMap<>();
+        request.cookies().forEach(cookie -> cookies.put(cookie.getName(), cookie));
+        return cookies;
+    }
+
+    @Override
+    public RequestBody body() {
+        return new Body();
+    }
+
+    @Override
+    public List<FileUpload> fileUploads() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void cancelAndCleanupFileUploads() {
+    }
+
+    @Override
+    public Session session() {
+        return session;
+    }
+
+    @Override
+    public boolean isSessionAccessed() {
+        return batchContext.isSessionAccessed();
+    }
+
+    @Override
+    public User user() {
+        return batchContext.user();
+    }
+
+    @Override
+    public Throwable failure() {
+        return failure;
+    }
+
+    @Override
+    public int statusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getAcceptableContentType() {
+        return acceptableContentType;
+    }
+
+    /**
+     * Parsed headers of the batch request, the parser of vertx-web isn't public
+     */
+    @Override
+    public ParsedHeaderValues parsedHeaders() {
+        return batchContext.parsedHeaders();
+    }
+
+    @Override
+    public int addHeadersEndHandler(Handler<Void> handler) {
+        headersEndHandlers.add(handler);
+        return headersEndHandlers.size() - 1;
+    }
+
+    @Override
+    public boolean removeHeadersEndHandler(int handlerID) {
+        return remove(headersEndHandlers, handlerID);
+    }
+
+    @Override
+    public int addBodyEndHandler(Handler<Void> handler) {
+        bodyEndHandlers.add(handler);
+        return bodyEndHandlers.size() - 1;
+    }
+
+    @Override
+    public boolean removeBodyEndHandler(int handlerID) {
+        return remove(bodyEndHandlers, handlerID);
+    }
+
+    @Override
+    public int addEndHandler(Handler<AsyncResult<Void>> handler) {
+        endHandlers.add(handler);
+        return endHandlers.size() - 1;
+    }
+
+    @Override
+    public boolean removeEndHandler(int handlerID) {
+        return remove(endHandlers, handlerID);
+    }
+
+    /**
+     * Removed handlers are replaced by null to keep the ids of the others
+     */
+    private static <H> boolean remove(List<H> handlers, int handlerID) {
+        if (handlerID < 0 || handlerID >= handlers.size() || handlers.get(handlerID) == null) {
+            return false;
+        }
+        handlers.set(handlerID, null);
+        return true;
+    }
+
+    @Override
+    public boolean failed() {
+        return failure != null || statusCode != -1;
+    }
+
+    @Deprecated
+    @Override
+    public void setBody(Buffer body) {
+        this.body = body;
+    }
+
+    @Deprecated
+    @Override
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    @Override
+    public void setUser(User user) {
+        batchContext.setUser(user);
+    }
+
+    @Override
+    public void clearUser() {
+        batchContext.clearUser();
+    }
+
+    @Override
+    public void setAcceptableContentType(String contentType) {
+        this.acceptableContentType = contentType;
+    }
+
+    @Override
+    public void reroute(HttpMethod method, String path) {
+        fail(new IllegalStateException("Reroute" + NOT_AVAILABLE));
+    }
+
+    @Override
+    public Map<String, String> pathParams() {
+        return pathParams;
+    }
+
+    @Override
+    public String pathParam(String name) {
+        return pathParams.get(name);
+    }
+
+    @Override
+    public MultiMap queryParams() {
+        return request.queryParams(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public MultiMap queryParams(Charset encoding) {
+        return request.queryParams(encoding);
+    }
+
+    @Override
+    public List<String> queryParam(String query) {
+        return queryParams().getAll(query);
+    }
+
+    /**
+     * Call the end handlers of the context once the response is ended
+     */
+    private void complete() {
+        bodyEndHandlers.stream().filter(handler -> handler != null).forEach(handler -> handler.handle(null));
+        endHandlers.stream().filter(handler -> handler != null).forEach(handler -> handler.handle(Future.succeededFuture()));
+        ended.tryComplete();
+    }
+
+    private final class Body implements RequestBody {
+        @Override
+        public String asString() {
+            return body != null ? body.toString() : null;
+        }
+
+        @Override
+        public String asString(String encoding) {
+            return body != null ? body.toString(encoding) : null;
+        }
+
+        @Override
+        public JsonObject asJsonObject(int maxAllowedLength) {
+            return body != null && body.length() > 0 ? body.toJsonObject() : null;
+        }
+
+        @Override
+        public JsonArray asJsonArray(int maxAllowedLength) {
+            return body != null && body.length() > 0 ? body.toJsonArray() : null;
+        }
+
+        @Override
+        public Buffer buffer() {
+            return body;
+        }
+
+        @Override
+        public <R> R asPojo(Class<R> clazz, int maxAllowedLength) {
+            return ContentCodec.ofRequest(SubRequestContext.this).decode(body, clazz);
+        }
+
+        @Override
+        public int length() {
+            return body != null ? body.length() : -1;
+        }
+
+        @Override
+        public boolean available() {
+            return body != null;
+        }
+    }
+
+    private final class Request implements HttpServerRequest {
+        private final HttpServerRequest batchRequest = batchContext.request();
+        private final HttpMethod method;
+        private final String uri;
+        private final String path;
+        private final String query;
+        private final MultiMap headers;
+        private final MultiMap params;
+        private String paramsCharset = StandardCharsets.UTF_8.name();
+
+        Request(HttpMethod method, String uri, MultiMap headers) {
+            int separator = uri.indexOf('?');
+            this.method = method;
+            this.uri = uri;
+            this.path = separator >= 0 ? uri.substring(0, separator) : uri;
+            this.query = separator >= 0 ? uri.substring(separator + 1) : null;
+            this.headers = headers;
+            this.params = queryParams(StandardCharsets.UTF_8);
+        }
+
+        MultiMap queryParams(Charset charset) {
+            MultiMap queryParams = MultiMap.caseInsensitiveMultiMap();
+            if (query != null) {
+                new QueryStringDecoder(query, charset, false).parameters().forEach(queryParams::add);
+            }
+            return queryParams;
+        }
+
+        @Override
+        public HttpServerRequest exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        /**
+         * The body is already read, see {@link RoutingContext#body()}
+         */
+        @Override
+        public HttpServerRequest handler(Handler<Buffer> handler) {
+            return this;
+        }
+
+        @Override
+        public HttpServerRequest pause() {
+            return this;
+        }
+
+        @Override
+        public HttpServerRequest resume() {
+            return this;
+        }
+
+        @Override
+        public HttpServerRequest fetch(long amount) {
+            return this;
+        }
+
+        @Override
+        public HttpServerRequest endHandler(Handler<Void> endHandler) {
+            return this;
+        }
+
+        @Override
+        public HttpVersion version() {
+            return batchRequest.version();
+        }
+
+        @Override
+        public HttpMethod method() {
+            return method;
+        }
+
+        @Override
+        public boolean isSSL() {
+            return batchRequest.isSSL();
+        }
+
+        @Override
+        public String scheme() {
+            return batchRequest.scheme();
+        }
+
+        @Override
+        public String uri() {
+            return uri;
+        }
+
+        @Override
+        public String path() {
+            return path;
+        }
+
+        @Override
+        public String query() {
+            return query;
+        }
+
+        @Override
+        public HostAndPort authority() {
+            return batchRequest.authority();
+        }
+
+        @Deprecated
+        @Override
+        public String host() {
+            HostAndPort authority = batchRequest.authority();
+            return authority == null ? null : authority.port() >= 0 ? authority.host() + ":" + authority.port() : authority.host();
+        }
+
+        @Override
+        public long bytesRead() {
+            return body != null ? body.length() : 0;
+        }
+
+        @Override
+        public HttpServerResponse response() {
+            return response;
+        }
+
+        @Override
+        public MultiMap headers() {
+            return headers;
+        }
+
+        @Override
+        public HttpServerRequest setParamsCharset(String charset) {
+            this.paramsCharset = charset;
+            return this;
+        }
+
+        @Override
+        public String getParamsCharset() {
+            return paramsCharset;
+        }
+
+        @Override
+        public MultiMap params() {
+            return params;
+        }
+
+        @Override
+        public SocketAddress remoteAddress() {
+            return batchRequest.remoteAddress();
+        }
+
+        @Override
+        public SocketAddress localAddress() {
+            return batchRequest.localAddress();
+        }
+
+        @Override
+        public SSLSession sslSession() {
+            return batchRequest.sslSession();
+        }
+
+        @Override
+        @SuppressWarnings({"deprecation", "removal"})
+        public X509Certificate[] peerCertificateChain() throws SSLPeerUnverifiedException {
+            return batchRequest.peerCertificateChain();
+        }
+
+        @Override
+        public String absoluteURI() {
+            return scheme() + "://" + host() + uri;
+        }
+
+        @Override
+        public Future<Buffer> body() {
+            return Future.succeededFuture(body);
+        }
+
+        @Override
+        public Future<Void> end() {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<NetSocket> toNetSocket() {
+            return Future.failedFuture(new IllegalStateException("NetSocket" + NOT_AVAILABLE));
+        }
+
+        @Override
+        public HttpServerRequest setExpectMultipart(boolean expect) {
+            return this;
+        }
+
+        @Override
+        public boolean isExpectMultipart() {
+            return false;
+        }
+
+        @Override
+        public HttpServerRequest uploadHandler(Handler<HttpServerFileUpload> uploadHandler) {
+            return this;
+        }
+
+        @Override
+        public MultiMap formAttributes() {
+            return MultiMap.caseInsensitiveMultiMap();
+        }
+
+        @Override
+        public String getFormAttribute(String attributeName) {
+            return null;
+        }
+
+        @Override
+        public Future<ServerWebSocket> toWebSocket() {
+            return Future.failedFuture(new IllegalStateException("WebSocket" + NOT_AVAILABLE));
+        }
+
+        @Override
+        public boolean isEnded() {
+            return true;
+        }
+
+        @Override
+        public HttpServerRequest customFrameHandler(Handler<HttpFrame> handler) {
+            return this;
+        }
+
+        @Override
+        public HttpConnection connection() {
+            return batchRequest.connection();
+        }
+
+        @Override
+        public HttpServerRequest streamPriorityHandler(Handler<StreamPriority> handler) {
+            return this;
+        }
+
+        @Override
+        public DecoderResult decoderResult() {
+            return DecoderResult.SUCCESS;
+        }
+
+        @Override
+        public Cookie getCookie(String name) {
+            return cookies(name).stream().findFirst().orElse(null);
+        }
+
+        @Override
+        public Cookie getCookie(String name, String domain, String path) {
+            return getCookie(name);
+        }
+
+        @Override
+        public Set<Cookie> cookies(String name) {
+            Set<Cookie> cookies = new HashSet<>();
+            cookies().stream().filter(cookie -> cookie.getName().equals(name)).forEach(cookies::add);
+            return cookies;
+        }
+
+        @Override
+        public Set<Cookie> cookies() {
+            Set<Cookie> cookies = new HashSet<>();
+            for (String header : headers.getAll(HttpHeaders.COOKIE)) {
+                ServerCookieDecoder.STRICT.decode(header).forEach(cookie -> cookies.add(Cookie.cookie(cookie.name(), cookie.value())));
+            }
+            return cookies;
+        }
+    }
+
+    private final class Response implements HttpServerResponse {
+        private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        private final MultiMap trailers = MultiMap.caseInsensitiveMultiMap();
+        private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+        private Buffer body = Buffer.buffer();
+        private int statusCode = 200;
+        private String statusMessage;
+        private boolean chunked;
+        private boolean headWritten;
+        private boolean ended;
+        private Handler<Void> headersEndHandler;
+        private Handler<Void> bodyEndHandler;
+        private Handler<Void> endHandler;
+
+        @Override
+        public HttpServerResponse exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public Future<Void> write(Buffer data) {
+            if (ended) {
+                return Future.failedFuture(new IllegalStateException("Response has already been written"));
+            }
+            writeHead();
+            body.appendBuffer(data);
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void write(Buffer data, Handler<AsyncResult<Void>> handler) {
+            write(data).onComplete(handler);
+        }
+
+        @Override
+        public HttpServerResponse setWriteQueueMaxSize(int maxSize) {
+            return this;
+        }
+
+        @Override
+        public boolean writeQueueFull() {
+            return false;
+        }
+
+        @Override
+        public HttpServerResponse drainHandler(Handler<Void> handler) {
+            return this;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public HttpServerResponse setStatusCode(int statusCode) {
+            this.statusCode = statusCode;
+            return this;
+        }
+
+        @Override
+        public String getStatusMessage() {
+            return statusMessage != null ? statusMessage : HttpResponseStatus.valueOf(statusCode).reasonPhrase();
+        }
+
+        @Override
+        public HttpServerResponse setStatusMessage(String statusMessage) {
+            this.statusMessage = statusMessage;
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse setChunked(boolean chunked) {
+            this.chunked = chunked;
+            return this;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return chunked;
+        }
+
+        @Override
+        public MultiMap headers() {
+            return headers;
+        }
+
+        @Override
+        public HttpServerResponse putHeader(String name, String value) {
+            headers.set(name, value);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putHeader(CharSequence name, CharSequence value) {
+            headers.set(name, value);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putHeader(String name, Iterable<String> values) {
+            headers.set(name, values);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putHeader(CharSequence name, Iterable<CharSequence> values) {
+            headers.set(name, values);
+            return this;
+        }
+
+        @Override
+        public MultiMap trailers() {
+            return trailers;
+        }
+
+        @Override
+        public HttpServerResponse putTrailer(String name, String value) {
+            trailers.set(name, value);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putTrailer(CharSequence name, CharSequence value) {
+            trailers.set(name, value);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putTrailer(String name, Iterable<String> values) {
+            trailers.set(name, values);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse putTrailer(CharSequence name, Iterable<CharSequence> value) {
+            trailers.set(name, value);
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse closeHandler(Handler<Void> handler) {
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse endHandler(Handler<Void> handler) {
+            this.endHandler = handler;
+            return this;
+        }
+
+        @Override
+        public Future<Void> write(String chunk, String enc) {
+            return write(Buffer.buffer(chunk, enc));
+        }
+
+        @Override
+        public void write(String chunk, String enc, Handler<AsyncResult<Void>> handler) {
+            write(chunk, enc).onComplete(handler);
+        }
+
+        @Override
+        public Future<Void> write(String chunk) {
+            return write(Buffer.buffer(chunk));
+        }
+
+        @Override
+        public void write(String chunk, Handler<AsyncResult<Void>> handler) {
+            write(chunk).onComplete(handler);
+        }
+
+        @Override
+        public HttpServerResponse writeContinue() {
+            return this;
+        }
+
+        @Override
+        public Future<Void> writeEarlyHints(MultiMap headers) {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public void writeEarlyHints(MultiMap headers, Handler<AsyncResult<Void>> handler) {
+            handler.handle(Future.succeededFuture());
+        }
+
+        @Override
+        public Future<Void> end(String chunk) {
+            return end(Buffer.buffer(chunk));
+        }
+
+        @Override
+        public void end(String chunk, Handler<AsyncResult<Void>> handler) {
+            end(chunk).onComplete(handler);
+        }
+
+        @Override
+        public Future<Void> end(String chunk, String enc) {
+            return end(Buffer.buffer(chunk, enc));
+        }
+
+        @Override
+        public void end(String chunk, String enc, Handler<AsyncResult<Void>> handler) {
+            end(chunk, enc).onComplete(handler);
+        }
+
+        @Override
+        public Future<Void> end(Buffer chunk) {
+            Future<Void> written = write(chunk);
+            if (written.succeeded()) {
+                ended = true;
+                if (bodyEndHandler != null) {
+                    bodyEndHandler.handle(null);
+                }
+                if (endHandler != null) {
+                    endHandler.handle(null);
+                }
+                SubRequestContext.this.complete();
+            }
+            return written;
+        }
+
+        @Override
+        public void end(Buffer chunk, Handler<AsyncResult<Void>> handler) {
+            end(chunk).onComplete(handler);
+        }
+
+        @Override
+        public Future<Void> end() {
+            return end(Buffer.buffer());
+        }
+
+        @Override
+        public void end(Handler<AsyncResult<Void>> handler) {
+            end().onComplete(handler);
+        }
+
+        @Override
+        public Future<Void> sendFile(String filename, long offset, long length) {
+            return vertx().fileSystem().readFile(filename).compose(file -> {
+                int start = (int) Math.min(offset, file.length());
+                int end = length < 0 ? file.length() : (int) Math.min(file.length(), start + length);
+                return end(file.slice(start, end));
+            });
+        }
+
+        @Override
+        public HttpServerResponse sendFile(String filename, long offset, long length, Handler<AsyncResult<Void>> resultHandler) {
+            sendFile(filename, offset, length).onComplete(resultHandler);
+            return this;
+        }
+
+        @Deprecated
+        @Override
+        public void close() {
+            reset(0);
+        }
+
+        @Override
+        public boolean ended() {
+            return ended;
+        }
+
+        @Override
+        public boolean closed() {
+            return false;
+        }
+
+        @Override
+        public boolean headWritten() {
+            return headWritten;
+        }
+
+        @Override
+        public HttpServerResponse headersEndHandler(Handler<Void> handler) {
+            this.headersEndHandler = handler;
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse bodyEndHandler(Handler<Void> handler) {
+            this.bodyEndHandler = handler;
+            return this;
+        }
+
+        @Override
+        public long bytesWritten() {
+            return body.length();
+        }
+
+        @Override
+        public int streamId() {
+            return -1;
+        }
+
+        @Override
+        public Future<HttpServerResponse> push(HttpMethod method, HostAndPort authority, String path, MultiMap headers) {
+            return Future.failedFuture(new IllegalStateException("Push" + NOT_AVAILABLE));
+        }
+
+        @Deprecated
+        @Override
+        public Future<HttpServerResponse> push(HttpMethod method, String host, String path, MultiMap headers) {
+            return Future.failedFuture(new IllegalStateException("Push" + NOT_AVAILABLE));
+        }
+
+        /**
+         * The sub-request is answered as a failed one
+         */
+        @Override
+        public boolean reset(long code) {
+            if (ended) {
+                return false;
+            }
+            ended = true;
+            statusCode = 502;
+            body = Buffer.buffer();
+            SubRequestContext.this.complete();
+            return true;
+        }
+
+        @Override
+        public HttpServerResponse writeCustomFrame(int type, int flags, Buffer payload) {
+            return this;
+        }
+
+        @Override
+        public HttpServerResponse addCookie(Cookie cookie) {
+            cookies.put(cookie.getName(), cookie);
+            return this;
+        }
+
+        @Override
+        public Cookie removeCookie(String name, boolean invalidate) {
+            Cookie cookie = cookies.remove(name);
+            if (cookie == null && invalidate) {
+                cookie = request.getCookie(name);
+            }
+            if (cookie != null && invalidate) {
+                cookies.put(name, cookie.setValue("").setMaxAge(0L));
+            }
+            return cookie;
+        }
+
+        @Override
+        public Set<Cookie> removeCookies(String name, boolean invalidate) {
+            Cookie cookie = removeCookie(name, invalidate);
+            return cookie != null ? Collections.singleton(cookie) : Collections.emptySet();
+        }
+
+        @Override
+        public Cookie removeCookie(String name, String domain, String path, boolean invalidate) {
+            return removeCookie(name, invalidate);
+        }
+
+        /**
+         * Call the headers end handlers before the first write, the cookies are written as Set-Cookie headers
+         */
+        private void writeHead() {
+            if (headWritten) {
+                return;
+            }
+            headWritten = true;
+            headersEndHandlers.stream().filter(handler -> handler != null).forEach(handler -> handler.handle(null));
+            if (headersEndHandler != null) {
+                headersEndHandler.handle(null);
+            }
+            cookies.values().forEach(cookie -> headers.add(HttpHeaders.SET_COOKIE, cookie.encode()));
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package mtk.apix.util;
+
+/**
+ * Start tasks on virtual threads.
+ * This version is used on Java versions before 21, where virtual threads are not available.
+ * The Java 21 version is packaged in the multi-release section of the jar (META-INF/versions/21).
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param task task to run on a new virtual thread
+     */
+    public static void start(Runnable task) {
+        throw new UnsupportedOperationException("Virtual threads need Java 21 or later");
+    }
+}
@@ -0,0 +1,247 @@
+package mtk.apix.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.ext.web.Router;
+import mtk.apix.annotation.WarmUp;
+import mtk.apix.capture.TrafficCapture;
+import mtk.apix.capture.TrafficRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warm-up of the application before its port is opened: requests are sent to the application router through a loopback server,
+ * so the JIT compiles the request path before the first real requests.
+ * Requests are synthetic requests of the endpoints, or requests recorded by a {@link TrafficCapture}.
+ * Only GET and HEAD requests are sent by default: other methods change data, their endpoints are called only if the mapping method has a {@link WarmUp}.
+ * Each request is sent iterations times, until the time budget is spent.
+ *
+ * @author mahatoky rasolonirina
+ */
+public class WarmUpRunner {
+
+    public static final int DEFAULT_ITERATIONS = 500;
+    public static final long DEFAULT_DURATION = 30000;
+    public static final int DEFAULT_CONCURRENCY = 4;
+    private static final long REQUEST_IDLE_TIMEOUT = 10000;
+    private static final String SAMPLE_PATH_VARIABLE = "1";
+
+    private final Vertx vertx;
+    private final List<Request> requests;
+    private final int iterations;
+    private final long durationMillis;
+    private final int concurrency;
+
+    /**
+     * @param vertx          vertx instance
+     * @param requests       requests to send
+     * @param iterations     number of times each request is sent
+     * @param durationMillis time budget of the warm-up
+     * @param concurrency    requests sent at the same time
+     */
+    public WarmUpRunner(Vertx vertx, List<Request> requests, int iterations, long durationMillis, int concurrency) {
+        this.vertx = vertx;
+        this.requests = new ArrayList<>(requests);
+        this.iterations = Math.max(1, iterations);
+        this.durationMillis = durationMillis;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Send the requests to the given router, never fails
+     *
+     * @param router application router
+     * @return future completed when the warm-up is completed
+     */
+    public Future<Void> run(Router router) {
+        if (requests.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        long start = System.currentTimeMillis();
+        HttpServer server = vertx.createHttpServer(new HttpServerOptions().setHost("127.0.0.1"));
+        return server.requestHandler(router).listen(0)
+                .compose(listening -> {
+                    HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+                                    .setDefaultHost("127.0.0.1")
+                                    .setDefaultPort(listening.actualPort())
+                                    .setKeepAlive(true),
+                            new PoolOptions().setHttp1MaxSize(concurrency));
+                    AtomicLong sent = new AtomicLong();
+                    LongAdder errors = new LongAdder();
+                    List<Future<Void>> workers = new ArrayList<>();
+                    for (int i = 0; i < concurrency; i++) {
+                        Promise<Void> worker = Promise.promise();
+                        next(client, sent, (long) iterations * requests.size(), start + durationMillis, errors, worker);
+                        workers.add(worker.future());
+                    }
+                    return Future.join(workers)
+                            .eventually(() -> client.close())
+                            .onComplete(ar -> ConsoleLog.trace("Warm-up: (" + Math.min(sent.get(), (long) iterations * requests.size()) + ") request(s), ("
+                                    + requests.size() + ") distinct, in " + (System.currentTimeMillis() - start) + " ms, (" + errors.sum() + ") error(s)"));
+                })
+                .eventually(() -> server.close())
+                .<Void>mapEmpty()
+                .otherwise(throwable -> {
+                    ConsoleLog.warn("Warm-up failed: " + throwable.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Send the next request after the previous one, a failed or 5xx response counts as error
+     */
+    private void next(HttpClient client, AtomicLong sent, long total, long deadline, LongAdder errors, Promise<Void> worker) {
+        long index = sent.getAndIncrement();
+        if (index >= total || System.currentTimeMillis() >= deadline) {
+            worker.complete();
+            return;
+        }
+        Request request = requests.get((int) (index % requests.size()));
+        RequestOptions options = new RequestOptions()
+                .setMethod(request.method)
+                .setURI(request.uri)
+                .setHeaders(request.headers)
+                .setIdleTimeout(REQUEST_IDLE_TIMEOUT);
+        client.request(options)
+                .compose(httpRequest -> request.body != null ? httpRequest.send(request.body) : httpRequest.send())
+                .compose(response -> response.body().map(body -> response.statusCode()))
+                .onComplete(ar -> {
+                    if (ar.failed() || ar.result() >= 500) {
+                        errors.increment();
+                    }
+                    next(client, sent, total, deadline, errors, worker);
+                });
+    }
+
+    /**
+     * Warm-up request
+     */
+    public static class Request {
+        private final HttpMethod method;
+        private final String uri;
+        private final MultiMap headers;
+        private final Buffer body;
+
+        public Request(HttpMethod method, String uri, MultiMap headers, Buffer body) {
+            this.method = method;
+            this.uri = uri;
+            this.headers = headers != null ? headers : MultiMap.caseInsensitiveMultiMap();
+            this.body = body;
+        }
+
+        /**
+         * Synthetic request of an endpoint, configured by the {@link WarmUp} annotation of its method or controller
+         *
+         * @param endpoint route of a controller method
+         * @return the request, or null if the endpoint is excluded, has an unsafe method without {@link WarmUp} or its path can't be sampled (regex)
+         */
+        public static Request of(Endpoint endpoint) {
+            WarmUp warmUp = getWarmUp(endpoint);
+            if ((warmUp != null && !warmUp.value()) || !isAllowed(endpoint.getHttpMethod(), endpoint)) {
+                return null;
+            }
+            String uri = warmUp != null && !warmUp.path().isEmpty() ? warmUp.path() : samplePath(endpoint.getPath());
+            if (uri == null) {
+                return null;
+            }
+            MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+            if (!endpoint.getProduce().isEmpty()) {
+                headers.set(HttpHeaders.ACCEPT, endpoint.getProduce());
+            }
+            if (!endpoint.getConsume().isEmpty()) {
+                headers.set(HttpHeaders.CONTENT_TYPE, ContentCodec.first(endpoint.getConsume()));
+            }
+            Buffer body = null;
+            if (warmUp != null && !warmUp.body().isEmpty()) {
+                body = Buffer.buffer(warmUp.body());
+            } else if ((endpoint.getHttpMethod() == HttpMethod.POST || endpoint.getHttpMethod() == HttpMethod.PUT) && ContentCodec.first(endpoint.getConsume()).contains("json")) {
+                body = Buffer.buffer("{}");
+            }
+            return new Request(endpoint.getHttpMethod(), uri, headers, body);
+        }
+
+        /**
+         * Request recorded by a {@link TrafficCapture}
+         *
+         * @param record    recorded request
+         * @param endpoints endpoints of the application
+         * @return the request, or null if it is routed to an endpoint excluded from the warm-up, or if it has an unsafe method without {@link WarmUp}
+         */
+        public static Request of(TrafficRecord record, List<Endpoint> endpoints) {
+            int query = record.getUri().indexOf('?');
+            String path = query >= 0 ? record.getUri().substring(0, query) : record.getUri();
+            Endpoint matched = null;
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.matches(record.getMethod(), path)) {
+                    WarmUp warmUp = getWarmUp(endpoint);
+                    if (warmUp != null && !warmUp.value()) {
+                        return null;
+                    }
+                    matched = endpoint;
+                    break;
+                }
+            }
+            if (!isAllowed(record.getMethod(), matched)) {
+                return null;
+            }
+            return new Request(record.getMethod(), record.getUri(), record.getHeaders(), record.getBody().length() > 0 ? record.getBody() : null);
+        }
+
+        /**
+         * GET and HEAD are always allowed, other methods only on an endpoint whose mapping method has a {@link WarmUp}, one on the controller isn't enough
+         *
+         * @param method   http method of the request
+         * @param endpoint endpoint of the request, null if none
+         * @return true if the request can be sent by the warm-up
+         */
+        private static boolean isAllowed(HttpMethod method, Endpoint endpoint) {
+            if (method == HttpMethod.GET || method == HttpMethod.HEAD) {
+                return true;
+            }
+            return endpoint != null && endpoint.getMethod().isAnnotationPresent(WarmUp.class);
+        }
+
+        /**
+         * @return {@link WarmUp} annotation of the endpoint method, or of its controller
+         */
+        private static WarmUp getWarmUp(Endpoint endpoint) {
+            return endpoint.getMethod().isAnnotationPresent(WarmUp.class)
+                    ? endpoint.getMethod().getAnnotation(WarmUp.class)
+                    : endpoint.getController().getClass().getAnnotation(WarmUp.class);
+        }
+
+        /**
+         * @param path route path
+         * @return the path with path variables replaced by a sample value, null for regex paths
+         */
+        private static String samplePath(String path) {
+            if (path.contains("(") || path.contains("[")) {
+                return null;
+            }
+            String[] segments = path.split("/", -1);
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = segments[i].startsWith(":") ? SAMPLE_PATH_VARIABLE : segments[i].replace("*", "");
+            }
+            return String.join("/", segments);
+        }
+
+        @Override
+        public String toString() {
+            return method.name() + " " + uri;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package mtk.apix.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Java Flight Recorder recordings and request events.
+ * Java 11 version, packaged in the multi-release section of the jar (META-INF/versions/11).
+ * Profiles: cpu (execution samples every 10 ms), allocation (allocation samples, TLAB events before Java 16), lock (monitors, parks and pinned virtual threads over 1 ms),
+ * or the name of a JDK configuration (default, profile). The apix request events are recorded with every profile.
+ * Events unknown to the running JVM (ex: jdk.VirtualThreadPinned before Java 21) are ignored by the recording.
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class FlightRecorder {
+    private static final boolean SUPPORTED = isAvailable();
+    private static final Duration THRESHOLD = Duration.ofMillis(1);
+
+    private final Recording recording;
+
+    private FlightRecorder(Recording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * @return true if the running JVM can record
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    private static boolean isAvailable() {
+        try {
+            return jdk.jfr.FlightRecorder.isAvailable();
+        } catch (LinkageError e) {
+            // runtime image without the jdk.jfr module
+            return false;
+        }
+    }
+
+    /**
+     * Start a recording
+     *
+     * @param profile        cpu, allocation, lock, or the name of a JDK configuration (default, profile)
+     * @param durationMillis duration of the recording, it stops by itself after
+     * @return the running recording
+     */
+    public static FlightRecorder start(String profile, long durationMillis) {
+        if (!SUPPORTED) {
+            throw new UnsupportedOperationException("Flight recorder is not available in this JVM");
+        }
+        Recording recording = createRecording(profile);
+        recording.enable(RequestEvent.class);
+        recording.enable("jdk.CPULoad").withPeriod(Duration.ofSeconds(1));
+        recording.setName("apix-" + profile);
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofMillis(durationMillis));
+        recording.start();
+        return new FlightRecorder(recording);
+    }
+
+    private static Recording createRecording(String profile) {
+        Recording recording;
+        switch (profile) {
+            case "cpu":
+                recording = new Recording();
+                recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(10));
+                recording.enable("jdk.NativeMethodSample").withPeriod(Duration.ofMillis(20));
+                return recording;
+            case "allocation":
+                recording = new Recording();
+                if (Runtime.version().feature() >= 16) {
+                    recording.enable("jdk.ObjectAllocationSample").with("throttle", "300/s").withStackTrace();
+                } else {
+                    recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+                    recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+                }
+                recording.enable("jdk.GarbageCollection");
+                return recording;
+            case "lock":
+                recording = new Recording();
+                recording.enable("jdk.JavaMonitorEnter").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.JavaMonitorWait").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.ThreadPark").withThreshold(THRESHOLD).withStackTrace();
+                recording.enable("jdk.VirtualThreadPinned").withThreshold(THRESHOLD).withStackTrace();
+                return recording;
+            default:
+                try {
+                    return new Recording(Configuration.getConfiguration(profile));
+                } catch (IOException | ParseException e) {
+                    throw new IllegalArgumentException("Unknown profile: " + profile);
+                }
+        }
+    }
+
+    /**
+     * Stop the recording and write it to the file
+     *
+     * @param file .jfr file
+     */
+    public void stop(Path file) throws IOException {
+        try {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+            }
+            recording.dump(file);
+        } finally {
+            recording.close();
+        }
+    }
+
+    /**
+     * @return request event started now, null if no recording listens to it
+     */
+    public static Object beginRequest() {
+        if (!SUPPORTED) {
+            return null;
+        }
+        RequestEvent event = new RequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event  event of {@link #beginRequest()}
+     * @param method http method
+     * @param route  route path
+     * @param status response status
+     */
+    public static void commitRequest(Object event, String method, String route, int status) {
+        RequestEvent requestEvent = (RequestEvent) event;
+        requestEvent.end();
+        if (requestEvent.shouldCommit()) {
+            requestEvent.method = method;
+            requestEvent.route = route;
+            requestEvent.status = status;
+            requestEvent.commit();
+        }
+    }
+
+    @Name("mtk.apix.Request")
+    @Label("Apix Request")
+    @Description("Http request handled by apix, from the first route handler to the end of the response")
+    @Category("Apix")
+    @StackTrace(false)
+    static class RequestEvent extends Event {
+        @Label("Method")
+        String method;
+        @Label("Route")
+        String route;
+        @Label("Status")
+        int status;
+    }
+}
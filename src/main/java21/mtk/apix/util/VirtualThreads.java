@@ -0,0 +1,30 @@
+package mtk.apix.util;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Start tasks on virtual threads.
+ * Java 21 version, packaged in the multi-release section of the jar (META-INF/versions/21).
+ *
+ * @author mahatoky rasolonirina
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory THREAD_FACTORY = Thread.ofVirtual().name("apix-virtual-", 0).factory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @param task task to run on a new virtual thread
+     */
+    public static void start(Runnable task) {
+        THREAD_FACTORY.newThread(task).start();
+    }
+}
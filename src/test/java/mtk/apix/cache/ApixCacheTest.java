@@ -0,0 +1,165 @@
+package mtk.apix.cache;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class ApixCacheTest {
+
+    private static ApixCache<Integer, String> cache(long maxSize, long expireAfterWrite, long expireAfterAccess, long refreshAfter) {
+        return new ApixCache<>("test", maxSize, expireAfterWrite, expireAfterAccess, refreshAfter, Runnable::run);
+    }
+
+    @Test
+    void sizeIsBounded() {
+        ApixCache<Integer, String> cache = cache(100, 0, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    void frequentEntriesAreNotEvictedByNewOnes() {
+        ApixCache<Integer, String> cache = cache(100, 0, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "hot" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertNotNull(cache.getIfPresent(i));
+            }
+        }
+        // each new key is seen once: less popular than the entries it would evict
+        for (int i = 1000; i < 1500; i++) {
+            cache.put(i, "cold" + i);
+        }
+        int kept = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.getIfPresent(i) != null) {
+                kept++;
+            }
+        }
+        // the entry in the window when the first new key arrives competes with the popular ones
+        assertTrue(kept >= 99, "popular entries kept: " + kept);
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void entriesExpireAfterWrite() throws InterruptedException {
+        ApixCache<Integer, String> cache = cache(10, 50, 0, 0);
+        cache.put(1, "a");
+        assertEquals("a", cache.getIfPresent(1));
+        Thread.sleep(80);
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void entriesExpireAfterAccess() throws InterruptedException {
+        ApixCache<Integer, String> cache = cache(10, 0, 100, 0);
+        cache.put(1, "a");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(40);
+            assertEquals("a", cache.getIfPresent(1));
+        }
+        Thread.sleep(150);
+        assertNull(cache.getIfPresent(1));
+    }
+
+    @Test
+    void cleanUpRemovesExpiredEntries() throws InterruptedException {
+        ApixCache<Integer, String> cache = cache(10, 50, 0, 0);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        Thread.sleep(80);
+        cache.cleanUp();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void staleValueIsReturnedWhileRefreshing() throws InterruptedException {
+        List<Runnable> refreshes = new ArrayList<>();
+        ApixCache<Integer, String> cache = new ApixCache<>("test", 10, 0, 0, 50, refreshes::add);
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("v1", cache.get(1, key -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get(1, key -> "v" + loads.incrementAndGet()));
+        assertTrue(refreshes.isEmpty());
+        Thread.sleep(80);
+        // the caller gets the stale value, the reload is given to the executor once
+        assertEquals("v1", cache.get(1, key -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get(1, key -> "v" + loads.incrementAndGet()));
+        assertEquals(1, refreshes.size());
+        refreshes.get(0).run();
+        assertEquals("v2", cache.get(1, key -> "v" + loads.incrementAndGet()));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        ApixCache<Integer, String> cache = cache(10, 0, 0, 0);
+        assertThrows(IllegalStateException.class, () -> cache.get(1, key -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("a", cache.get(1, key -> "a"));
+        assertEquals(1, cache.stats().getLoadFailureCount());
+        assertEquals(1, cache.stats().getLoadSuccessCount());
+    }
+
+    @Test
+    void concurrentAsyncMissesShareOneLoad() {
+        ApixCache<Integer, String> cache = cache(10, 0, 0, 0);
+        AtomicInteger loads = new AtomicInteger();
+        Promise<String> load = Promise.promise();
+        Future<String> first = cache.getAsync(1, key -> {
+            loads.incrementAndGet();
+            return load.future();
+        });
+        Future<String> second = cache.getAsync(1, key -> {
+            loads.incrementAndGet();
+            return Future.succeededFuture("other");
+        });
+        assertFalse(first.isComplete());
+        assertFalse(second.isComplete());
+        load.complete("a");
+        assertEquals("a", first.result());
+        assertEquals("a", second.result());
+        assertEquals(1, loads.get());
+        assertEquals("a", cache.getIfPresent(1));
+    }
+
+    @Test
+    void failedAsyncLoadIsSharedThenRetried() {
+        ApixCache<Integer, String> cache = cache(10, 0, 0, 0);
+        Promise<String> load = Promise.promise();
+        Future<String> first = cache.getAsync(1, key -> load.future());
+        Future<String> second = cache.getAsync(1, key -> Future.succeededFuture("other"));
+        load.fail(new IllegalStateException("down"));
+        assertTrue(first.failed());
+        assertTrue(second.failed());
+        assertEquals("b", cache.getAsync(1, key -> Future.succeededFuture("b")).result());
+    }
+
+    @Test
+    void invalidateRemovesEntries() {
+        ApixCache<Integer, String> cache = cache(10, 0, 0, 0);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.invalidate(1);
+        assertNull(cache.getIfPresent(1));
+        assertEquals("b", cache.getIfPresent(2));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,46 @@
+package mtk.apix.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class FrequencySketchTest {
+
+    @Test
+    void incrementRaisesFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency("a"));
+        for (int i = 1; i <= 5; i++) {
+            sketch.increment("a");
+            assertEquals(i, sketch.frequency("a"));
+        }
+        assertEquals(0, sketch.frequency("b"));
+    }
+
+    @Test
+    void frequencyIsCappedAt15() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    @Test
+    void frequenciesAreHalvedAfterTheSamplePeriod() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(15, sketch.frequency("hot"));
+        // sample period: 10 times the size
+        for (int i = 0; i < 160; i++) {
+            sketch.increment(i);
+        }
+        int frequency = sketch.frequency("hot");
+        assertTrue(frequency >= 7 && frequency < 15, "frequency after reset: " + frequency);
+    }
+}
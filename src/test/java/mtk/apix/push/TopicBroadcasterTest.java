@@ -0,0 +1,117 @@
+package mtk.apix.push;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class TopicBroadcasterTest {
+
+    @Test
+    void topicIsRemovedWithItsLastSubscriber() {
+        TopicBroadcaster broadcaster = new TopicBroadcaster();
+        TestSession first = new TestSession(broadcaster);
+        TestSession second = new TestSession(broadcaster);
+        first.subscribe("news").subscribe("user-1");
+        second.subscribe("news");
+        assertEquals(new HashSet<>(Arrays.asList("news", "user-1")), broadcaster.getTopics());
+        assertEquals(2, broadcaster.subscriberCount("news"));
+
+        first.unsubscribe("user-1");
+        assertEquals(Collections.singleton("news"), broadcaster.getTopics());
+        first.unsubscribe("news");
+        assertEquals(1, broadcaster.subscriberCount("news"));
+        second.unsubscribe("news");
+        assertTrue(broadcaster.getTopics().isEmpty());
+        assertEquals(0, broadcaster.publish("news", "lost"));
+    }
+
+    @Test
+    void closedSessionLeavesItsTopics() {
+        TopicBroadcaster broadcaster = new TopicBroadcaster();
+        TestSession session = new TestSession(broadcaster);
+        session.subscribe("a").subscribe("b");
+        session.closed();
+        assertTrue(broadcaster.getTopics().isEmpty());
+        assertTrue(session.getTopics().isEmpty());
+    }
+
+    @Test
+    void messageIsSerializedOnceForAllSubscribers() {
+        TopicBroadcaster broadcaster = new TopicBroadcaster();
+        TestSession first = new TestSession(broadcaster).subscribe("news");
+        TestSession second = new TestSession(broadcaster).subscribe("news");
+        assertEquals(2, broadcaster.publish("news", Collections.singletonMap("n", 1)));
+        assertEquals(1, first.received.size());
+        assertSame(first.received.get(0), second.received.get(0));
+        assertEquals("{\"n\":1}", first.received.get(0).text());
+    }
+
+    @Test
+    void sessionsOfEventLoopsAreGroupedAndRemoved() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            TopicBroadcaster broadcaster = new TopicBroadcaster();
+            List<TestSession> sessions = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                CompletableFuture<TestSession> opened = new CompletableFuture<>();
+                // each context of vertx.getOrCreateContext() runs on an event loop
+                vertx.getOrCreateContext().runOnContext(v -> opened.complete(new TestSession(broadcaster).subscribe("news")));
+                sessions.add(opened.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(4, broadcaster.publish("news", "hello"));
+            for (TestSession session : sessions) {
+                assertNotNull(session.getEventLoopThread());
+                session.unsubscribe("news");
+            }
+            assertTrue(broadcaster.getTopics().isEmpty());
+        } finally {
+            vertx.close();
+        }
+    }
+
+    private static final class TestSession extends PushSession {
+        private final List<PushMessage> received = Collections.synchronizedList(new ArrayList<>());
+
+        private TestSession(TopicBroadcaster broadcaster) {
+            super(broadcaster, SlowConsumerPolicy.DROP);
+        }
+
+        @Override
+        public TestSession subscribe(String topic) {
+            super.subscribe(topic);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            closed();
+        }
+
+        @Override
+        protected boolean writeQueueFull() {
+            return false;
+        }
+
+        @Override
+        protected void write(PushMessage message) {
+            received.add(message);
+        }
+    }
+}
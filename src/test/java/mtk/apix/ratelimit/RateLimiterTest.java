@@ -0,0 +1,173 @@
+package mtk.apix.ratelimit;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstOfPermitsIsAccepted() {
+        RateLimiter limiter = new RateLimiter("test", "ip", 5, 10 * SECOND, 100);
+        for (int i = 4; i >= 0; i--) {
+            Exchange exchange = Exchange.from("10.0.0.1").send(limiter);
+            assertTrue(exchange.passed);
+            assertEquals("5", exchange.headers.get("RateLimit-Limit"));
+            assertEquals(String.valueOf(i), exchange.headers.get("RateLimit-Remaining"));
+            assertEquals("5;w=10", exchange.headers.get("RateLimit-Policy"));
+        }
+        assertFalse(Exchange.from("10.0.0.1").send(limiter).passed);
+        // another client has its own bucket
+        assertTrue(Exchange.from("10.0.0.2").send(limiter).passed);
+    }
+
+    @Test
+    void oneTokenIsRefilledEachInterval() throws InterruptedException {
+        // interval: 300 / 3 = 100 ms
+        RateLimiter limiter = new RateLimiter("test", "ip", 3, TimeUnit.MILLISECONDS.toNanos(300), 100);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(Exchange.from("10.0.0.1").send(limiter).passed);
+        }
+        assertFalse(Exchange.from("10.0.0.1").send(limiter).passed);
+        Thread.sleep(130);
+        assertTrue(Exchange.from("10.0.0.1").send(limiter).passed);
+        assertFalse(Exchange.from("10.0.0.1").send(limiter).passed);
+    }
+
+    @Test
+    void rejectedRequestGets429WithRetryAfter() {
+        // interval: 1 s
+        RateLimiter limiter = new RateLimiter("test", "ip", 2, 2 * SECOND, 100);
+        Exchange.from("10.0.0.1").send(limiter);
+        Exchange.from("10.0.0.1").send(limiter);
+        Exchange exchange = Exchange.from("10.0.0.1").send(limiter);
+        assertFalse(exchange.passed);
+        assertEquals(429, exchange.status);
+        assertTrue(exchange.ended);
+        assertEquals("1", exchange.headers.get("Retry-After"));
+        assertEquals("0", exchange.headers.get("RateLimit-Remaining"));
+        assertEquals("2", exchange.headers.get("RateLimit-Reset"));
+        assertEquals(2L, limiter.toJson().getLong("accepted"));
+        assertEquals(1L, limiter.toJson().getLong("rejected"));
+    }
+
+    @Test
+    void clientsBeyondMaxKeysShareTheOverflowBucket() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter("test", "ip", 1, TimeUnit.MILLISECONDS.toNanos(50), 2);
+        assertTrue(Exchange.from("10.0.0.1").send(limiter).passed);
+        assertTrue(Exchange.from("10.0.0.2").send(limiter).passed);
+        assertTrue(Exchange.from("10.0.0.3").send(limiter).passed);
+        assertFalse(Exchange.from("10.0.0.4").send(limiter).passed);
+        assertEquals(2, limiter.toJson().getInteger("clients"));
+        // idle clients are evicted, new clients get their own bucket again
+        Thread.sleep(80);
+        limiter.evictIdle();
+        assertEquals(0, limiter.toJson().getInteger("clients"));
+        assertTrue(Exchange.from("10.0.0.4").send(limiter).passed);
+        assertEquals(1, limiter.toJson().getInteger("clients"));
+    }
+
+    @Test
+    void headerKeyFallsBackToTheAddress() {
+        RateLimiter limiter = new RateLimiter("test", "header:X-Api-Key", 1, 10 * SECOND, 100);
+        assertTrue(Exchange.from("10.0.0.1").header("X-Api-Key", "a").send(limiter).passed);
+        assertFalse(Exchange.from("10.0.0.2").header("X-Api-Key", "a").send(limiter).passed);
+        assertTrue(Exchange.from("10.0.0.1").header("X-Api-Key", "b").send(limiter).passed);
+        assertTrue(Exchange.from("10.0.0.1").send(limiter).passed);
+        assertFalse(Exchange.from("10.0.0.1").send(limiter).passed);
+    }
+
+    @Test
+    void invalidKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", "header:", 1, SECOND, 100));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", "user", 1, SECOND, 100));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter("test", "ip", 0, SECOND, 100));
+    }
+
+    /**
+     * Request and response of one call to the limiter, only the methods used by the limiter are implemented
+     */
+    private static final class Exchange {
+        private final SocketAddress remoteAddress;
+        private final MultiMap requestHeaders = MultiMap.caseInsensitiveMultiMap();
+        private final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        private int status = 200;
+        private boolean ended;
+        private boolean passed;
+
+        private Exchange(String remoteAddress) {
+            this.remoteAddress = SocketAddress.inetSocketAddress(40000, remoteAddress);
+        }
+
+        static Exchange from(String remoteAddress) {
+            return new Exchange(remoteAddress);
+        }
+
+        Exchange header(String name, String value) {
+            requestHeaders.add(name, value);
+            return this;
+        }
+
+        Exchange send(RateLimiter limiter) {
+            HttpServerRequest request = proxy(HttpServerRequest.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getHeader":
+                        return requestHeaders.get((String) args[0]);
+                    case "remoteAddress":
+                        return remoteAddress;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+            HttpServerResponse response = proxy(HttpServerResponse.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "putHeader":
+                        headers.set(args[0].toString(), args[1].toString());
+                        return proxy;
+                    case "setStatusCode":
+                        status = (Integer) args[0];
+                        return proxy;
+                    case "end":
+                        ended = true;
+                        return Future.succeededFuture();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+            RoutingContext routingContext = proxy(RoutingContext.class, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "request":
+                        return request;
+                    case "response":
+                        return response;
+                    case "next":
+                        passed = true;
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+            limiter.handle(routingContext);
+            return this;
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(RateLimiterTest.class.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}
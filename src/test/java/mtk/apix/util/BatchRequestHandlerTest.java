@@ -0,0 +1,124 @@
+package mtk.apix.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.handler.BodyHandler;
+import mtk.apix.trace.Trace;
+import mtk.apix.trace.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class BatchRequestHandlerTest {
+
+    private Vertx vertx;
+    private HttpClient client;
+    private HttpServer server;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    @BeforeEach
+    void start() throws Exception {
+        vertx = Vertx.vertx();
+        Router router = Router.router(vertx);
+        router.route().handler(new Tracer(1, 100));
+        router.post(BatchRequestHandler.DEFAULT_PATH).handler(BodyHandler.create())
+                .handler(new BatchRequestHandler(BatchRequestHandler.DEFAULT_PATH, 4, 50, endpoints, null, null));
+        server = vertx.createHttpServer().requestHandler(router).listen(0)
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        client = vertx.createHttpClient();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private JsonArray batch(JsonArray subRequests) throws Exception {
+        return client.request(HttpMethod.POST, server.actualPort(), "localhost", BatchRequestHandler.DEFAULT_PATH)
+                .compose(request -> request.send(subRequests.toBuffer()))
+                .compose(response -> response.body())
+                .map(Buffer::toJsonArray)
+                .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void parallelSubRequestsKeepTheirOwnDeadlineAndTrace() throws Exception {
+        Endpoint endpoint = new Endpoint(HttpMethod.GET, "/slow/:delay", null, null, "", "");
+        endpoint.addHandler(routingContext -> {
+            long delay = Long.parseLong(routingContext.pathParam("delay"));
+            Deadline deadline = Deadline.start(vertx, routingContext, 5000 + delay, 504);
+            Trace trace = Trace.of(routingContext);
+            boolean startedWithItsOwn = Deadline.current() == deadline && Trace.current() == trace;
+            // the other sub-requests start their deadline before the timer of this one fires
+            vertx.setTimer(delay, id -> routingContext.response().end(new JsonObject()
+                    .put("started", startedWithItsOwn)
+                    .put("deadline", Deadline.current() == deadline ? Deadline.current().getTimeoutMillis() : -1)
+                    .put("trace", Trace.current() == trace ? trace.getTraceId() : null)
+                    .encode()));
+        });
+        endpoints.add(endpoint);
+
+        JsonArray subRequests = new JsonArray();
+        for (int delay = 400; delay > 0; delay -= 100) {
+            subRequests.add(new JsonObject().put("path", "/slow/" + delay));
+        }
+        JsonArray results = batch(subRequests);
+
+        assertEquals(4, results.size());
+        String traceId = null;
+        for (int i = 0; i < results.size(); i++) {
+            JsonObject result = results.getJsonObject(i);
+            JsonObject body = new JsonObject(result.getString("body"));
+            assertEquals(i, result.getInteger("index"));
+            assertEquals(200, result.getInteger("status"));
+            assertTrue(body.getBoolean("started"), body.encode());
+            assertEquals(5400 - 100 * i, body.getLong("deadline"), body.encode());
+            assertNotNull(body.getString("trace"), body.encode());
+            // the sub-requests belong to the trace of the batch request
+            assertTrue(traceId == null || traceId.equals(body.getString("trace")));
+            traceId = body.getString("trace");
+        }
+    }
+
+    @Test
+    void binaryBodiesAreGivenAsBase64() throws Exception {
+        byte[] bytes = {(byte) 0xA1, 0x61, 0x61, 0x01, 0x00, (byte) 0xFF};
+        Endpoint echo = new Endpoint(HttpMethod.POST, "/echo", null, null, "", "");
+        echo.addHandler(routingContext -> routingContext.response()
+                .putHeader("Content-Type", routingContext.request().getHeader("Content-Type"))
+                .end(routingContext.body().buffer()));
+        endpoints.add(echo);
+
+        JsonArray results = batch(new JsonArray()
+                .add(new JsonObject().put("method", "POST").put("path", "/echo").put("headers", new JsonObject().put("Content-Type", "application/cbor"))
+                        .put("body", Base64.getEncoder().encodeToString(bytes)).put("encoding", "base64"))
+                .add(new JsonObject().put("method", "POST").put("path", "/echo").put("headers", new JsonObject().put("Content-Type", "text/plain; charset=utf-8"))
+                        .put("body", "h\u00e9llo"))
+                .add(new JsonObject().put("method", "POST").put("path", "/echo").put("body", new JsonObject().put("a", 1)))
+                .add(new JsonObject().put("method", "POST").put("path", "/echo").put("body", "%%").put("encoding", "base64")));
+
+        JsonObject binary = results.getJsonObject(0);
+        assertEquals("base64", binary.getString("encoding"));
+        assertArrayEquals(bytes, Base64.getDecoder().decode(binary.getString("body")));
+        assertEquals("h\u00e9llo", results.getJsonObject(1).getString("body"));
+        assertNull(results.getJsonObject(1).getString("encoding"));
+        assertEquals(new JsonObject().put("a", 1), results.getJsonObject(2).getJsonObject("body"));
+        assertEquals(400, results.getJsonObject(3).getInteger("status"));
+    }
+}
@@ -0,0 +1,205 @@
+package mtk.apix.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class ContentCodecTest {
+
+    private static final String PRODUCE = "application/json, application/cbor, application/x-jackson-smile, application/msgpack";
+
+    private static Item item() {
+        return new Item(7, "apix", Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void everyFormatRoundTripsABean() {
+        for (String type : PRODUCE.split(",")) {
+            ContentCodec codec = ContentCodec.of(type);
+            assertNotNull(codec, type);
+            assertEquals(type.trim(), codec.getMediaType());
+            Buffer body = codec.encode(item());
+            assertEquals(item(), codec.decode(body, Item.class), type);
+        }
+    }
+
+    @Test
+    void binaryFormatsAreNotJson() {
+        String json = ContentCodec.json().encode(item()).toString();
+        for (String type : Arrays.asList(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_SMILE, MediaType.APPLICATION_MSGPACK)) {
+            Buffer body = ContentCodec.of(type).encode(item());
+            assertNotEquals(json, new String(body.getBytes(), StandardCharsets.ISO_8859_1), type);
+            assertTrue(body.length() < json.length(), type);
+        }
+        // smile header ":)\n"
+        assertEquals(":)\n", ContentCodec.of(MediaType.APPLICATION_SMILE).encode(item()).getString(0, 3));
+    }
+
+    @Test
+    void genericTypesAreDecoded() {
+        ContentCodec codec = ContentCodec.of(MediaType.APPLICATION_CBOR);
+        List<Item> items = codec.decode(codec.encode(Arrays.asList(item(), item())), new TypeReference<List<Item>>() {
+        }.getType());
+        assertEquals(Arrays.asList(item(), item()), items);
+        Map<String, Object> map = codec.decode(codec.encode(item()), Map.class);
+        assertEquals("apix", map.get("name"));
+        assertNull(codec.decode(Buffer.buffer(), Item.class));
+    }
+
+    @Test
+    void mediaTypeParametersAndJsonSuffixAreIgnored() {
+        assertSame(ContentCodec.of(MediaType.APPLICATION_CBOR), ContentCodec.of("Application/CBOR; q=0.9"));
+        assertSame(ContentCodec.json(), ContentCodec.of("application/json; charset=utf-8"));
+        assertSame(ContentCodec.json(), ContentCodec.of("application/problem+json"));
+        assertNull(ContentCodec.of("text/plain"));
+        assertNull(ContentCodec.of(null));
+    }
+
+    @Test
+    void availableFormatsAreChecked() {
+        ContentCodec.checkAvailable(PRODUCE);
+        ContentCodec.checkAvailable("text/plain, application/x-unknown");
+    }
+
+    @Test
+    void registeredCodecIsUsed() {
+        ObjectMapper mapper = new ObjectMapper();
+        ContentCodec.register("application/x-test; v=1", mapper);
+        ContentCodec codec = ContentCodec.of("application/x-test");
+        assertSame(mapper, codec.getMapper());
+        assertEquals(item(), codec.decode(codec.encode(item()), Item.class));
+    }
+
+    @Test
+    void acceptableTypeWinsOverTheFirstProducedType() {
+        assertEquals(MediaType.APPLICATION_MSGPACK, ContentCodec.negotiate(routingContext(MediaType.APPLICATION_MSGPACK), PRODUCE));
+        assertEquals(MediaType.APPLICATION_JSON, ContentCodec.negotiate(routingContext(null), PRODUCE));
+        assertEquals("", ContentCodec.negotiate(routingContext(null), ""));
+    }
+
+    @Test
+    void negotiatedResponseRoundTrips() throws Exception {
+        Vertx vertx = Vertx.vertx();
+        try {
+            Router router = Router.router(vertx);
+            AtomicInteger served = new AtomicInteger();
+            Route route = router.get("/item");
+            for (String type : PRODUCE.split(",")) {
+                route.produces(type.trim());
+            }
+            route.handler(routingContext -> {
+                served.incrementAndGet();
+                ResponseWriter.write(routingContext, item(), ContentCodec.negotiate(routingContext, PRODUCE));
+            });
+            HttpServer server = vertx.createHttpServer().requestHandler(router).listen(0)
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            HttpClient client = vertx.createHttpClient();
+            for (String type : Arrays.asList(MediaType.APPLICATION_CBOR, MediaType.APPLICATION_SMILE, MediaType.APPLICATION_MSGPACK, MediaType.APPLICATION_JSON)) {
+                AtomicReference<HttpClientResponse> response = new AtomicReference<>();
+                Buffer body = client.request(HttpMethod.GET, server.actualPort(), "localhost", "/item")
+                        .compose(request -> request.putHeader("Accept", type + ", application/json;q=0.5").send())
+                        .compose(r -> {
+                            response.set(r);
+                            return r.body();
+                        })
+                        .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+                assertEquals(200, response.get().statusCode(), type);
+                assertEquals(type, response.get().getHeader("Content-Type"));
+                assertEquals(item(), ContentCodec.of(response.get().getHeader("Content-Type")).decode(body, Item.class), type);
+            }
+            int notAcceptable = client.request(HttpMethod.GET, server.actualPort(), "localhost", "/item")
+                    .compose(request -> request.putHeader("Accept", "text/csv").send())
+                    .compose(r -> r.body().map(b -> r.statusCode()))
+                    .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            assertEquals(406, notAcceptable);
+            assertEquals(4, served.get());
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static RoutingContext routingContext(String acceptable) {
+        return (RoutingContext) Proxy.newProxyInstance(ContentCodecTest.class.getClassLoader(), new Class<?>[]{RoutingContext.class}, (proxy, method, args) -> {
+            if ("getAcceptableContentType".equals(method.getName())) {
+                return acceptable;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    public static class Item {
+        private int id;
+        private String name;
+        private List<String> tags;
+
+        public Item() {
+        }
+
+        Item(int id, String name, List<String> tags) {
+            this.id = id;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return id == other.id && name.equals(other.name) && tags.equals(other.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package mtk.apix.util;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author mahatoky rasolonirina
+ */
+class FieldProjectionTest {
+
+    private static JsonObject project(String fields, Object value) {
+        return new JsonObject(FieldProjection.of(fields).encode(value, ContentCodec.json()));
+    }
+
+    private static User user() {
+        return new User(1, "alice", new Address("Antananarivo", "101"),
+                Arrays.asList(new Order(10, 25.5, new Address("Toamasina", "501")), new Order(11, 8, null)));
+    }
+
+    @Test
+    void noFieldsMeansNoProjection() {
+        assertNull(FieldProjection.of(null));
+        assertNull(FieldProjection.of(" "));
+    }
+
+    @Test
+    void topLevelFieldsAreKept() {
+        JsonObject json = project("id,name", user());
+        assertEquals(new JsonObject().put("id", 1).put("name", "alice"), json);
+    }
+
+    @Test
+    void nestedPathsKeepOnlyTheirFields() {
+        JsonObject json = project("name,address.city", user());
+        assertEquals(new JsonObject().put("name", "alice").put("address", new JsonObject().put("city", "Antananarivo")), json);
+    }
+
+    @Test
+    void listsOfBeansAreProjectedElementByElement() {
+        JsonObject json = project("orders.id,orders.address.zip", user());
+        JsonArray orders = json.getJsonArray("orders");
+        assertEquals(1, json.size());
+        assertEquals(new JsonObject().put("id", 10).put("address", new JsonObject().put("zip", "501")), orders.getJsonObject(0));
+        assertEquals(new JsonObject().put("id", 11).put("address", (Object) null), orders.getJsonObject(1));
+    }
+
+    @Test
+    void rootListIsProjected() {
+        JsonArray json = new JsonArray(FieldProjection.of("total").encode(user().getOrders(), ContentCodec.json()));
+        assertEquals(new JsonArray().add(new JsonObject().put("total", 25.5)).add(new JsonObject().put("total", 8.0)), json);
+    }
+
+    @Test
+    void wholeFieldWinsOverItsNestedPath() {
+        JsonObject whole = new JsonObject().put("address", new JsonObject().put("city", "Antananarivo").put("zip", "101"));
+        assertEquals(whole, project("address,address.city", user()));
+        assertEquals(whole, project("address.city,address", user()));
+    }
+
+    @Test
+    void nestedPathsOfOneFieldAreMerged() {
+        JsonObject json = project("address.city, address.zip", user());
+        assertEquals(new JsonObject().put("address", new JsonObject().put("city", "Antananarivo").put("zip", "101")), json);
+    }
+
+    @Test
+    void mapKeysAreFilteredLikeProperties() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", 1);
+        map.put("tags", Collections.singletonList("a"));
+        map.put("user", user());
+        JsonObject json = project("id,user.name", map);
+        assertEquals(new JsonObject().put("id", 1).put("user", new JsonObject().put("name", "alice")), json);
+    }
+
+    @Test
+    void jsonObjectIsProjected() {
+        JsonObject value = new JsonObject()
+                .put("id", 1)
+                .put("secret", "s")
+                .put("items", new JsonArray().add(new JsonObject().put("id", 2).put("secret", "s")));
+        JsonObject json = project("id,items.id", value);
+        assertEquals(new JsonObject().put("id", 1).put("items", new JsonArray().add(new JsonObject().put("id", 2))), json);
+    }
+
+    @Test
+    void unknownFieldsAreIgnored() {
+        JsonObject json = project("id,missing,address.missing.deeper", user());
+        assertEquals(new JsonObject().put("id", 1).put("address", new JsonObject()), json);
+    }
+
+    public static class User {
+        private final int id;
+        private final String name;
+        private final Address address;
+        private final List<Order> orders;
+
+        User(int id, String name, Address address, List<Order> orders) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.orders = orders;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+    }
+
+    public static class Address {
+        private final String city;
+        private final String zip;
+
+        Address(String city, String zip) {
+            this.city = city;
+            this.zip = zip;
+        }
+
+        public String getCity() {
+            return city;
+        }
+
+        public String getZip() {
+            return zip;
+        }
+    }
+
+    public static class Order {
+        private final int id;
+        private final double total;
+        private final Address address;
+
+        Order(int id, double total, Address address) {
+            this.id = id;
+            this.total = total;
+            this.address = address;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getTotal() {
+            return total;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+}